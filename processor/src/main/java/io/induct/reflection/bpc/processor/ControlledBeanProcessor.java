@@ -0,0 +1,368 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates a <code>&lt;Bean&gt;$$PropertyAccessorTable</code> for every class annotated with
+ * <code>io.induct.reflection.bpc.ControlledBean</code>. The table calls the getters and setters of
+ * the bean directly and describes its properties with the same rules the runtime method
+ * extraction uses:
+ * <ul>
+ * <li>a property with a setter is read through <code>isX()</code> if it's boolean, otherwise
+ *     through <code>getX()</code>, and the setter's parameter must be assignable to the getter's
+ *     return type</li>
+ * <li>a property with only a <code>getX()</code> is read-only</li>
+ * </ul>
+ * 
+ * @author Esko
+ */
+@SupportedAnnotationTypes(ControlledBeanProcessor.ANNOTATION)
+public class ControlledBeanProcessor extends AbstractProcessor {
+    
+    static final String ANNOTATION = "io.induct.reflection.bpc.ControlledBean";
+    static final String TABLE = "io.induct.reflection.bpc.PropertyAccessorTable";
+    static final String SUFFIX = "$$PropertyAccessorTable";
+    static final String SUPPORT = "io.induct.reflection.bpc.PrimitiveSupport";
+    
+    private static final Comparator<Property> BY_NAME = new Comparator<Property>() {
+        public int compare(Property left, Property right) {
+            return left.name.compareTo(right.name);
+        }
+    };
+    
+    /**
+     * Getter/setter pair of a single property.
+     */
+    private static final class Property {
+        
+        final String name;
+        final String type;
+        final ExecutableElement getter;
+        final ExecutableElement setter;
+        final String setterType;
+        
+        Property(String name, String type, ExecutableElement getter, ExecutableElement setter, String setterType) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+            this.setterType = setterType;
+        }
+    }
+    
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+    
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@ControlledBean can only be used on classes");
+                } else if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                    error(element, "@ControlledBean classes can't be private");
+                } else {
+                    generate((TypeElement) element);
+                }
+            }
+        }
+        return true;
+    }
+    
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+    }
+    
+    private List<Property> findProperties(TypeElement bean) {
+        Map<String, ExecutableElement> setters = new LinkedHashMap<String, ExecutableElement>();
+        Map<String, ExecutableElement> getters = new LinkedHashMap<String, ExecutableElement>();
+        Map<String, ExecutableElement> predicates = new LinkedHashMap<String, ExecutableElement>();
+        Map<String, String> names = new LinkedHashMap<String, String>();
+        
+        List<? extends Element> members = processingEnv.getElementUtils().getAllMembers(bean);
+        for (ExecutableElement m : ElementFilter.methodsIn(members)) {
+            if (!m.getModifiers().contains(Modifier.PUBLIC) || m.getModifiers().contains(Modifier.STATIC)
+                    || ((TypeElement) m.getEnclosingElement()).getQualifiedName().contentEquals("java.lang.Object")) {
+                continue;
+            }
+            String name = m.getSimpleName().toString();
+            int parameters = m.getParameters().size();
+            if (name.startsWith("set") && parameters == 1) {
+                register(setters, names, name.substring(3), m);
+            } else if (name.startsWith("get") && parameters == 0 && m.getReturnType().getKind() != TypeKind.VOID) {
+                register(getters, names, name.substring(3), m);
+            } else if (name.startsWith("is") && parameters == 0 && m.getReturnType().getKind() != TypeKind.VOID) {
+                register(predicates, names, name.substring(2), m);
+            }
+        }
+        
+        List<Property> properties = new ArrayList<Property>();
+        for (Map.Entry<String, String> name : names.entrySet()) {
+            ExecutableElement setter = setters.get(name.getKey());
+            ExecutableElement getter;
+            String setterType = null;
+            if (setter != null) {
+                TypeMirror parameter = erasure(setter.getParameters().get(0).asType());
+                setterType = parameter.toString();
+                boolean bool = setterType.equals("boolean") || setterType.equals("java.lang.Boolean");
+                getter = bool ? predicates.get(name.getKey()) : getters.get(name.getKey());
+                if (getter == null || !isAssignable(parameter, erasure(getter.getReturnType()))) {
+                    continue;
+                }
+            } else {
+                getter = getters.get(name.getKey());
+                if (getter == null) {
+                    continue;
+                }
+            }
+            TypeMirror type = erasure(getter.getReturnType());
+            properties.add(new Property(name.getValue(), type.toString(), getter, setter, setterType));
+        }
+        Collections.sort(properties, BY_NAME);
+        return properties;
+    }
+    
+    private void register(Map<String, ExecutableElement> methods, Map<String, String> names, String baseName, ExecutableElement m) {
+        if (baseName.isEmpty()) {
+            return;
+        }
+        String key = baseName.toLowerCase(Locale.ENGLISH);
+        if (!methods.containsKey(key)) {
+            methods.put(key, m);
+        }
+        if (!names.containsKey(key)) {
+            names.put(key, baseName.substring(0, 1).toLowerCase() + baseName.substring(1));
+        }
+    }
+    
+    private TypeMirror erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type);
+    }
+    
+    /**
+     * Same check as the runtime does with <code>Class.isAssignableFrom</code>, so primitives must match exactly.
+     */
+    private boolean isAssignable(TypeMirror from, TypeMirror to) {
+        if (from.getKind().isPrimitive() || to.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().isSameType(from, to);
+        }
+        return processingEnv.getTypeUtils().isAssignable(from, to);
+    }
+    
+    private void generate(TypeElement bean) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(bean);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(bean).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+        String beanType = erasure(bean.asType()).toString();
+        List<Property> properties = findProperties(bean);
+        
+        try {
+            PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                    .createSourceFile(packageName.isEmpty() ? simpleName : packageName + "." + simpleName, bean).openWriter());
+            try {
+                new TableWriter(out, simpleName, beanType, properties).write(packageName);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            error(bean, "Couldn't generate property accessor table: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Writes the source of a single table.
+     */
+    private static final class TableWriter {
+        
+        private final PrintWriter out;
+        private final String className;
+        private final String beanType;
+        private final List<Property> properties;
+        
+        TableWriter(PrintWriter out, String className, String beanType, List<Property> properties) {
+            this.out = out;
+            this.className = className;
+            this.beanType = beanType;
+            this.properties = properties;
+        }
+        
+        void write(String packageName) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Generated by " + ControlledBeanProcessor.class.getName() + ", do not edit.");
+            out.println(" */");
+            out.println("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+            out.println("public final class " + className + " implements " + TABLE + " {");
+            out.println();
+            writeMetadata();
+            writeGetter("Object", "get", null);
+            writeSetter("Object", "set", null);
+            writeGetter("int", "getInt", new String[] { "int", "short", "byte", "char" });
+            writeGetter("long", "getLong", new String[] { "long", "int", "short", "byte", "char" });
+            writeGetter("double", "getDouble", new String[] { "double", "float", "long", "int", "short", "byte", "char" });
+            writeGetter("boolean", "getBoolean", new String[] { "boolean" });
+            writeSetter("int", "setInt", new String[] { "int", "long", "float", "double" });
+            writeSetter("long", "setLong", new String[] { "long", "float", "double" });
+            writeSetter("double", "setDouble", new String[] { "double" });
+            writeSetter("boolean", "setBoolean", new String[] { "boolean" });
+            out.println("}");
+        }
+        
+        private void writeMetadata() {
+            StringBuilder names = new StringBuilder();
+            StringBuilder types = new StringBuilder();
+            StringBuilder readOnly = new StringBuilder();
+            for (Property property : properties) {
+                names.append(names.length() > 0 ? ", " : "").append('"').append(property.name).append('"');
+                types.append(types.length() > 0 ? ", " : "").append(property.type).append(".class");
+                readOnly.append(readOnly.length() > 0 ? ", " : "").append(property.setter == null);
+            }
+            out.println("    private static final String[] NAMES = { " + names + " };");
+            out.println("    private static final Class<?>[] TYPES = { " + types + " };");
+            out.println("    private static final boolean[] READ_ONLY = { " + readOnly + " };");
+            out.println();
+            out.println("    public int getPropertyCount() {");
+            out.println("        return NAMES.length;");
+            out.println("    }");
+            out.println();
+            out.println("    public String getPropertyName(int propertyIndex) {");
+            out.println("        return NAMES[propertyIndex];");
+            out.println("    }");
+            out.println();
+            out.println("    public Class<?> getPropertyType(int propertyIndex) {");
+            out.println("        return TYPES[propertyIndex];");
+            out.println("    }");
+            out.println();
+            out.println("    public boolean isReadOnly(int propertyIndex) {");
+            out.println("        return READ_ONLY[propertyIndex];");
+            out.println("    }");
+            out.println();
+        }
+        
+        private static boolean accepts(String[] types, String type) {
+            if (types == null) {
+                return true;
+            }
+            for (String accepted : types) {
+                if (accepted.equals(type)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private void writeGetter(String returnType, String method, String[] types) {
+            out.println("    public " + returnType + " " + method + "(Object bean, int propertyIndex) {");
+            out.println("        " + beanType + " b = (" + beanType + ") bean;");
+            out.println("        switch (propertyIndex) {");
+            for (int i = 0; i < properties.size(); i++) {
+                Property property = properties.get(i);
+                if (accepts(types, property.type)) {
+                    out.println("            case " + i + ": return b." + property.getter.getSimpleName() + "();");
+                }
+            }
+            out.println("            default: throw new IllegalArgumentException(\"No readable " + returnType 
+                        + " property at index \" + propertyIndex);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+        }
+        
+        private void writeSetter(String valueType, String method, String[] types) {
+            out.println("    public void " + method + "(Object bean, int propertyIndex, " + valueType + " value) {");
+            out.println("        " + beanType + " b = (" + beanType + ") bean;");
+            out.println("        switch (propertyIndex) {");
+            for (int i = 0; i < properties.size(); i++) {
+                Property property = properties.get(i);
+                if (property.setter == null) {
+                    continue;
+                }
+                if (types == null) {
+                    out.println("            case " + i + ": b." + property.setter.getSimpleName() + "(" + converted(property.setterType) + "); return;");
+                } else if (accepts(types, property.type)) {
+                    out.println("            case " + i + ": b." + property.setter.getSimpleName() + "(value); return;");
+                }
+            }
+            out.println("            default: throw new IllegalArgumentException(\"No writable " + valueType 
+                        + " property at index \" + propertyIndex);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+        }
+        
+        /**
+         * Converts the Object <code>value</code> into given type the same way the runtime generated
+         * dispatchers do, primitives are unboxed through <code>PrimitiveSupport</code> which only
+         * accepts widening conversions, so for example an Integer can be given to a double
+         * property but a Long can't be given to an int property.
+         */
+        private static String converted(String type) {
+            switch (type) {
+                case "int":
+                case "long":
+                case "double":
+                case "float":
+                case "short":
+                case "byte":
+                case "char":
+                case "boolean":
+                    return SUPPORT + ".unbox" + Character.toUpperCase(type.charAt(0)) + type.substring(1) + "(value)";
+                case "java.lang.Object": return "value";
+                default: return "(" + type + ") value";
+            }
+        }
+    }
+}
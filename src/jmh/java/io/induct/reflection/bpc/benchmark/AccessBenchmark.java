@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.induct.reflection.bpc.BeanPropertyController;
+import io.induct.reflection.bpc.PropertyHandle;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+
+/**
+ * Compares {@link BeanPropertyController#access(String)} of method, field and declared field
+ * properties against plain getters.
+ * 
+ * @author Esko
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessBenchmark {
+    
+    @Param({"REFLECTION", "METHOD_HANDLES", "GENERATED"})
+    public AccessorEngine engine;
+    
+    private MethodBean methodBean;
+    private DeclaredFieldBean declaredFieldBean;
+    private BeanPropertyController methods;
+    private BeanPropertyController fields;
+    private BeanPropertyController declaredFields;
+    private PropertyHandle name;
+    private PropertyHandle age;
+    
+    @Setup
+    public void setUp() {
+        methodBean = new MethodBean();
+        methodBean.setName("method");
+        methodBean.setAge(42);
+        FieldBean fieldBean = new FieldBean();
+        fieldBean.name = "field";
+        fieldBean.age = 42;
+        declaredFieldBean = new DeclaredFieldBean();
+        declaredFieldBean.name("declared");
+        
+        methods = BeanPropertyController.of(methodBean, engine);
+        fields = BeanPropertyController.of(fieldBean, ExtractionDepth.FIELDS, BeanPropertyController.DEFAULT_STEPS, engine);
+        declaredFields = BeanPropertyController.of(declaredFieldBean, ExtractionDepth.QUESTIMATE, 
+                                                   BeanPropertyController.DEFAULT_STEPS, engine);
+        name = methods.handle("name");
+        age = methods.handle("age");
+    }
+    
+    @Benchmark
+    public void baselineGetter(Blackhole bh) {
+        bh.consume(methodBean.getName());
+        bh.consume(methodBean.getAge());
+    }
+    
+    @Benchmark
+    public void baselineDeclaredField(Blackhole bh) {
+        bh.consume(declaredFieldBean.name());
+        bh.consume(declaredFieldBean.age());
+    }
+    
+    @Benchmark
+    public void accessMethodProperty(Blackhole bh) {
+        bh.consume(methods.access("name"));
+        bh.consume(methods.access("age"));
+    }
+    
+    @Benchmark
+    public void accessMethodPropertyWithoutBoxing(Blackhole bh) {
+        bh.consume(methods.access("name"));
+        bh.consume(methods.accessInt("age"));
+    }
+    
+    @Benchmark
+    public void accessMethodPropertyThroughHandle(Blackhole bh) {
+        bh.consume(methods.get(name));
+        bh.consume(methods.getInt(age));
+    }
+    
+    @Benchmark
+    public void accessFieldProperty(Blackhole bh) {
+        bh.consume(fields.access("name"));
+        bh.consume(fields.access("age"));
+    }
+    
+    @Benchmark
+    public void accessDeclaredFieldProperty(Blackhole bh) {
+        bh.consume(declaredFields.access("name"));
+        bh.consume(declaredFields.access("age"));
+    }
+}
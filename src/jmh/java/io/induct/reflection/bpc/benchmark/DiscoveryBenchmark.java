@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.induct.reflection.bpc.BeanPropertyController;
+
+/**
+ * Measures creating controllers and listing property names of nested beans.
+ * 
+ * @author Esko
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscoveryBenchmark {
+    
+    @Param({"0", "1", "2"})
+    public int steps;
+    
+    private MethodBean bean;
+    
+    @Setup
+    public void setUp() {
+        bean = new MethodBean();
+        bean.setName("root");
+        MethodBean current = bean;
+        for (int i = 0; i < 3; i++) {
+            MethodBean child = new MethodBean();
+            child.setName("child" + i);
+            current.setChild(child);
+            current = child;
+        }
+    }
+    
+    @Benchmark
+    public MethodBean baselineConstruction() {
+        MethodBean copy = new MethodBean();
+        copy.setName(bean.getName());
+        return copy;
+    }
+    
+    @Benchmark
+    public Object controllerConstruction() {
+        return BeanPropertyController.of(bean).access("name");
+    }
+    
+    @Benchmark
+    public String[] propertyNames() {
+        return BeanPropertyController.of(bean).getPropertyNames(steps);
+    }
+}
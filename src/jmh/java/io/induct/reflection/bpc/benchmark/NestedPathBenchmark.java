@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.induct.reflection.bpc.BeanPropertyController;
+import io.induct.reflection.bpc.PropertyPath;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+
+/**
+ * Compares nested property access through the controller and compiled paths against chained
+ * getters.
+ * 
+ * @author Esko
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestedPathBenchmark {
+    
+    @Param({"REFLECTION", "METHOD_HANDLES", "GENERATED"})
+    public AccessorEngine engine;
+    
+    private MethodBean bean;
+    private BeanPropertyController bpc;
+    private PropertyPath path;
+    
+    @Setup
+    public void setUp() {
+        bean = new MethodBean();
+        bean.setChild(new MethodBean());
+        bean.getChild().setChild(new MethodBean());
+        bean.getChild().getChild().setName("grandchild");
+        bpc = BeanPropertyController.of(bean, engine);
+        path = PropertyPath.compile("child.child.name", ExtractionDepth.METHODS, BeanPropertyController.DEFAULT_STEPS, engine);
+    }
+    
+    @Benchmark
+    public Object baselineGetters() {
+        return bean.getChild().getChild().getName();
+    }
+    
+    @Benchmark
+    public Object accessThroughController() {
+        return bpc.access("child.child.name");
+    }
+    
+    @Benchmark
+    public Object accessThroughCompiledPath() {
+        return path.access(bean);
+    }
+}
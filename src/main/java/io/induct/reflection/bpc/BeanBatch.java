@@ -0,0 +1,284 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+
+/**
+ * Applies mappings, projections and mutations to a list of beans in parallel.
+ * <p>
+ * The list is split into chunks which are processed by a {@link ForkJoinPool}, by default the
+ * common pool. Properties are resolved through the shared {@link ClassMetadata} so every chunk
+ * resolves each property at most once per bean class, and the beans may be of mixed classes.
+ * The list must not be structurally modified while an operation runs, and operations must not
+ * mutate the same bean from several places.
+ * 
+ * @author Esko
+ */
+public class BeanBatch<T> {
+    
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+    
+    private final List<T> beans;
+    private ExtractionDepth extractionDepth = ExtractionDepth.METHODS;
+    private AccessorEngine engine = AccessorEngine.REFLECTION;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int parallelism = 0;
+    private ForkJoinPool pool;
+    
+    private BeanBatch(List<T> beans) {
+        if (beans == null) {
+            throw new IllegalArgumentException("Can't construct BeanBatch of null list");
+        }
+        this.beans = beans;
+    }
+    
+    public static <T> BeanBatch<T> of(List<T> beans) {
+        return new BeanBatch<T>(beans);
+    }
+    
+    public static <T> BeanBatch<T> of(T[] beans) {
+        return new BeanBatch<T>(Arrays.asList(beans));
+    }
+    
+    public BeanBatch<T> withExtractionDepth(ExtractionDepth extractionDepth) {
+        this.extractionDepth = extractionDepth;
+        return this;
+    }
+    
+    public BeanBatch<T> withEngine(AccessorEngine engine) {
+        this.engine = engine;
+        return this;
+    }
+    
+    /**
+     * Sets the amount of beans processed sequentially by a single task.
+     */
+    public BeanBatch<T> withChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive, was "+chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+    
+    /**
+     * Runs each operation in a dedicated pool of given parallelism instead of the common pool.
+     */
+    public BeanBatch<T> withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive, was "+parallelism);
+        }
+        this.parallelism = parallelism;
+        this.pool = null;
+        return this;
+    }
+    
+    /**
+     * Runs each operation in given pool.
+     */
+    public BeanBatch<T> withPool(ForkJoinPool pool) {
+        this.pool = pool;
+        this.parallelism = 0;
+        return this;
+    }
+    
+    public int size() {
+        return beans.size();
+    }
+    
+    /**
+     * @return Results of given function for each bean, in the order of the beans.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> List<R> map(final Function<? super T, ? extends R> function) {
+        final Object[] results = new Object[beans.size()];
+        run(new ChunkOperation() {
+            void apply(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    results[i] = function.apply(beans.get(i));
+                }
+            }
+        });
+        return (List<R>) Collections.unmodifiableList(Arrays.asList(results));
+    }
+    
+    /**
+     * @return Values of the named property of each bean, in the order of the beans.
+     */
+    public List<Object> project(String propertyName) {
+        Object[][] rows = project(new String[] {propertyName});
+        List<Object> values = new ArrayList<Object>(rows.length);
+        for (Object[] row : rows) {
+            values.add(row[0]);
+        }
+        return values;
+    }
+    
+    /**
+     * @return One row for each bean with the values of the named properties in the given order.
+     */
+    public Object[][] project(final String... propertyNames) {
+        final Object[][] rows = new Object[beans.size()][];
+        run(new ChunkOperation() {
+            void apply(int from, int to) {
+                Resolver resolver = new Resolver(propertyNames);
+                for (int i = from; i < to; i++) {
+                    Object bean = beans.get(i);
+                    PropertyDescriptor[] descriptors = resolver.resolve(bean);
+                    Object[] row = new Object[descriptors.length];
+                    for (int p = 0; p < descriptors.length; p++) {
+                        row[p] = descriptors[p].access(bean);
+                    }
+                    rows[i] = row;
+                }
+            }
+        });
+        return rows;
+    }
+    
+    public BeanBatch<T> mutate(String propertyName, Object newValue) {
+        return mutate(Collections.singletonMap(propertyName, newValue));
+    }
+    
+    /**
+     * Mutates all given properties of every bean.
+     */
+    public BeanBatch<T> mutate(Map<String, ?> newProps) {
+        final String[] propertyNames = new String[newProps.size()];
+        final Object[] values = new Object[newProps.size()];
+        int p = 0;
+        for (Entry<String, ?> newProperty : newProps.entrySet()) {
+            propertyNames[p] = newProperty.getKey();
+            values[p++] = newProperty.getValue();
+        }
+        run(new ChunkOperation() {
+            void apply(int from, int to) {
+                Resolver resolver = new Resolver(propertyNames);
+                for (int i = from; i < to; i++) {
+                    Object bean = beans.get(i);
+                    PropertyDescriptor[] descriptors = resolver.resolve(bean);
+                    for (int p = 0; p < descriptors.length; p++) {
+                        descriptors[p].mutate(bean, values[p]);
+                    }
+                }
+            }
+        });
+        return this;
+    }
+    
+    public BeanBatch<T> forEach(final Consumer<? super T> consumer) {
+        run(new ChunkOperation() {
+            void apply(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    consumer.accept(beans.get(i));
+                }
+            }
+        });
+        return this;
+    }
+    
+    private void run(ChunkOperation operation) {
+        ChunkTask task = new ChunkTask(operation, 0, beans.size());
+        if (pool != null) {
+            pool.invoke(task);
+        } else if (parallelism > 0) {
+            ForkJoinPool dedicated = new ForkJoinPool(parallelism);
+            try {
+                dedicated.invoke(task);
+            } finally {
+                dedicated.shutdown();
+            }
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+    
+    private abstract static class ChunkOperation {
+        abstract void apply(int from, int to);
+    }
+    
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final ChunkOperation operation;
+        private final int from;
+        private final int to;
+        
+        ChunkTask(ChunkOperation operation, int from, int to) {
+            this.operation = operation;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                operation.apply(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(operation, from, middle), new ChunkTask(operation, middle, to));
+            }
+        }
+    }
+    
+    /**
+     * Resolves the descriptors of named properties, remembering them for the last seen class.
+     */
+    private class Resolver {
+        private final String[] propertyNames;
+        private final PropertyDescriptor[] descriptors;
+        private Class<?> resolvedClass;
+        
+        Resolver(String[] propertyNames) {
+            this.propertyNames = propertyNames;
+            this.descriptors = new PropertyDescriptor[propertyNames.length];
+        }
+        
+        PropertyDescriptor[] resolve(Object bean) {
+            Class<?> c = bean.getClass();
+            if (c != resolvedClass) {
+                ClassMetadata metadata = ClassMetadata.of(c, extractionDepth, engine);
+                for (int p = 0; p < propertyNames.length; p++) {
+                    descriptors[p] = metadata.getDescriptor(propertyNames[p]);
+                }
+                resolvedClass = c;
+            }
+            return descriptors;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+
+/**
+ * Precompiled plan for copying properties from beans of one class to beans of another.
+ * <p>
+ * The plan consists of every readable property of the source class which has a writable,
+ * type compatible property with the same name in the target class, as extracted through
+ * {@link ClassMetadata}. Primitive properties are copied without boxing. Plans are cached per
+ * class pair, extraction depth and engine, so {@link #between(Class, Class)} is cheap to call.
+ * 
+ * @author Esko
+ */
+public final class BeanCopier<S, T> {
+    
+    private static final int ENGINES = AccessorEngine.values().length;
+    
+    private static final ClassValue<ConcurrentMap<Class<?>, BeanCopier<?, ?>[]>> PLANS = 
+            new ClassValue<ConcurrentMap<Class<?>, BeanCopier<?, ?>[]>>() {
+        @Override
+        protected ConcurrentMap<Class<?>, BeanCopier<?, ?>[]> computeValue(Class<?> source) {
+            return new ConcurrentHashMap<Class<?>, BeanCopier<?, ?>[]>();
+        }
+    };
+    
+    private enum Kind { OBJECT, INT, LONG, DOUBLE, BOOLEAN }
+    
+    private final Class<S> sourceClass;
+    private final Class<T> targetClass;
+    private final PropertyDescriptor[] sources;
+    private final PropertyDescriptor[] targets;
+    private final Kind[] kinds;
+    private final boolean[] primitiveTargets;
+    private final List<String> propertyNames;
+    
+    private BeanCopier(Class<S> sourceClass, Class<T> targetClass, ExtractionDepth extractionDepth, AccessorEngine engine) {
+        this.sourceClass = sourceClass;
+        this.targetClass = targetClass;
+        
+        ClassMetadata targetMetadata = ClassMetadata.of(targetClass, extractionDepth, engine);
+        List<PropertyDescriptor> sourceList = new ArrayList<PropertyDescriptor>();
+        List<PropertyDescriptor> targetList = new ArrayList<PropertyDescriptor>();
+        List<String> names = new ArrayList<String>();
+        for (PropertyDescriptor source : ClassMetadata.of(sourceClass, extractionDepth, engine).getDescriptors()) {
+            int i = targetMetadata.indexOf(source.getPropertyName());
+            if (i < 0) {
+                continue;
+            }
+            PropertyDescriptor target = targetMetadata.getDescriptor(i);
+            if (!target.isReadOnly() && isCompatible(source.getType(), target.getMutator().getType())) {
+                sourceList.add(source);
+                targetList.add(target);
+                names.add(source.getPropertyName());
+            }
+        }
+        
+        this.sources = sourceList.toArray(new PropertyDescriptor[sourceList.size()]);
+        this.targets = targetList.toArray(new PropertyDescriptor[targetList.size()]);
+        this.kinds = new Kind[sources.length];
+        this.primitiveTargets = new boolean[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            Class<?> targetType = targets[i].getMutator().getType();
+            kinds[i] = kindOf(sources[i].getType(), targetType);
+            primitiveTargets[i] = targetType.isPrimitive();
+        }
+        this.propertyNames = Collections.unmodifiableList(names);
+    }
+    
+    public static <S, T> BeanCopier<S, T> between(Class<S> sourceClass, Class<T> targetClass) {
+        return between(sourceClass, targetClass, ExtractionDepth.METHODS, AccessorEngine.REFLECTION);
+    }
+    
+    public static <S, T> BeanCopier<S, T> between(Class<S> sourceClass, Class<T> targetClass, AccessorEngine engine) {
+        return between(sourceClass, targetClass, ExtractionDepth.METHODS, engine);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <S, T> BeanCopier<S, T> between(Class<S> sourceClass, Class<T> targetClass, 
+                                                  ExtractionDepth extractionDepth, AccessorEngine engine) {
+        ConcurrentMap<Class<?>, BeanCopier<?, ?>[]> plans = PLANS.get(sourceClass);
+        BeanCopier<?, ?>[] slots = plans.get(targetClass);
+        if (slots == null) {
+            slots = new BeanCopier<?, ?>[ExtractionDepth.values().length * ENGINES];
+            BeanCopier<?, ?>[] existing = plans.putIfAbsent(targetClass, slots);
+            if (existing != null) {
+                slots = existing;
+            }
+        }
+        int slot = extractionDepth.ordinal() * ENGINES + engine.ordinal();
+        BeanCopier<S, T> copier = (BeanCopier<S, T>) slots[slot];
+        if (copier == null) {
+            // racing threads may both build the plan, either result is equally valid
+            copier = new BeanCopier<S, T>(sourceClass, targetClass, extractionDepth, engine);
+            slots[slot] = copier;
+        }
+        return copier;
+    }
+    
+    /**
+     * Copies all planned properties from source to target.
+     * 
+     * @return The target bean.
+     */
+    public T copy(S source, T target) {
+        for (int i = 0; i < sources.length; i++) {
+            PropertyDescriptor from = sources[i];
+            PropertyDescriptor to = targets[i];
+            switch (kinds[i]) {
+                case INT:
+                    to.mutateInt(target, from.accessInt(source));
+                    break;
+                case LONG:
+                    to.mutateLong(target, from.accessLong(source));
+                    break;
+                case DOUBLE:
+                    to.mutateDouble(target, from.accessDouble(source));
+                    break;
+                case BOOLEAN:
+                    to.mutateBoolean(target, from.accessBoolean(source));
+                    break;
+                default:
+                    Object value = from.access(source);
+                    if (value != null || !primitiveTargets[i]) {
+                        to.mutate(target, value);
+                    }
+            }
+        }
+        return target;
+    }
+    
+    /**
+     * Copies each source bean to the target bean at the same position.
+     */
+    public void copy(List<? extends S> sources, List<? extends T> targets) {
+        if (sources.size() != targets.size()) {
+            throw new IllegalArgumentException("Can't copy "+sources.size()+" beans to "+targets.size()+" beans");
+        }
+        for (int i = 0; i < sources.size(); i++) {
+            copy(sources.get(i), targets.get(i));
+        }
+    }
+    
+    public void copy(S[] sources, T[] targets) {
+        if (sources.length != targets.length) {
+            throw new IllegalArgumentException("Can't copy "+sources.length+" beans to "+targets.length+" beans");
+        }
+        for (int i = 0; i < sources.length; i++) {
+            copy(sources[i], targets[i]);
+        }
+    }
+    
+    public Class<S> getSourceClass() {
+        return sourceClass;
+    }
+    
+    public Class<T> getTargetClass() {
+        return targetClass;
+    }
+    
+    /**
+     * @return Names of the properties this plan copies in copying order.
+     */
+    public List<String> getPropertyNames() {
+        return propertyNames;
+    }
+    
+    private static boolean isCompatible(Class<?> sourceType, Class<?> targetType) {
+        if (sourceType.isPrimitive() && targetType.isPrimitive()) {
+            return PrimitiveSupport.isWidening(sourceType, targetType);
+        }
+        return wrap(targetType).isAssignableFrom(wrap(sourceType));
+    }
+    
+    private static Kind kindOf(Class<?> sourceType, Class<?> targetType) {
+        if (!sourceType.isPrimitive() || !targetType.isPrimitive()) {
+            return Kind.OBJECT;
+        }
+        if (targetType == int.class) {
+            return Kind.INT;
+        } else if (targetType == long.class) {
+            return Kind.LONG;
+        } else if (targetType == double.class) {
+            return Kind.DOUBLE;
+        } else if (targetType == boolean.class) {
+            return Kind.BOOLEAN;
+        }
+        return Kind.OBJECT;
+    }
+    
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        } else if (type == char.class) {
+            return Character.class;
+        }
+        return Void.class;
+    }
+    
+    @Override
+    public String toString() {
+        return "BeanCopier :: "+sourceClass.getName()+" -> "+targetClass.getName()+" "+propertyNames;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+
+/**
+ * Live {@link Map} view over the properties of a bean.
+ * <p>
+ * The keys are the indexed properties of the bean's class as given by
+ * {@link ClassMetadata#getDescriptors()} and key lookups are case insensitive just like property
+ * names elsewhere. Nothing is copied, reads access the bean and writes mutate it directly. Keys can't
+ * be added or removed.
+ * <p>
+ * The view can be {@link #rebind(Object) rebound} to another bean of the same class, which makes
+ * it usable as a flyweight when converting a stream of beans.
+ * 
+ * @author Esko
+ */
+public class BeanMap extends AbstractMap<String, Object> {
+    
+    private final ClassMetadata metadata;
+    private Object bean;
+    private Set<Entry<String, Object>> entrySet;
+    
+    public BeanMap(ClassMetadata metadata, Object bean) {
+        if (metadata == null) {
+            throw new IllegalArgumentException("Can't construct BeanMap with null metadata");
+        }
+        this.metadata = metadata;
+        rebind(bean);
+    }
+    
+    public static BeanMap of(Object bean) {
+        return of(bean, ExtractionDepth.METHODS);
+    }
+    public static BeanMap of(Object bean, ExtractionDepth extractionDepth) {
+        return of(bean, extractionDepth, AccessorEngine.REFLECTION);
+    }
+    public static BeanMap of(Object bean, ExtractionDepth extractionDepth, AccessorEngine engine) {
+        if (bean == null) {
+            throw new IllegalArgumentException("Can't construct BeanMap with null bean");
+        }
+        return new BeanMap(ClassMetadata.of(bean.getClass(), extractionDepth, engine), bean);
+    }
+    
+    /**
+     * Points this view to another bean of the same class.
+     * 
+     * @return This view.
+     */
+    public BeanMap rebind(Object bean) {
+        if (bean == null) {
+            throw new IllegalArgumentException("Can't bind BeanMap to null bean");
+        }
+        if (bean.getClass() != metadata.getType()) {
+            throw new IllegalArgumentException("BeanMap of "+metadata.getType().getName()
+                                              +" can't be bound to "+bean.getClass().getName());
+        }
+        this.bean = bean;
+        return this;
+    }
+    
+    public Object getBean() {
+        return bean;
+    }
+    
+    public ClassMetadata getMetadata() {
+        return metadata;
+    }
+    
+    @Override
+    public int size() {
+        return metadata.getPropertyCount();
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return (key instanceof String) && metadata.indexOf((String) key) >= 0;
+    }
+    
+    @Override
+    public Object get(Object key) {
+        int i = (key instanceof String) ? metadata.indexOf((String) key) : -1;
+        return (i >= 0) ? metadata.getDescriptor(i).access(bean) : null;
+    }
+    
+    @Override
+    public Object put(String key, Object value) {
+        PropertyDescriptor descriptor = writableDescriptor(key);
+        Object previous = descriptor.access(bean);
+        descriptor.mutate(bean, value);
+        return previous;
+    }
+    
+    /**
+     * Mutates all given properties without reading their previous values.
+     */
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> values) {
+        for (Entry<? extends String, ? extends Object> value : values.entrySet()) {
+            writableDescriptor(value.getKey()).mutate(bean, value.getValue());
+        }
+    }
+    
+    @Override
+    public Object remove(Object key) {
+        throw new UnsupportedOperationException("Properties can't be removed from a bean");
+    }
+    
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Properties can't be removed from a bean");
+    }
+    
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+    
+    private PropertyDescriptor writableDescriptor(String key) {
+        int i = metadata.indexOf(key);
+        if (i < 0) {
+            throw new NonexistentPropertyException(key, metadata.getType());
+        }
+        PropertyDescriptor descriptor = metadata.getDescriptor(i);
+        if (descriptor.isReadOnly()) {
+            throw new UnsupportedOperationException("Property '"+key+"' is read only");
+        }
+        return descriptor;
+    }
+    
+    private class EntrySet extends AbstractSet<Entry<String, Object>> {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new Iterator<Entry<String, Object>>() {
+                private int next = 0;
+                
+                public boolean hasNext() {
+                    return next < metadata.getPropertyCount();
+                }
+                
+                public Entry<String, Object> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return new PropertyEntry(metadata.getDescriptor(next++));
+                }
+                
+                public void remove() {
+                    throw new UnsupportedOperationException("Properties can't be removed from a bean");
+                }
+            };
+        }
+        
+        @Override
+        public int size() {
+            return metadata.getPropertyCount();
+        }
+    }
+    
+    private class PropertyEntry implements Entry<String, Object> {
+        private final PropertyDescriptor descriptor;
+        
+        PropertyEntry(PropertyDescriptor descriptor) {
+            this.descriptor = descriptor;
+        }
+        
+        public String getKey() {
+            return descriptor.getPropertyName();
+        }
+        
+        public Object getValue() {
+            return descriptor.access(bean);
+        }
+        
+        public Object setValue(Object value) {
+            if (descriptor.isReadOnly()) {
+                throw new UnsupportedOperationException("Property '"+descriptor.getPropertyName()+"' is read only");
+            }
+            Object previous = descriptor.access(bean);
+            descriptor.mutate(bean, value);
+            return previous;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            Object value = getValue();
+            return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+        
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+        
+        @Override
+        public String toString() {
+            return getKey()+"="+getValue();
+        }
+    }
+}
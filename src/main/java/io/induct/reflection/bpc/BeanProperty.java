@@ -65,6 +65,38 @@ public class BeanProperty<T> implements IBeanProperty<T> {
         mutator.mutate(object, newValue);
     }
 
+    public int getIntValue() {
+        return PrimitiveSupport.accessInt(accessor, object);
+    }
+
+    public long getLongValue() {
+        return PrimitiveSupport.accessLong(accessor, object);
+    }
+
+    public double getDoubleValue() {
+        return PrimitiveSupport.accessDouble(accessor, object);
+    }
+
+    public boolean getBooleanValue() {
+        return PrimitiveSupport.accessBoolean(accessor, object);
+    }
+
+    public void setIntValue(int newValue) {
+        PrimitiveSupport.mutateInt((IMutator<Object>) mutator, object, newValue);
+    }
+
+    public void setLongValue(long newValue) {
+        PrimitiveSupport.mutateLong((IMutator<Object>) mutator, object, newValue);
+    }
+
+    public void setDoubleValue(double newValue) {
+        PrimitiveSupport.mutateDouble((IMutator<Object>) mutator, object, newValue);
+    }
+
+    public void setBooleanValue(boolean newValue) {
+        PrimitiveSupport.mutateBoolean((IMutator<Object>) mutator, object, newValue);
+    }
+
     public String getPropertyName() {
         return propertyName;
     }
@@ -24,18 +24,29 @@
 package io.induct.reflection.bpc;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
-import io.induct.reflection.bpc.extraction.PropertyExtractor;
+import io.induct.reflection.bpc.codec.BeanCodec;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+import io.induct.reflection.bpc.extraction.PropertyGraph;
+import io.induct.reflection.bpc.extraction.PropertyNameIndex;
 import io.induct.reflection.bpc.instantiation.ClassInstantiator;
 import io.induct.reflection.bpc.instantiation.ClassInstantiator.InstantiationPolicy;
+import io.induct.reflection.bpc.metrics.IMetricsCollector;
+import io.induct.reflection.bpc.metrics.Metrics;
+import io.induct.reflection.bpc.metrics.IMetricsCollector.Cache;
 
 /**
  * Reflection based class for semi-automatic mutation and access of Java Beans.
@@ -53,7 +64,11 @@ import io.induct.reflection.bpc.instantiation.ClassInstantiator.InstantiationPol
  * property accessor/mutator to increase initial performance and to decrease memory footprint.
  * This rule is followed in every single API call except {@link #getPropertyNames()} which
  * automatically loads everything at once.
- * 
+ * <p>
+ * Extracted accessors and mutators are object independent and shared process wide through
+ * {@link io.induct.reflection.bpc.extraction.ClassMetadata}, each controller only binds them to
+ * the object it controls.
+ *
  * @author Esko
  */
 public class BeanPropertyController implements Serializable {
@@ -83,6 +98,30 @@ public class BeanPropertyController implements Serializable {
         QUESTIMATE
     }
     
+    /**
+     * Determines how the extracted accessors and mutators invoke the underlying methods and fields.
+     * 
+     * @author Esko
+     */
+    public static enum AccessorEngine {
+        /**
+         * Invoke through {@link java.lang.reflect.Method#invoke(Object, Object...)} and
+         * {@link java.lang.reflect.Field}, this is the default engine.
+         */
+        REFLECTION,
+        /**
+         * Invoke through {@link java.lang.invoke.MethodHandle}s which the JIT is able to inline
+         * into the caller. Falls back to reflection for members which can't be unreflected.
+         */
+        METHOD_HANDLES,
+        /**
+         * Generate a dispatcher class for each controlled class on first use, which accesses and
+         * mutates all public properties with direct calls selected by property index. Properties
+         * the dispatcher can't reach are handled as with {@link #METHOD_HANDLES}.
+         */
+        GENERATED
+    }
+    
     private static final long serialVersionUID = 1L;
     
     /**
@@ -94,20 +133,23 @@ public class BeanPropertyController implements Serializable {
      */
     public static final int DEFAULT_STEPS = -1;
     
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+    
     private transient Object object;
     private Serializable serializableObject;
-    private final transient Map<String, IBeanProperty> properties;
+    private final transient Map<String, PropertyHandle> properties;
     private final ExtractionDepth extractionDepth;
+    private final AccessorEngine engine;
     private final int steps;
-    private transient PropertyExtractor extractor;
     private ClassInstantiator instantiatior; //TODO: Finalize?
+    private transient BeanMap map;
 
-    private BeanPropertyController(Object object, ExtractionDepth extractionDepth, int stepping) {
+    private BeanPropertyController(Object object, ExtractionDepth extractionDepth, int stepping, AccessorEngine engine) {
         setObject(object);
         this.extractionDepth = extractionDepth;
+        this.engine = engine;
         this.steps = stepping;
-        properties = new ConcurrentHashMap<String, IBeanProperty>();
-        extractor = new PropertyExtractor(extractionDepth);
+        properties = new ConcurrentHashMap<String, PropertyHandle>();
     }
     
     public static BeanPropertyController of(Object object) {
@@ -120,7 +162,13 @@ public class BeanPropertyController implements Serializable {
         return of(object, extractionDepth, DEFAULT_STEPS);
     }
     public static BeanPropertyController of(Object object, ExtractionDepth extractionDepth, int steps) {
-        return new BeanPropertyController(object, extractionDepth, steps);
+        return of(object, extractionDepth, steps, AccessorEngine.REFLECTION);
+    }    
+    public static BeanPropertyController of(Object object, AccessorEngine engine) {
+        return of(object, ExtractionDepth.METHODS, DEFAULT_STEPS, engine);
+    }
+    public static BeanPropertyController of(Object object, ExtractionDepth extractionDepth, int steps, AccessorEngine engine) {
+        return new BeanPropertyController(object, extractionDepth, steps, engine);
     }    
     public static BeanPropertyController of(Class<?> c) {
         return of(c, ExtractionDepth.METHODS, DEFAULT_STEPS, InstantiationPolicy.NO_ARGS);
@@ -144,8 +192,24 @@ public class BeanPropertyController implements Serializable {
         return of(c, extractionDepth, DEFAULT_STEPS, policy);
     }    
     public static BeanPropertyController of(Class<?> c, ExtractionDepth extractionDepth, int steps, InstantiationPolicy policy) {
-        ClassInstantiator instantiator = new ClassInstantiator(c, policy);
-        BeanPropertyController bpc = new BeanPropertyController(instantiator.instantiate(), extractionDepth, steps);
+        return of(c, extractionDepth, steps, policy, AccessorEngine.REFLECTION);
+    }
+    public static BeanPropertyController of(Class<?> c, AccessorEngine engine) {
+        return of(c, ExtractionDepth.METHODS, DEFAULT_STEPS, InstantiationPolicy.NO_ARGS, engine);
+    }
+    public static BeanPropertyController of(Class<?> c, ExtractionDepth extractionDepth, int steps, InstantiationPolicy policy, AccessorEngine engine) {
+        return of(new ClassInstantiator(c, policy), extractionDepth, steps, engine);
+    }
+    /**
+     * Controls objects created by given instantiator, for example a
+     * {@link io.induct.reflection.bpc.instantiation.PooledInstantiator} when producing large
+     * amounts of beans with {@link #recycle()} or {@link #produce(int, Consumer)}.
+     */
+    public static BeanPropertyController of(ClassInstantiator instantiator) {
+        return of(instantiator, ExtractionDepth.METHODS, DEFAULT_STEPS, AccessorEngine.REFLECTION);
+    }
+    public static BeanPropertyController of(ClassInstantiator instantiator, ExtractionDepth extractionDepth, int steps, AccessorEngine engine) {
+        BeanPropertyController bpc = new BeanPropertyController(instantiator.instantiate(), extractionDepth, steps, engine);
         bpc.instantiatior = instantiator;
         return bpc;
     }
@@ -159,35 +223,213 @@ public class BeanPropertyController implements Serializable {
     }
 
     public Object access(String propertyName) {
-        return getPropertyByName(propertyName).getValue();
+        return get(getPropertyByName(propertyName));
     }
     
     public BeanPropertyController mutate(String propertyName, Object newValue) {
-        getPropertyByName(propertyName).setValue(newValue);
+        return set(getPropertyByName(propertyName), newValue);
+    }
+
+    /*
+     * Primitive variants of access and mutate don't box the value as long as the accessors and
+     * mutators of the property support it, see IPrimitiveAccessor and IPrimitiveMutator.
+     */
+    
+    public int accessInt(String propertyName) {
+        return getInt(getPropertyByName(propertyName));
+    }
+    
+    public long accessLong(String propertyName) {
+        return getLong(getPropertyByName(propertyName));
+    }
+    
+    public double accessDouble(String propertyName) {
+        return getDouble(getPropertyByName(propertyName));
+    }
+    
+    public boolean accessBoolean(String propertyName) {
+        return getBoolean(getPropertyByName(propertyName));
+    }
+    
+    public BeanPropertyController mutateInt(String propertyName, int newValue) {
+        return setInt(getPropertyByName(propertyName), newValue);
+    }
+    
+    public BeanPropertyController mutateLong(String propertyName, long newValue) {
+        return setLong(getPropertyByName(propertyName), newValue);
+    }
+    
+    public BeanPropertyController mutateDouble(String propertyName, double newValue) {
+        return setDouble(getPropertyByName(propertyName), newValue);
+    }
+    
+    public BeanPropertyController mutateBoolean(String propertyName, boolean newValue) {
+        return setBoolean(getPropertyByName(propertyName), newValue);
+    }
+
+    /**
+     * Resolves given property once so that it can be repeatedly accessed and mutated with
+     * {@link #get(PropertyHandle)} and {@link #set(PropertyHandle, Object)} without name lookups.
+     */
+    public PropertyHandle handle(String propertyName) {
+        return getPropertyByName(propertyName);
+    }
+    
+    public Object get(PropertyHandle handle) {
+        long start = startTiming();
+        Object value = handle.access(getObject());
+        accessed(start);
+        return value;
+    }
+    
+    public BeanPropertyController set(PropertyHandle handle, Object newValue) {
+        long start = startTiming();
+        handle.mutate(getObject(), newValue);
+        mutated(start);
+        return this;
+    }
+    
+    public int getInt(PropertyHandle handle) {
+        long start = startTiming();
+        int value = handle.accessInt(getObject());
+        accessed(start);
+        return value;
+    }
+    
+    public long getLong(PropertyHandle handle) {
+        long start = startTiming();
+        long value = handle.accessLong(getObject());
+        accessed(start);
+        return value;
+    }
+    
+    public double getDouble(PropertyHandle handle) {
+        long start = startTiming();
+        double value = handle.accessDouble(getObject());
+        accessed(start);
+        return value;
+    }
+    
+    public boolean getBoolean(PropertyHandle handle) {
+        long start = startTiming();
+        boolean value = handle.accessBoolean(getObject());
+        accessed(start);
+        return value;
+    }
+    
+    public BeanPropertyController setInt(PropertyHandle handle, int newValue) {
+        long start = startTiming();
+        handle.mutateInt(getObject(), newValue);
+        mutated(start);
+        return this;
+    }
+    
+    public BeanPropertyController setLong(PropertyHandle handle, long newValue) {
+        long start = startTiming();
+        handle.mutateLong(getObject(), newValue);
+        mutated(start);
         return this;
     }
+    
+    public BeanPropertyController setDouble(PropertyHandle handle, double newValue) {
+        long start = startTiming();
+        handle.mutateDouble(getObject(), newValue);
+        mutated(start);
+        return this;
+    }
+    
+    public BeanPropertyController setBoolean(PropertyHandle handle, boolean newValue) {
+        long start = startTiming();
+        handle.mutateBoolean(getObject(), newValue);
+        mutated(start);
+        return this;
+    }
+    
+    /**
+     * @return Start time of a call timed for metrics, or {@link #NOT_TIMED} if metrics are disabled.
+     */
+    private static long startTiming() {
+        return Metrics.getCollector().isEnabled() ? System.nanoTime() : NOT_TIMED;
+    }
+    
+    private static void accessed(long start) {
+        if (start != NOT_TIMED) {
+            Metrics.getCollector().propertyAccessed(System.nanoTime() - start);
+        }
+    }
+    
+    private static void mutated(long start) {
+        if (start != NOT_TIMED) {
+            Metrics.getCollector().propertyMutated(System.nanoTime() - start);
+        }
+    }
 
     public BeanPropertyController mutate(Map<String, Object> newProps) {
-        for (Entry<String, Object> newProperty : newProps.entrySet()) {
-            mutate(newProperty.getKey(), newProperty.getValue());
+        return populate(newProps);
+    }
+    
+    /**
+     * Mutates all given properties. Names of the indexed properties of the controlled class are
+     * resolved straight from the class index, anything else (such as nested properties) is
+     * resolved as with {@link #mutate(String, Object)}.
+     */
+    public BeanPropertyController populate(Map<String, ?> newProps) {
+        Object root = getObject();
+        ClassMetadata metadata = ClassMetadata.of(root.getClass(), extractionDepth, engine);
+        for (Entry<String, ?> newProperty : newProps.entrySet()) {
+            int i = metadata.indexOf(newProperty.getKey());
+            if (i >= 0 && !metadata.getDescriptor(i).isReadOnly()) {
+                metadata.getDescriptor(i).mutate(root, newProperty.getValue());
+            } else {
+                mutate(newProperty.getKey(), newProperty.getValue());
+            }
         }
         return this;
     }
+    
+    /**
+     * Returns a live map view over the indexed properties of the controlled object. The view
+     * follows the controller to new objects on {@link #recycle()}.
+     */
+    public BeanMap asMap() {
+        if (map == null) {
+            Object root = getObject();
+            map = new BeanMap(ClassMetadata.of(root.getClass(), extractionDepth, engine), root);
+        }
+        return map;
+    }
+
+    /**
+     * Encodes the controlled object with its class's {@link BeanCodec}, which is a lot more compact
+     * and faster than serializing the whole controller.
+     */
+    public byte[] encode() {
+        Object root = getObject();
+        return BeanCodec.of(root.getClass(), extractionDepth, engine).encodeObject(root);
+    }
+    
+    /**
+     * Replaces the controlled object with one decoded from bytes produced by {@link #encode()}.
+     */
+    public BeanPropertyController decode(byte[] bytes) {
+        setObject(BeanCodec.of(getObject().getClass(), extractionDepth, engine).decode(bytes));
+        return this;
+    }
 
     /**
      * Convenience method for getting type of property's value. Note that generic methods
      * always return Object as their type because of type erasure. 
      */
     public Class<?> typeOf(String propertyName) {
-        return getPropertyByName(propertyName).getType();
+        return getPropertyByName(propertyName).describe(getObject()).getType();
     }
 
     public boolean isArray(String propertyName) {
-        return getPropertyByName(propertyName).isArray();
+        return getPropertyByName(propertyName).describe(getObject()).isArray();
     }
     
     public boolean isReadOnly(String propertyName) {
-        return getPropertyByName(propertyName).isReadOnly();
+        return getPropertyByName(propertyName).describe(getObject()).isReadOnly();
     }
 
     public String[] getPropertyNames() {
@@ -195,59 +437,55 @@ public class BeanPropertyController implements Serializable {
     }
     
     public String[] getPropertyNames(int steps) {
-        return getPropertyNames("", steps, getObject());
+        IMetricsCollector metrics = Metrics.getCollector();
+        if (!metrics.isEnabled()) {
+            return getPropertyNames("", steps, getObject());
+        }
+        long start = System.nanoTime();
+        String[] propertyNames = getPropertyNames("", steps, getObject());
+        metrics.propertyNamesScanned(getObject().getClass(), System.nanoTime() - start);
+        return propertyNames;
+    }
+
+    /**
+     * Returns the names of the properties of the controlled object without any stepping. The list
+     * is shared by all controllers of the same class and extraction depth.
+     */
+    public List<String> getPropertyNameList() {
+        return PropertyNameIndex.of(getObject().getClass(), extractionDepth).getNames();
+    }
+
+    /**
+     * Returns dotted paths of all properties reachable from the controlled object's class within
+     * the controller's stepping, enumerated from declared property types instead of live values.
+     * 
+     * @see PropertyGraph
+     */
+    public List<String> getPropertyPaths() {
+        return getPropertyPaths(steps);
+    }
+    
+    public List<String> getPropertyPaths(int steps) {
+        return PropertyGraph.of(getObject().getClass(), extractionDepth, steps).getPaths();
     }
 
     private String[] getPropertyNames(String basePathName, int steps, Object root) {
-        Map<Method, Boolean> potentialMutators = new HashMap<Method, Boolean>();
-        Map<Method, Boolean> potentialAccessors = new HashMap<Method, Boolean>();
-        Set<Field> potentialFields = new HashSet<Field>();
-        
-        Set<String> propertyNames = new HashSet<String>();
-        
-        for (Method m : root.getClass().getMethods()) {
-            if (isMutatorMethod(m)) {
-                potentialMutators.put(m, true);
-            }
-            if (isAccessorMethod(m)) {
-                potentialAccessors.put(m, true);
-            }
+        PropertyNameIndex index = PropertyNameIndex.of(root.getClass(), extractionDepth);
+        if (steps <= 0 && basePathName.length() == 0) {
+            return index.toArray();
         }
         
-        for (Entry<Method, Boolean> mutator : potentialMutators.entrySet()) {
-            String baseName = extractAccessorName(mutator.getKey());
-            
-            for (Entry<Method, Boolean> accessor : potentialAccessors.entrySet()) {
-                if (accessor.getValue()) {
-                    if (isAccessorProperty(accessor.getKey(), baseName)) {
-                        propertyNames.add(basePathName + baseName);
-                        accessor.setValue(false);
-                    }    
-                }                
-            }
-        }
-
-        if (extractionDepth.compareTo(ExtractionDepth.FIELDS) >= 0) {
-            for (Field f : root.getClass().getFields()) {
-                potentialFields.add(f);
-            }
-        }
-        if (extractionDepth.compareTo(ExtractionDepth.QUESTIMATE) >= 0) {
-            for (Field f : root.getClass().getDeclaredFields()) {
-                if (!potentialFields.contains(f)) {
-                    potentialFields.add(f);    
-                }                
-            }
-        }
-        for (Field f : potentialFields) {
-            propertyNames.add(basePathName + f.getName());
+        Set<String> propertyNames = new HashSet<String>();
+        for (String name : index.getNames()) {
+            propertyNames.add(basePathName + name);
         }
         
         if (steps > 0) {
-            for (String prop : propertyNames) {
-                extractProperty(prop);
-                if (access(prop) != null && !access(prop).getClass().isPrimitive()) {
-                    for (String stepProperty : getPropertyNames(prop + ".", --steps, access(prop))) {
+            ClassMetadata metadata = ClassMetadata.of(root.getClass(), extractionDepth, engine);
+            for (String name : index.getNames()) {
+                Object value = metadata.getDescriptor(name).access(root);
+                if (value != null) {
+                    for (String stepProperty : getPropertyNames(basePathName + name + ".", steps - 1, value)) {
                         propertyNames.add(stepProperty);
                     }
                 }
@@ -257,85 +495,160 @@ public class BeanPropertyController implements Serializable {
         return propertyNames.toArray(new String[propertyNames.size()]);
     }
 
-    private String extractAccessorName(Method mutator) {
-        String accessorBaseName = mutator.getName().substring(3);
-        return accessorBaseName.substring(0, 1).toLowerCase() + accessorBaseName.substring(1);
+    private PropertyHandle getPropertyByName(String propertyName) {
+        PropertyHandle property = properties.get(propertyName);
+        if (property != null) {
+            Metrics.getCollector().cacheHit(Cache.CONTROLLER);
+        } else {
+            Metrics.getCollector().cacheMiss(Cache.CONTROLLER);
+            property = extractProperty(propertyName);
+            properties.put(propertyName, property);
+        }
+        return property;
     }
 
-    private boolean isAccessorMethod(Method m) {
-        return (m.getName().startsWith("get") || m.getName().startsWith("is")) && m.getParameterTypes().length == 0;
+    /*
+     * Properties are cached as object independent handles, so replacing the controlled object
+     * doesn't require touching them.
+     */
+    private PropertyHandle extractProperty(String propertyName) {
+        Object root = getObject();
+        PropertyPath path = PropertyPath.compile(propertyName, extractionDepth, steps, engine);
+        if (path.length() == 1) {
+            PropertyDescriptor descriptor = ClassMetadata.of(root.getClass(), extractionDepth, engine)
+                                                         .getDescriptor(path.getSegment(0));
+            return new PropertyHandle(propertyName, root.getClass(), descriptor);
+        }
+        // resolve eagerly so that missing properties are reported on first use as before
+        path.resolve(root);
+        return new PropertyHandle(propertyName, root.getClass(), path);
     }
 
-    private boolean isMutatorMethod(Method m) {
-        return m.getName().startsWith("set") && m.getParameterTypes().length == 1;
-    }
+    public void recycle() {
+        setObject(instantiatior.instantiate());
+    }    
 
-    private boolean isAccessorProperty(Method method, String baseName) {
-        return isExpectedProperty(method, baseName, "get", "is");
-    }
-    
-    private boolean isExpectedProperty(Method method, String propertyBaseName, String... prefixes) {
-        String methodName = method.getName();
-        
-        boolean isExpected = false;
-        for (String prefix : prefixes) {
-            if (methodName.equalsIgnoreCase(prefix + propertyBaseName)) {
-                isExpected = true;
-                break;
-            }
+    /**
+     * Uses this controller as an object factory: the consumer is called <code>count</code> times
+     * and the controller is {@link #recycle() recycled} after each call, so the consumer should
+     * populate the current object and take it with {@link #getObject()}.
+     */
+    public BeanPropertyController produce(int count, Consumer<? super BeanPropertyController> consumer) {
+        for (int i = 0; i < count; i++) {
+            consumer.accept(this);
+            recycle();
         }
-        return isExpected;
+        return this;
     }
 
-    private IBeanProperty getPropertyByName(String propertyName) {
-        if (!properties.containsKey(propertyName)) {
-            properties.put(propertyName, extractProperty(propertyName));
-        }
-        return properties.get(propertyName);
+    /**
+     * Resolves all properties of given classes into the shared metadata cache so that the first
+     * controllers of those classes don't pay for extraction, see
+     * {@link #warmUp(Collection, ExtractionDepth, int, int, AccessorEngine)}.
+     */
+    public static void warmUp(Collection<? extends Class<?>> classes, ExtractionDepth extractionDepth) {
+        warmUp(classes, extractionDepth, 1, 0, AccessorEngine.REFLECTION);
     }
-
-    private IBeanProperty<?> extractProperty(String propertyName) {
-        
-        String[] propertyPath = (steps < 0) ? propertyName.split("\\.")
-                                            : propertyName.split("\\.", steps + 1) ;
-
-        IBeanProperty<?> lastBeanProperty = null;
-        Object extracted = getObject();
-        
-        for (String pathPart : propertyPath) {
-            String trimmedPathPart = pathPart.trim();
-            if (trimmedPathPart.length() > 0) {
-                lastBeanProperty = getExtractor().extractProperty(trimmedPathPart, extracted);
-                extracted = lastBeanProperty.getValue();
-            }            
-        }
-        return lastBeanProperty;
+    
+    public static void warmUp(Collection<? extends Class<?>> classes, ExtractionDepth extractionDepth, int steps, int iterations) {
+        warmUp(classes, extractionDepth, steps, iterations, AccessorEngine.REFLECTION);
     }
     
-    private PropertyExtractor getExtractor() {
-        // TODO: Figure out if this lazyload is redundant.
-        if (extractor == null) {
-            extractor = new PropertyExtractor(extractionDepth);
+    /**
+     * Resolves all properties of given classes into the shared metadata cache, in parallel across
+     * classes, and returns once every class is done.
+     * 
+     * @param steps How many levels of properties are resolved; 1 resolves only the properties of
+     *        the classes themselves, 2 also the properties of the beans they contain and so on, -1
+     *        for no limit.
+     * @param iterations How many times the accessors and mutators of each class are exercised on a
+     *        throwaway instance so that they get compiled before real use, 0 to only resolve them.
+     * @throws IllegalStateException If the calling thread is interrupted while waiting for the
+     *         classes, in which case some of them may not have been warmed up.
+     */
+    public static void warmUp(Collection<? extends Class<?>> classes, final ExtractionDepth extractionDepth, 
+                              final int steps, final int iterations, final AccessorEngine engine) {
+        List<Future<Void>> tasks = new ArrayList<Future<Void>>();
+        for (final Class<?> c : classes) {
+            tasks.add(ForkJoinPool.commonPool().submit(new Callable<Void>() {
+                public Void call() {
+                    warmUp(c, extractionDepth, steps, iterations, engine);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<Void> task : tasks) {
+                task.cancel(false);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while warming up", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Couldn't warm up bean classes", cause);
         }
-        return extractor;
     }
-
-    public void recycle() {
-        Object newObject = instantiatior.instantiate();
+    
+    private static void warmUp(Class<?> c, ExtractionDepth extractionDepth, int steps, int iterations, AccessorEngine engine) {
+        ClassMetadata metadata = ClassMetadata.of(c, extractionDepth, engine);
+        List<PropertyDescriptor> descriptors = metadata.getDescriptors();
+        PropertyNameIndex.of(c, extractionDepth);
         
-        resetPropertyObjects(newObject);
+        if (steps < 0 || steps > 1) {
+            // the graph counts the steps taken into nested beans, not the levels of properties
+            int maxSteps = (steps < 0) ? steps : steps - 1;
+            for (String path : PropertyGraph.of(c, extractionDepth, maxSteps).getPaths()) {
+                Class<?> type = c;
+                for (String segment : path.split("\\.")) {
+                    type = ClassMetadata.of(type, extractionDepth, engine).getDescriptor(segment).getType();
+                }
+            }
+        }
         
-        setObject(newObject);
-    }    
-
-    private void resetPropertyObjects(Object newObject) {
-        for (Entry<String, IBeanProperty> beanProperty : properties.entrySet()) {
-            beanProperty.getValue().setObject(newObject);
+        if (iterations <= 0 || descriptors.isEmpty()) {
+            return;
+        }
+        Object bean;
+        try {
+            bean = new ClassInstantiator(c, InstantiationPolicy.NICE).instantiate();
+        } catch (RuntimeException e) {
+            // nothing to exercise the properties with
+            return;
+        }
+        boolean[] broken = new boolean[descriptors.size()];
+        for (int i = 0; i < iterations; i++) {
+            for (int j = 0; j < broken.length; j++) {
+                if (broken[j]) {
+                    continue;
+                }
+                PropertyDescriptor descriptor = descriptors.get(j);
+                try {
+                    Object value = descriptor.access(bean);
+                    if (!descriptor.isReadOnly()) {
+                        descriptor.mutate(bean, value);
+                    }
+                } catch (RuntimeException e) {
+                    // properties which can't be exercised on a blank bean are only resolved
+                    broken[j] = true;
+                }
+            }
         }
     }
 
     private void setObject(Object newObject) {
         this.object = (newObject instanceof Serializable) ? null : newObject;
         this.serializableObject = (Serializable) ((newObject instanceof Serializable) ? newObject : null);    
+        if (map != null) {
+            map.rebind(newObject);
+        }
     }
 }
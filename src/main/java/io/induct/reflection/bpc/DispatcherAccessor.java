@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+/**
+ * Accessor which reads the property through the {@link PropertyDispatcher} of its class.
+ */
+public class DispatcherAccessor<T> implements IAccessor<T>, IPrimitiveAccessor {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient PropertyDispatcher dispatcher;
+    private final int propertyIndex;
+    private final Class<?> returnType;
+    private final boolean asInt;
+    private final boolean asLong;
+    private final boolean asDouble;
+    private final boolean asBoolean;
+
+    public DispatcherAccessor(PropertyDispatcher dispatcher, int propertyIndex, Class<?> returnType) {
+        this.dispatcher = dispatcher;
+        this.propertyIndex = propertyIndex;
+        this.returnType = returnType;
+        this.asInt = PrimitiveSupport.isWidening(returnType, int.class);
+        this.asLong = PrimitiveSupport.isWidening(returnType, long.class);
+        this.asDouble = PrimitiveSupport.isWidening(returnType, double.class);
+        this.asBoolean = returnType.equals(boolean.class);
+    }
+
+    public T access(Object object) {
+        return (T) dispatcher.get(object, propertyIndex);
+    }
+
+    public int accessInt(Object object) {
+        if (asInt) {
+            return dispatcher.getInt(object, propertyIndex);
+        }
+        return PrimitiveSupport.toInt(access(object));
+    }
+
+    public long accessLong(Object object) {
+        if (asLong) {
+            return dispatcher.getLong(object, propertyIndex);
+        }
+        return PrimitiveSupport.toLong(access(object));
+    }
+
+    public double accessDouble(Object object) {
+        if (asDouble) {
+            return dispatcher.getDouble(object, propertyIndex);
+        }
+        return PrimitiveSupport.toDouble(access(object));
+    }
+
+    public boolean accessBoolean(Object object) {
+        if (asBoolean) {
+            return dispatcher.getBoolean(object, propertyIndex);
+        }
+        return PrimitiveSupport.toBoolean(access(object));
+    }
+
+    public Class<?> getReturnType() {
+        return returnType;
+    }
+
+    @Override
+    public String toString() {
+        return "Dispatcher accessor";
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+/**
+ * Mutator which writes the property through the {@link PropertyDispatcher} of its class.
+ */
+public class DispatcherMutator<T> implements IMutator<T>, IPrimitiveMutator {
+
+    private final PropertyDispatcher dispatcher;
+    private final int propertyIndex;
+    private final Class<?> type;
+    private final boolean fromInt;
+    private final boolean fromLong;
+    private final boolean fromDouble;
+    private final boolean fromBoolean;
+
+    public DispatcherMutator(PropertyDispatcher dispatcher, int propertyIndex, Class<?> type) {
+        this.dispatcher = dispatcher;
+        this.propertyIndex = propertyIndex;
+        this.type = type;
+        this.fromInt = PrimitiveSupport.isWidening(int.class, type);
+        this.fromLong = PrimitiveSupport.isWidening(long.class, type);
+        this.fromDouble = type.equals(double.class);
+        this.fromBoolean = type.equals(boolean.class);
+    }
+
+    public void mutate(Object object, T newValue) {
+        dispatcher.set(object, propertyIndex, newValue);
+    }
+
+    public void mutateInt(Object object, int newValue) {
+        if (fromInt) {
+            dispatcher.setInt(object, propertyIndex, newValue);
+        } else {
+            mutate(object, (T) Integer.valueOf(newValue));
+        }
+    }
+
+    public void mutateLong(Object object, long newValue) {
+        if (fromLong) {
+            dispatcher.setLong(object, propertyIndex, newValue);
+        } else {
+            mutate(object, (T) Long.valueOf(newValue));
+        }
+    }
+
+    public void mutateDouble(Object object, double newValue) {
+        if (fromDouble) {
+            dispatcher.setDouble(object, propertyIndex, newValue);
+        } else {
+            mutate(object, (T) Double.valueOf(newValue));
+        }
+    }
+
+    public void mutateBoolean(Object object, boolean newValue) {
+        if (fromBoolean) {
+            dispatcher.setBoolean(object, propertyIndex, newValue);
+        } else {
+            mutate(object, (T) Boolean.valueOf(newValue));
+        }
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "Dispatcher mutator";
+    }
+
+}
@@ -25,7 +25,7 @@ package io.induct.reflection.bpc;
 
 import java.lang.reflect.Field;
 
-public class FieldAccessMutateControl<T> implements IMutator<T>, IAccessor<T> {
+public class FieldAccessMutateControl<T> implements IMutator<T>, IAccessor<T>, IPrimitiveAccessor, IPrimitiveMutator {
 
     private final Field f;
 
@@ -62,6 +62,98 @@ public class FieldAccessMutateControl<T> implements IMutator<T>, IAccessor<T> {
         return null;
     }
 
+    public int accessInt(Object object) {
+        if (!PrimitiveSupport.isWidening(f.getType(), int.class)) {
+            return PrimitiveSupport.toInt(access(object));
+        }
+        try {
+            return f.getInt(object);
+        } catch (IllegalAccessException e) {
+            throw new PropertyAccessException("Failed to access field "+f.getName(), e);
+        }
+    }
+
+    public long accessLong(Object object) {
+        if (!PrimitiveSupport.isWidening(f.getType(), long.class)) {
+            return PrimitiveSupport.toLong(access(object));
+        }
+        try {
+            return f.getLong(object);
+        } catch (IllegalAccessException e) {
+            throw new PropertyAccessException("Failed to access field "+f.getName(), e);
+        }
+    }
+
+    public double accessDouble(Object object) {
+        if (!PrimitiveSupport.isWidening(f.getType(), double.class)) {
+            return PrimitiveSupport.toDouble(access(object));
+        }
+        try {
+            return f.getDouble(object);
+        } catch (IllegalAccessException e) {
+            throw new PropertyAccessException("Failed to access field "+f.getName(), e);
+        }
+    }
+
+    public boolean accessBoolean(Object object) {
+        if (!f.getType().equals(boolean.class)) {
+            return PrimitiveSupport.toBoolean(access(object));
+        }
+        try {
+            return f.getBoolean(object);
+        } catch (IllegalAccessException e) {
+            throw new PropertyAccessException("Failed to access field "+f.getName(), e);
+        }
+    }
+
+    public void mutateInt(Object object, int newValue) {
+        if (!PrimitiveSupport.isWidening(int.class, f.getType())) {
+            mutate(object, (T) Integer.valueOf(newValue));
+            return;
+        }
+        try {
+            f.setInt(object, newValue);
+        } catch (IllegalAccessException e) {
+            throw new PropertyAccessException("Failed to mutate field "+f.getName(), e);
+        }
+    }
+
+    public void mutateLong(Object object, long newValue) {
+        if (!PrimitiveSupport.isWidening(long.class, f.getType())) {
+            mutate(object, (T) Long.valueOf(newValue));
+            return;
+        }
+        try {
+            f.setLong(object, newValue);
+        } catch (IllegalAccessException e) {
+            throw new PropertyAccessException("Failed to mutate field "+f.getName(), e);
+        }
+    }
+
+    public void mutateDouble(Object object, double newValue) {
+        if (!f.getType().equals(double.class)) {
+            mutate(object, (T) Double.valueOf(newValue));
+            return;
+        }
+        try {
+            f.setDouble(object, newValue);
+        } catch (IllegalAccessException e) {
+            throw new PropertyAccessException("Failed to mutate field "+f.getName(), e);
+        }
+    }
+
+    public void mutateBoolean(Object object, boolean newValue) {
+        if (!f.getType().equals(boolean.class)) {
+            mutate(object, (T) Boolean.valueOf(newValue));
+            return;
+        }
+        try {
+            f.setBoolean(object, newValue);
+        } catch (IllegalAccessException e) {
+            throw new PropertyAccessException("Failed to mutate field "+f.getName(), e);
+        }
+    }
+
     public Class<?> getReturnType() {
         return f.getType();
     }
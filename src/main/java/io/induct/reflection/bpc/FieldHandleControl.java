@@ -0,0 +1,197 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Field accessor/mutator which reads and writes the field through getter and setter
+ * {@link MethodHandle}s instead of {@link Field#get(Object)} and {@link Field#set(Object, Object)}.
+ */
+public class FieldHandleControl<T> implements IMutator<T>, IAccessor<T>, IPrimitiveAccessor, IPrimitiveMutator {
+
+    private static final long serialVersionUID = 1L;
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Field f;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final MethodHandle intGetter;
+    private final MethodHandle longGetter;
+    private final MethodHandle doubleGetter;
+    private final MethodHandle booleanGetter;
+    private final MethodHandle intSetter;
+    private final MethodHandle longSetter;
+    private final MethodHandle doubleSetter;
+    private final MethodHandle booleanSetter;
+
+    public FieldHandleControl(Field f) throws IllegalAccessException {
+        MethodHandleSupport.makeAccessible(f);
+        this.f = f;
+        MethodHandle unreflectedGetter = MethodHandles.lookup().unreflectGetter(f);
+        MethodHandle unreflectedSetter = MethodHandles.lookup().unreflectSetter(f);
+        if (Modifier.isStatic(f.getModifiers())) {
+            // static fields ignore the object just like Field#get(Object) does
+            unreflectedGetter = MethodHandles.dropArguments(unreflectedGetter, 0, Object.class);
+            unreflectedSetter = MethodHandles.dropArguments(unreflectedSetter, 0, Object.class);
+        }
+        this.getter = unreflectedGetter.asType(GETTER_TYPE);
+        this.setter = unreflectedSetter.asType(SETTER_TYPE);
+        this.intGetter = MethodHandleSupport.primitiveGetter(unreflectedGetter, f.getType(), int.class);
+        this.longGetter = MethodHandleSupport.primitiveGetter(unreflectedGetter, f.getType(), long.class);
+        this.doubleGetter = MethodHandleSupport.primitiveGetter(unreflectedGetter, f.getType(), double.class);
+        this.booleanGetter = MethodHandleSupport.primitiveGetter(unreflectedGetter, f.getType(), boolean.class);
+        this.intSetter = MethodHandleSupport.primitiveSetter(unreflectedSetter, f.getType(), int.class);
+        this.longSetter = MethodHandleSupport.primitiveSetter(unreflectedSetter, f.getType(), long.class);
+        this.doubleSetter = MethodHandleSupport.primitiveSetter(unreflectedSetter, f.getType(), double.class);
+        this.booleanSetter = MethodHandleSupport.primitiveSetter(unreflectedSetter, f.getType(), boolean.class);
+    }
+
+    public Class<?> getType() {
+        return f.getType();
+    }
+
+    public void mutate(Object object, T newValue) {
+        try {
+            setter.invokeExact(object, (Object) newValue);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to mutate field "+f.getName(), t);
+        }
+    }
+
+    public T access(Object object) {
+        try {
+            return (T) getter.invokeExact(object);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to access field "+f.getName(), t);
+        }
+    }
+
+    public int accessInt(Object object) {
+        if (intGetter == null) {
+            return PrimitiveSupport.toInt(access(object));
+        }
+        try {
+            return (int) intGetter.invokeExact(object);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to access field "+f.getName(), t);
+        }
+    }
+
+    public long accessLong(Object object) {
+        if (longGetter == null) {
+            return PrimitiveSupport.toLong(access(object));
+        }
+        try {
+            return (long) longGetter.invokeExact(object);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to access field "+f.getName(), t);
+        }
+    }
+
+    public double accessDouble(Object object) {
+        if (doubleGetter == null) {
+            return PrimitiveSupport.toDouble(access(object));
+        }
+        try {
+            return (double) doubleGetter.invokeExact(object);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to access field "+f.getName(), t);
+        }
+    }
+
+    public boolean accessBoolean(Object object) {
+        if (booleanGetter == null) {
+            return PrimitiveSupport.toBoolean(access(object));
+        }
+        try {
+            return (boolean) booleanGetter.invokeExact(object);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to access field "+f.getName(), t);
+        }
+    }
+
+    public void mutateInt(Object object, int newValue) {
+        if (intSetter == null) {
+            mutate(object, (T) Integer.valueOf(newValue));
+            return;
+        }
+        try {
+            intSetter.invokeExact(object, newValue);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to mutate field "+f.getName(), t);
+        }
+    }
+
+    public void mutateLong(Object object, long newValue) {
+        if (longSetter == null) {
+            mutate(object, (T) Long.valueOf(newValue));
+            return;
+        }
+        try {
+            longSetter.invokeExact(object, newValue);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to mutate field "+f.getName(), t);
+        }
+    }
+
+    public void mutateDouble(Object object, double newValue) {
+        if (doubleSetter == null) {
+            mutate(object, (T) Double.valueOf(newValue));
+            return;
+        }
+        try {
+            doubleSetter.invokeExact(object, newValue);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to mutate field "+f.getName(), t);
+        }
+    }
+
+    public void mutateBoolean(Object object, boolean newValue) {
+        if (booleanSetter == null) {
+            mutate(object, (T) Boolean.valueOf(newValue));
+            return;
+        }
+        try {
+            booleanSetter.invokeExact(object, newValue);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to mutate field "+f.getName(), t);
+        }
+    }
+
+    public Class<?> getReturnType() {
+        return f.getType();
+    }
+
+    @Override
+    public String toString() {
+        return "Field MethodHandle Accessor/Mutator";
+    }
+
+}
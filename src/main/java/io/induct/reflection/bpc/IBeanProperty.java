@@ -30,6 +30,15 @@ public interface IBeanProperty<T> {
     void setObject(T newObject);
     String getPropertyName();
     
+    int getIntValue();
+    long getLongValue();
+    double getDoubleValue();
+    boolean getBooleanValue();
+    void setIntValue(int newValue);
+    void setLongValue(long newValue);
+    void setDoubleValue(double newValue);
+    void setBooleanValue(boolean newValue);
+    
     Class<?> getType();
     boolean isArray(); 
     boolean isReadOnly();
@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Accessor which calls the accessor method through a {@link MethodHandle} instead of
+ * {@link Method#invoke(Object, Object...)}, which avoids the varargs array and the per call
+ * access checks and allows the JIT to inline the actual call.
+ */
+public class MethodHandleAccessor<T> implements IAccessor<T>, IPrimitiveAccessor {
+
+    private static final long serialVersionUID = 1L;
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final MethodHandle handle;
+    private final MethodHandle intHandle;
+    private final MethodHandle longHandle;
+    private final MethodHandle doubleHandle;
+    private final MethodHandle booleanHandle;
+    private final Class<?> returnType;
+
+    public MethodHandleAccessor(Method m) throws IllegalAccessException {
+        MethodHandleSupport.makeAccessible(m);
+        MethodHandle unreflected = MethodHandles.lookup().unreflect(m);
+        this.handle = unreflected.asType(ACCESSOR_TYPE);
+        this.returnType = m.getReturnType();
+        this.intHandle = MethodHandleSupport.primitiveGetter(unreflected, returnType, int.class);
+        this.longHandle = MethodHandleSupport.primitiveGetter(unreflected, returnType, long.class);
+        this.doubleHandle = MethodHandleSupport.primitiveGetter(unreflected, returnType, double.class);
+        this.booleanHandle = MethodHandleSupport.primitiveGetter(unreflected, returnType, boolean.class);
+    }
+
+    public T access(Object object) {
+        try {
+            return (T) handle.invokeExact(object);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to access property through "+this, t);
+        }
+    }
+
+    public int accessInt(Object object) {
+        if (intHandle == null) {
+            return PrimitiveSupport.toInt(access(object));
+        }
+        try {
+            return (int) intHandle.invokeExact(object);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to access property through "+this, t);
+        }
+    }
+
+    public long accessLong(Object object) {
+        if (longHandle == null) {
+            return PrimitiveSupport.toLong(access(object));
+        }
+        try {
+            return (long) longHandle.invokeExact(object);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to access property through "+this, t);
+        }
+    }
+
+    public double accessDouble(Object object) {
+        if (doubleHandle == null) {
+            return PrimitiveSupport.toDouble(access(object));
+        }
+        try {
+            return (double) doubleHandle.invokeExact(object);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to access property through "+this, t);
+        }
+    }
+
+    public boolean accessBoolean(Object object) {
+        if (booleanHandle == null) {
+            return PrimitiveSupport.toBoolean(access(object));
+        }
+        try {
+            return (boolean) booleanHandle.invokeExact(object);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to access property through "+this, t);
+        }
+    }
+
+    public Class<?> getReturnType() {
+        return returnType;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodHandle accessor";
+    }
+
+}
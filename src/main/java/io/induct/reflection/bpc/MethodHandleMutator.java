@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Mutator counterpart of {@link MethodHandleAccessor}.
+ */
+public class MethodHandleMutator<T> implements IMutator<T>, IPrimitiveMutator {
+
+    private static final long serialVersionUID = 1L;
+    private static final MethodType MUTATOR_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandle handle;
+    private final MethodHandle intHandle;
+    private final MethodHandle longHandle;
+    private final MethodHandle doubleHandle;
+    private final MethodHandle booleanHandle;
+    private final Class<?> type;
+
+    public MethodHandleMutator(Method m) throws IllegalAccessException {
+        MethodHandleSupport.makeAccessible(m);
+        MethodHandle unreflected = MethodHandles.lookup().unreflect(m);
+        this.handle = unreflected.asType(MUTATOR_TYPE);
+        this.type = m.getParameterTypes()[0];
+        this.intHandle = MethodHandleSupport.primitiveSetter(unreflected, type, int.class);
+        this.longHandle = MethodHandleSupport.primitiveSetter(unreflected, type, long.class);
+        this.doubleHandle = MethodHandleSupport.primitiveSetter(unreflected, type, double.class);
+        this.booleanHandle = MethodHandleSupport.primitiveSetter(unreflected, type, boolean.class);
+    }
+
+    public void mutate(Object object, T newValue) {
+        try {
+            handle.invokeExact(object, (Object) newValue);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to mutate property through "+this, t);
+        }
+    }
+
+    public void mutateInt(Object object, int newValue) {
+        if (intHandle == null) {
+            mutate(object, (T) Integer.valueOf(newValue));
+            return;
+        }
+        try {
+            intHandle.invokeExact(object, newValue);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to mutate property through "+this, t);
+        }
+    }
+
+    public void mutateLong(Object object, long newValue) {
+        if (longHandle == null) {
+            mutate(object, (T) Long.valueOf(newValue));
+            return;
+        }
+        try {
+            longHandle.invokeExact(object, newValue);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to mutate property through "+this, t);
+        }
+    }
+
+    public void mutateDouble(Object object, double newValue) {
+        if (doubleHandle == null) {
+            mutate(object, (T) Double.valueOf(newValue));
+            return;
+        }
+        try {
+            doubleHandle.invokeExact(object, newValue);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to mutate property through "+this, t);
+        }
+    }
+
+    public void mutateBoolean(Object object, boolean newValue) {
+        if (booleanHandle == null) {
+            mutate(object, (T) Boolean.valueOf(newValue));
+            return;
+        }
+        try {
+            booleanHandle.invokeExact(object, newValue);
+        } catch (Throwable t) {
+            throw MethodHandleSupport.rethrow("Failed to mutate property through "+this, t);
+        }
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodHandle mutator";
+    }
+
+}
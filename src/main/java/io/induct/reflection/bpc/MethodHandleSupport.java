@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+
+/**
+ * Shared plumbing of the {@link java.lang.invoke.MethodHandle} based accessors and mutators.
+ */
+final class MethodHandleSupport {
+
+    private MethodHandleSupport() {}
+
+    /**
+     * Suppresses access checks so that public members of non-public classes can be unreflected
+     * too. If the runtime refuses, the following unreflection will fail with
+     * {@link IllegalAccessException} and the caller is expected to fall back to plain reflection.
+     */
+    static void makeAccessible(AccessibleObject member) {
+        try {
+            if (!member.isAccessible()) {
+                member.setAccessible(true);
+            }
+        } catch (RuntimeException e) {
+            // left inaccessible on purpose, see above
+        }
+    }
+
+    /**
+     * Adapts getter style handle to return given primitive type directly.
+     * 
+     * @return The adapted handle or <code>null</code> if the value can't be widened to the type.
+     */
+    static MethodHandle primitiveGetter(MethodHandle handle, Class<?> valueType, Class<?> primitive) {
+        if (!PrimitiveSupport.isWidening(valueType, primitive)) {
+            return null;
+        }
+        return handle.asType(MethodType.methodType(primitive, Object.class));
+    }
+
+    /**
+     * Adapts setter style handle to take given primitive type directly.
+     * 
+     * @return The adapted handle or <code>null</code> if the primitive can't be widened to the value type.
+     */
+    static MethodHandle primitiveSetter(MethodHandle handle, Class<?> valueType, Class<?> primitive) {
+        if (!PrimitiveSupport.isWidening(primitive, valueType)) {
+            return null;
+        }
+        return handle.asType(MethodType.methodType(void.class, Object.class, primitive));
+    }
+
+    static RuntimeException rethrow(String message, Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new PropertyAccessException(message, t);
+    }
+}
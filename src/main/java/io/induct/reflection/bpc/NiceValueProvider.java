@@ -24,6 +24,8 @@
 package io.induct.reflection.bpc;
 
 import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 
 public enum NiceValueProvider {
     
@@ -33,14 +35,29 @@ public enum NiceValueProvider {
 
     public Object getNiceValueFor(Class<?> c) {
         if (c.isArray()) {
-            return Array.newInstance(c, 0);
+            return Array.newInstance(c.getComponentType(), 0);
         }
         else if (c.equals(String.class)) {
             return "";
-        } else if (Number.class.isAssignableFrom(c) || // TODO: Test this 
-                   c.equals(int.class) || 
-                   c.equals(double.class) ||
-                   c.equals(float.class)) {
+        } else if (c.equals(int.class) || c.equals(Integer.class)) {
+            return 0;
+        } else if (c.equals(long.class) || c.equals(Long.class)) {
+            return 0L;
+        } else if (c.equals(double.class) || c.equals(Double.class)) {
+            return 0d;
+        } else if (c.equals(float.class) || c.equals(Float.class)) {
+            return 0f;
+        } else if (c.equals(short.class) || c.equals(Short.class)) {
+            return (short) 0;
+        } else if (c.equals(byte.class) || c.equals(Byte.class)) {
+            return (byte) 0;
+        } else if (c.equals(char.class) || c.equals(Character.class)) {
+            return '\0';
+        } else if (c.equals(BigDecimal.class)) {
+            return BigDecimal.ZERO;
+        } else if (c.equals(BigInteger.class)) {
+            return BigInteger.ZERO;
+        } else if (c.equals(Number.class)) {
             return 0;
         } else if (c.equals(Boolean.class) || c.equals(boolean.class)) {
             return Boolean.FALSE;
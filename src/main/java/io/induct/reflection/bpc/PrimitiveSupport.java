@@ -0,0 +1,226 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+/**
+ * Primitive access and mutation through accessors and mutators which don't implement
+ * {@link IPrimitiveAccessor}/{@link IPrimitiveMutator} or don't support the property's type
+ * natively. Values are boxed and converted like {@link Number}s.
+ */
+public final class PrimitiveSupport {
+
+    private PrimitiveSupport() {}
+
+    public static int accessInt(IAccessor<?> accessor, Object object) {
+        if (accessor instanceof IPrimitiveAccessor) {
+            return ((IPrimitiveAccessor) accessor).accessInt(object);
+        }
+        return toInt(accessor.access(object));
+    }
+
+    public static long accessLong(IAccessor<?> accessor, Object object) {
+        if (accessor instanceof IPrimitiveAccessor) {
+            return ((IPrimitiveAccessor) accessor).accessLong(object);
+        }
+        return toLong(accessor.access(object));
+    }
+
+    public static double accessDouble(IAccessor<?> accessor, Object object) {
+        if (accessor instanceof IPrimitiveAccessor) {
+            return ((IPrimitiveAccessor) accessor).accessDouble(object);
+        }
+        return toDouble(accessor.access(object));
+    }
+
+    public static boolean accessBoolean(IAccessor<?> accessor, Object object) {
+        if (accessor instanceof IPrimitiveAccessor) {
+            return ((IPrimitiveAccessor) accessor).accessBoolean(object);
+        }
+        return toBoolean(accessor.access(object));
+    }
+
+    public static void mutateInt(IMutator<Object> mutator, Object object, int newValue) {
+        if (mutator instanceof IPrimitiveMutator) {
+            ((IPrimitiveMutator) mutator).mutateInt(object, newValue);
+        } else {
+            mutator.mutate(object, newValue);
+        }
+    }
+
+    public static void mutateLong(IMutator<Object> mutator, Object object, long newValue) {
+        if (mutator instanceof IPrimitiveMutator) {
+            ((IPrimitiveMutator) mutator).mutateLong(object, newValue);
+        } else {
+            mutator.mutate(object, newValue);
+        }
+    }
+
+    public static void mutateDouble(IMutator<Object> mutator, Object object, double newValue) {
+        if (mutator instanceof IPrimitiveMutator) {
+            ((IPrimitiveMutator) mutator).mutateDouble(object, newValue);
+        } else {
+            mutator.mutate(object, newValue);
+        }
+    }
+
+    public static void mutateBoolean(IMutator<Object> mutator, Object object, boolean newValue) {
+        if (mutator instanceof IPrimitiveMutator) {
+            ((IPrimitiveMutator) mutator).mutateBoolean(object, newValue);
+        } else {
+            mutator.mutate(object, newValue);
+        }
+    }
+
+    /**
+     * Tells if a value of the first primitive type can be given as the second primitive type
+     * without narrowing, as in Java's widening primitive conversion which is also what
+     * reflection and method handles allow.
+     */
+    public static boolean isWidening(Class<?> from, Class<?> to) {
+        if (from.equals(to)) {
+            return from.isPrimitive();
+        }
+        if (from.equals(boolean.class) || to.equals(boolean.class) || !from.isPrimitive() || !to.isPrimitive()) {
+            return false;
+        }
+        if (to.equals(double.class)) {
+            return !from.equals(void.class);
+        }
+        if (to.equals(float.class)) {
+            return !from.equals(double.class) && !from.equals(void.class);
+        }
+        if (to.equals(short.class)) {
+            return from.equals(byte.class);
+        }
+        if (to.equals(long.class)) {
+            return from.equals(int.class) || from.equals(short.class) || from.equals(byte.class) || from.equals(char.class);
+        }
+        if (to.equals(int.class)) {
+            return from.equals(short.class) || from.equals(byte.class) || from.equals(char.class);
+        }
+        return false;
+    }
+
+    /**
+     * @return Primitive type of given wrapper type, other types as is.
+     */
+    public static Class<?> unwrap(Class<?> type) {
+        if (type.equals(Integer.class)) return int.class;
+        if (type.equals(Long.class)) return long.class;
+        if (type.equals(Double.class)) return double.class;
+        if (type.equals(Float.class)) return float.class;
+        if (type.equals(Boolean.class)) return boolean.class;
+        if (type.equals(Short.class)) return short.class;
+        if (type.equals(Byte.class)) return byte.class;
+        if (type.equals(Character.class)) return char.class;
+        return type;
+    }
+
+    /**
+     * @return Wrapper type of given primitive type, other types as is.
+     */
+    public static Class<?> wrap(Class<?> type) {
+        if (type.equals(int.class)) return Integer.class;
+        if (type.equals(long.class)) return Long.class;
+        if (type.equals(double.class)) return Double.class;
+        if (type.equals(float.class)) return Float.class;
+        if (type.equals(boolean.class)) return Boolean.class;
+        if (type.equals(short.class)) return Short.class;
+        if (type.equals(byte.class)) return Byte.class;
+        if (type.equals(char.class)) return Character.class;
+        return type;
+    }
+
+    /**
+     * Boxes an int or long value as given wrapper type, which must be one the value widens to.
+     */
+    public static Object box(Class<?> wrapper, long value) {
+        if (wrapper.equals(Long.class)) return Long.valueOf(value);
+        if (wrapper.equals(Double.class)) return Double.valueOf(value);
+        if (wrapper.equals(Float.class)) return Float.valueOf(value);
+        return Integer.valueOf((int) value);
+    }
+
+    /*
+     * Unboxing for properties of primitive types. Like with method handles and reflection the
+     * value must be a wrapper of a primitive which widens to the type, anything which would need
+     * narrowing fails with ClassCastException instead of being truncated.
+     */
+
+    public static int unboxInt(Object value) {
+        return toInt(checkWidening(value, int.class));
+    }
+
+    public static long unboxLong(Object value) {
+        return toLong(checkWidening(value, long.class));
+    }
+
+    public static double unboxDouble(Object value) {
+        return toDouble(checkWidening(value, double.class));
+    }
+
+    public static float unboxFloat(Object value) {
+        checkWidening(value, float.class);
+        return (value instanceof Character) ? ((Character) value).charValue() : ((Number) value).floatValue();
+    }
+
+    public static short unboxShort(Object value) {
+        return ((Number) checkWidening(value, short.class)).shortValue();
+    }
+
+    public static byte unboxByte(Object value) {
+        return ((Byte) checkWidening(value, byte.class)).byteValue();
+    }
+
+    public static char unboxChar(Object value) {
+        return ((Character) checkWidening(value, char.class)).charValue();
+    }
+
+    public static boolean unboxBoolean(Object value) {
+        return toBoolean(checkWidening(value, boolean.class));
+    }
+
+    private static Object checkWidening(Object value, Class<?> type) {
+        if (value != null && !isWidening(unwrap(value.getClass()), type)) {
+            throw new ClassCastException("Cannot convert "+value.getClass().getName()+" to "+type.getName()+" without narrowing");
+        }
+        return value;
+    }
+
+    public static int toInt(Object value) {
+        return (value instanceof Character) ? ((Character) value).charValue() : ((Number) value).intValue();
+    }
+
+    public static long toLong(Object value) {
+        return (value instanceof Character) ? ((Character) value).charValue() : ((Number) value).longValue();
+    }
+
+    public static double toDouble(Object value) {
+        return (value instanceof Character) ? ((Character) value).charValue() : ((Number) value).doubleValue();
+    }
+
+    public static boolean toBoolean(Object value) {
+        return ((Boolean) value).booleanValue();
+    }
+}
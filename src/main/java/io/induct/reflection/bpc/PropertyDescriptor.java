@@ -0,0 +1,242 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+import java.lang.reflect.Member;
+
+/**
+ * Object independent description of a single bean property, that is the accessor/mutator pair
+ * resolved for a property name of some specific class.
+ * <p>
+ * Descriptors are shared between all controllers handling the same class and are turned into
+ * {@link IBeanProperty} instances by binding them to the actual controlled object.
+ * 
+ * @author Esko
+ */
+public class PropertyDescriptor {
+
+    private final String propertyName;
+    private final IAccessor<Object> accessor;
+    private final IMutator<Object> mutator;
+    private final Member accessorMember;
+    private final Member mutatorMember;
+    private final boolean readsInt;
+    private final boolean readsLong;
+    private final boolean readsDouble;
+    private final boolean readsBoolean;
+    private final Class<?> intTarget;
+    private final Class<?> longTarget;
+    private final Class<?> doubleTarget;
+    private final Class<?> booleanTarget;
+
+    public PropertyDescriptor(String propertyName, IAccessor<?> accessor, IMutator<?> mutator) {
+        this(propertyName, accessor, mutator, null, null);
+    }
+
+    /**
+     * @param accessorMember Method or field the accessor reads from, if known.
+     * @param mutatorMember Method or field the mutator writes to, if known.
+     */
+    public PropertyDescriptor(String propertyName, IAccessor<?> accessor, IMutator<?> mutator,
+                              Member accessorMember, Member mutatorMember) {
+        if (propertyName == null) {
+            throw new IllegalArgumentException("Can't construct PropertyDescriptor with null propertyName");
+        }
+        if (accessor == null) {
+            throw new IllegalArgumentException("Can't construct PropertyDescriptor with null accessor");
+        }
+        this.propertyName = propertyName;
+        this.accessor = (IAccessor<Object>) accessor;
+        this.mutator = (IMutator<Object>) mutator;
+        this.accessorMember = accessorMember;
+        this.mutatorMember = mutatorMember;
+        Class<?> type = accessor.getReturnType();
+        this.readsInt = PrimitiveSupport.isWidening(type, int.class);
+        this.readsLong = PrimitiveSupport.isWidening(type, long.class);
+        this.readsDouble = PrimitiveSupport.isWidening(type, double.class);
+        this.readsBoolean = type.equals(boolean.class);
+        this.intTarget = writeTarget(int.class, mutator);
+        this.longTarget = writeTarget(long.class, mutator);
+        this.doubleTarget = writeTarget(double.class, mutator);
+        this.booleanTarget = writeTarget(boolean.class, mutator);
+    }
+    
+    /**
+     * Resolves how values of given primitive type are written with the mutator, the primitive
+     * type of the property itself, the wrapper to box values into or <code>null</code> if the
+     * values would have to be narrowed.
+     */
+    private static Class<?> writeTarget(Class<?> primitive, IMutator<?> mutator) {
+        if (mutator == null) {
+            return null;
+        }
+        Class<?> type = mutator.getType();
+        Class<?> unwrapped = PrimitiveSupport.unwrap(type);
+        if (type.isPrimitive() || unwrapped != type) {
+            return PrimitiveSupport.isWidening(primitive, unwrapped) ? type : null;
+        }
+        return type.isAssignableFrom(PrimitiveSupport.wrap(primitive)) ? PrimitiveSupport.wrap(primitive) : null;
+    }
+
+    /**
+     * Returns a copy of this descriptor which uses the given accessor and mutator instead but
+     * still describes the same members.
+     */
+    public PropertyDescriptor withControls(IAccessor<?> accessor, IMutator<?> mutator) {
+        return new PropertyDescriptor(propertyName, accessor, mutator, accessorMember, mutatorMember);
+    }
+
+    public IBeanProperty<Object> bind(Object object) {
+        return new BeanProperty<Object>(object, propertyName, accessor, mutator);
+    }
+
+    public Object access(Object object) {
+        return accessor.access(object);
+    }
+
+    public void mutate(Object object, Object newValue) {
+        mutator.mutate(object, newValue);
+    }
+
+    /*
+     * Primitive variants only allow widening conversions, the same way reflection and method
+     * handles do. Properties of other than primitive types are converted according to their
+     * current value or boxed into the wrapper type of the property.
+     */
+
+    public int accessInt(Object object) {
+        if (readsInt) {
+            return PrimitiveSupport.accessInt(accessor, object);
+        }
+        return PrimitiveSupport.toInt(readable(accessor.access(object), int.class));
+    }
+
+    public long accessLong(Object object) {
+        if (readsLong) {
+            return PrimitiveSupport.accessLong(accessor, object);
+        }
+        return PrimitiveSupport.toLong(readable(accessor.access(object), long.class));
+    }
+
+    public double accessDouble(Object object) {
+        if (readsDouble) {
+            return PrimitiveSupport.accessDouble(accessor, object);
+        }
+        return PrimitiveSupport.toDouble(readable(accessor.access(object), double.class));
+    }
+
+    public boolean accessBoolean(Object object) {
+        if (readsBoolean) {
+            return PrimitiveSupport.accessBoolean(accessor, object);
+        }
+        return PrimitiveSupport.toBoolean(readable(accessor.access(object), boolean.class));
+    }
+
+    public void mutateInt(Object object, int newValue) {
+        if (writable(intTarget, int.class).isPrimitive()) {
+            PrimitiveSupport.mutateInt(mutator, object, newValue);
+        } else {
+            mutator.mutate(object, PrimitiveSupport.box(intTarget, newValue));
+        }
+    }
+
+    public void mutateLong(Object object, long newValue) {
+        if (writable(longTarget, long.class).isPrimitive()) {
+            PrimitiveSupport.mutateLong(mutator, object, newValue);
+        } else {
+            mutator.mutate(object, PrimitiveSupport.box(longTarget, newValue));
+        }
+    }
+
+    public void mutateDouble(Object object, double newValue) {
+        if (writable(doubleTarget, double.class).isPrimitive()) {
+            PrimitiveSupport.mutateDouble(mutator, object, newValue);
+        } else {
+            mutator.mutate(object, Double.valueOf(newValue));
+        }
+    }
+
+    public void mutateBoolean(Object object, boolean newValue) {
+        if (writable(booleanTarget, boolean.class).isPrimitive()) {
+            PrimitiveSupport.mutateBoolean(mutator, object, newValue);
+        } else {
+            mutator.mutate(object, Boolean.valueOf(newValue));
+        }
+    }
+
+    private Object readable(Object value, Class<?> primitive) {
+        if (value == null || !PrimitiveSupport.isWidening(PrimitiveSupport.unwrap(value.getClass()), primitive)) {
+            throw new PropertyAccessException("Property '"+propertyName+"' with value "+value
+                                             +" can't be accessed as "+primitive.getName()+" without narrowing");
+        }
+        return value;
+    }
+
+    private Class<?> writable(Class<?> target, Class<?> primitive) {
+        if (target == null) {
+            throw new PropertyAccessException((mutator == null) ? "Property '"+propertyName+"' is read-only" 
+                    : "Property '"+propertyName+"' of type "+mutator.getType().getName()+" can't be mutated with "
+                      +primitive.getName()+" values without narrowing");
+        }
+        return target;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public IAccessor<Object> getAccessor() {
+        return accessor;
+    }
+
+    public IMutator<Object> getMutator() {
+        return mutator;
+    }
+
+    public Member getAccessorMember() {
+        return accessorMember;
+    }
+
+    public Member getMutatorMember() {
+        return mutatorMember;
+    }
+
+    public Class<?> getType() {
+        return accessor.getReturnType();
+    }
+
+    public boolean isArray() {
+        return accessor.getReturnType().isArray();
+    }
+
+    public boolean isReadOnly() {
+        return mutator == null;
+    }
+
+    @Override
+    public String toString() {
+        return "PropertyDescriptor :: "+getPropertyName()+" with "+accessor+","+mutator+"]";
+    }
+
+}
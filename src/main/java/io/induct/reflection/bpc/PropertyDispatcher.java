@@ -0,0 +1,57 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+/**
+ * Accesses and mutates all indexed properties of a single class by their property index, see
+ * {@link io.induct.reflection.bpc.extraction.ClassMetadata#getDescriptors()} for the indexes.
+ */
+public interface PropertyDispatcher {
+    
+    Object get(Object bean, int propertyIndex);
+    
+    void set(Object bean, int propertyIndex, Object value);
+    
+    /*
+     * Primitive variants work without boxing for properties whose type can be widened to or from
+     * the primitive type, see IPrimitiveAccessor and IPrimitiveMutator.
+     */
+    
+    int getInt(Object bean, int propertyIndex);
+    
+    long getLong(Object bean, int propertyIndex);
+    
+    double getDouble(Object bean, int propertyIndex);
+    
+    boolean getBoolean(Object bean, int propertyIndex);
+    
+    void setInt(Object bean, int propertyIndex, int value);
+    
+    void setLong(Object bean, int propertyIndex, long value);
+    
+    void setDouble(Object bean, int propertyIndex, double value);
+    
+    void setBoolean(Object bean, int propertyIndex, boolean value);
+
+}
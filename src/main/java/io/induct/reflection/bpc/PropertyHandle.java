@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+/**
+ * Property resolved once through {@link BeanPropertyController#handle(String)} for repeated
+ * access without name lookups.
+ * <p>
+ * Handles are object independent, a handle can be used with any controller which controls an
+ * object of the same class as the one it was resolved from.
+ * 
+ * @author Esko
+ */
+public final class PropertyHandle {
+    
+    private final String propertyName;
+    private final Class<?> beanClass;
+    private final PropertyDescriptor descriptor;
+    private final PropertyPath path;
+    
+    PropertyHandle(String propertyName, Class<?> beanClass, PropertyDescriptor descriptor) {
+        this(propertyName, beanClass, descriptor, null);
+    }
+    
+    PropertyHandle(String propertyName, Class<?> beanClass, PropertyPath path) {
+        this(propertyName, beanClass, null, path);
+    }
+    
+    private PropertyHandle(String propertyName, Class<?> beanClass, PropertyDescriptor descriptor, PropertyPath path) {
+        this.propertyName = propertyName;
+        this.beanClass = beanClass;
+        this.descriptor = descriptor;
+        this.path = path;
+    }
+    
+    public String getPropertyName() {
+        return propertyName;
+    }
+    
+    public Class<?> getBeanClass() {
+        return beanClass;
+    }
+    
+    Object access(Object bean) {
+        checkBean(bean);
+        return (descriptor != null) ? descriptor.access(bean) : path.access(bean);
+    }
+    
+    void mutate(Object bean, Object newValue) {
+        checkBean(bean);
+        if (descriptor != null) {
+            descriptor.mutate(bean, newValue);
+        } else {
+            path.mutate(bean, newValue);
+        }
+    }
+    
+    int accessInt(Object bean) {
+        checkBean(bean);
+        return (descriptor != null) ? descriptor.accessInt(bean) : path.accessInt(bean);
+    }
+    
+    long accessLong(Object bean) {
+        checkBean(bean);
+        return (descriptor != null) ? descriptor.accessLong(bean) : path.accessLong(bean);
+    }
+    
+    double accessDouble(Object bean) {
+        checkBean(bean);
+        return (descriptor != null) ? descriptor.accessDouble(bean) : path.accessDouble(bean);
+    }
+    
+    boolean accessBoolean(Object bean) {
+        checkBean(bean);
+        return (descriptor != null) ? descriptor.accessBoolean(bean) : path.accessBoolean(bean);
+    }
+    
+    void mutateInt(Object bean, int newValue) {
+        checkBean(bean);
+        if (descriptor != null) {
+            descriptor.mutateInt(bean, newValue);
+        } else {
+            path.mutateInt(bean, newValue);
+        }
+    }
+    
+    void mutateLong(Object bean, long newValue) {
+        checkBean(bean);
+        if (descriptor != null) {
+            descriptor.mutateLong(bean, newValue);
+        } else {
+            path.mutateLong(bean, newValue);
+        }
+    }
+    
+    void mutateDouble(Object bean, double newValue) {
+        checkBean(bean);
+        if (descriptor != null) {
+            descriptor.mutateDouble(bean, newValue);
+        } else {
+            path.mutateDouble(bean, newValue);
+        }
+    }
+    
+    void mutateBoolean(Object bean, boolean newValue) {
+        checkBean(bean);
+        if (descriptor != null) {
+            descriptor.mutateBoolean(bean, newValue);
+        } else {
+            path.mutateBoolean(bean, newValue);
+        }
+    }
+    
+    /**
+     * @return Descriptor of the property within given bean, for nested properties resolved
+     *         through the current intermediate beans.
+     */
+    PropertyDescriptor describe(Object bean) {
+        checkBean(bean);
+        return (descriptor != null) ? descriptor : path.resolve(bean);
+    }
+    
+    private void checkBean(Object bean) {
+        if (bean.getClass() != beanClass) {
+            throw new IllegalArgumentException("PropertyHandle for '"+propertyName+"' of "+beanClass.getName()
+                                              +" can't be used with "+bean.getClass().getName());
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "PropertyHandle :: "+beanClass.getName()+"#"+propertyName;
+    }
+}
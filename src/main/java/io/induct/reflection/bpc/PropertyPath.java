@@ -0,0 +1,245 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+
+/**
+ * Precompiled path to a property within nested beans, such as <code>house.address.street</code>.
+ * <p>
+ * The path is split only once when compiled. Each evaluation walks the live object graph from
+ * the given root object, so replacing any of the intermediate beans is always seen. The property
+ * descriptor of every step is cached for the class met last time at that step, so as long as the
+ * graph keeps the same shape no lookups are done either.
+ * <p>
+ * By default a <code>null</code> intermediate bean causes a {@link NullPointerException}. A
+ * {@link #nullSafe()} path instead accesses such properties as <code>null</code> (or zero/false
+ * for the primitive variants) and ignores mutations to them.
+ * <p>
+ * Instances are immutable apart from the step caches and can be shared between threads.
+ * 
+ * @author Esko
+ */
+public final class PropertyPath {
+    
+    private final String path;
+    private final String[] segments;
+    private final ExtractionDepth extractionDepth;
+    private final AccessorEngine engine;
+    private final boolean nullSafe;
+    private final Step[] steps;
+    
+    private PropertyPath(String path, String[] segments, ExtractionDepth extractionDepth, AccessorEngine engine, boolean nullSafe) {
+        if (segments.length == 0) {
+            throw new IllegalArgumentException("Can't compile PropertyPath from empty path '"+path+"'");
+        }
+        this.path = path;
+        this.segments = segments;
+        this.extractionDepth = extractionDepth;
+        this.engine = engine;
+        this.nullSafe = nullSafe;
+        this.steps = new Step[segments.length];
+    }
+    
+    public static PropertyPath compile(String path) {
+        return compile(path, ExtractionDepth.METHODS);
+    }
+    public static PropertyPath compile(String path, ExtractionDepth extractionDepth) {
+        return compile(path, extractionDepth, BeanPropertyController.DEFAULT_STEPS, AccessorEngine.REFLECTION);
+    }
+    /**
+     * @param steps Maximum amount of steps into nested beans as with {@link BeanPropertyController},
+     *              any remaining part of the path is used as the last property name as is.
+     */
+    public static PropertyPath compile(String path, ExtractionDepth extractionDepth, int steps, AccessorEngine engine) {
+        if (path == null) {
+            throw new IllegalArgumentException("Can't compile PropertyPath from null path");
+        }
+        return new PropertyPath(path, split(path, steps), extractionDepth, engine, false);
+    }
+    
+    /**
+     * Splits the path by dots into at most <code>steps + 1</code> trimmed, non-empty segments.
+     */
+    private static String[] split(String path, int steps) {
+        List<String> segments = new ArrayList<String>();
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('.', start);
+            if (end < 0 || (steps >= 0 && segments.size() == steps)) {
+                end = path.length();
+            }
+            String segment = path.substring(start, end).trim();
+            if (segment.length() > 0) {
+                segments.add(segment);
+            }
+            start = end + 1;
+        }
+        return segments.toArray(new String[segments.size()]);
+    }
+    
+    /**
+     * @return Copy of this path which treats <code>null</code> intermediate beans as missing values.
+     */
+    public PropertyPath nullSafe() {
+        return new PropertyPath(path, segments, extractionDepth, engine, true);
+    }
+    
+    public boolean isNullSafe() {
+        return nullSafe;
+    }
+    
+    public String getPath() {
+        return path;
+    }
+    
+    public int length() {
+        return segments.length;
+    }
+    
+    public String getSegment(int index) {
+        return segments[index];
+    }
+    
+    public Object access(Object root) {
+        Object owner = owner(root);
+        return (owner != null) ? step(segments.length - 1, owner).access(owner) : null;
+    }
+    
+    public void mutate(Object root, Object newValue) {
+        Object owner = owner(root);
+        if (owner != null) {
+            step(segments.length - 1, owner).mutate(owner, newValue);
+        }
+    }
+    
+    public int accessInt(Object root) {
+        Object owner = owner(root);
+        return (owner != null) ? step(segments.length - 1, owner).accessInt(owner) : 0;
+    }
+    
+    public long accessLong(Object root) {
+        Object owner = owner(root);
+        return (owner != null) ? step(segments.length - 1, owner).accessLong(owner) : 0L;
+    }
+    
+    public double accessDouble(Object root) {
+        Object owner = owner(root);
+        return (owner != null) ? step(segments.length - 1, owner).accessDouble(owner) : 0d;
+    }
+    
+    public boolean accessBoolean(Object root) {
+        Object owner = owner(root);
+        return (owner != null) ? step(segments.length - 1, owner).accessBoolean(owner) : false;
+    }
+    
+    public void mutateInt(Object root, int newValue) {
+        Object owner = owner(root);
+        if (owner != null) {
+            step(segments.length - 1, owner).mutateInt(owner, newValue);
+        }
+    }
+    
+    public void mutateLong(Object root, long newValue) {
+        Object owner = owner(root);
+        if (owner != null) {
+            step(segments.length - 1, owner).mutateLong(owner, newValue);
+        }
+    }
+    
+    public void mutateDouble(Object root, double newValue) {
+        Object owner = owner(root);
+        if (owner != null) {
+            step(segments.length - 1, owner).mutateDouble(owner, newValue);
+        }
+    }
+    
+    public void mutateBoolean(Object root, boolean newValue) {
+        Object owner = owner(root);
+        if (owner != null) {
+            step(segments.length - 1, owner).mutateBoolean(owner, newValue);
+        }
+    }
+    
+    /**
+     * Resolves the descriptor of the last property of this path for given root object.
+     * 
+     * @return The descriptor or <code>null</code> if a null safe path can't reach the property.
+     */
+    public PropertyDescriptor resolve(Object root) {
+        Object owner = owner(root);
+        return (owner != null) ? step(segments.length - 1, owner) : null;
+    }
+    
+    /**
+     * Walks the graph up to the bean which owns the last property of this path.
+     */
+    private Object owner(Object root) {
+        Object current = root;
+        for (int i = 0; i < segments.length - 1; i++) {
+            if (current == null) {
+                break;
+            }
+            current = step(i, current).access(current);
+        }
+        if (current == null && !nullSafe) {
+            throw new NullPointerException("Can't follow property path '"+path+"' through a null bean");
+        }
+        return current;
+    }
+    
+    private PropertyDescriptor step(int i, Object owner) {
+        Step step = steps[i];
+        Class<?> c = owner.getClass();
+        if (step == null || step.c != c) {
+            step = new Step(c, ClassMetadata.of(c, extractionDepth, engine).getDescriptor(segments[i]));
+            steps[i] = step;
+        }
+        return step.descriptor;
+    }
+    
+    @Override
+    public String toString() {
+        return "PropertyPath :: "+path+(nullSafe ? " (null safe)" : "");
+    }
+    
+    /**
+     * Descriptor resolved for the class met at some step, immutable so that it can be published
+     * to other threads through a plain array store.
+     */
+    private static final class Step {
+        private final Class<?> c;
+        private final PropertyDescriptor descriptor;
+        
+        Step(Class<?> c, PropertyDescriptor descriptor) {
+            this.c = c;
+            this.descriptor = descriptor;
+        }
+    }
+}
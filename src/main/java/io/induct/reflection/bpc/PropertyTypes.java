@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc;
+
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Comparator;
+
+/**
+ * Classification of property types shared by the codecs and stores, so that they agree on what
+ * is a single value and what is a nested bean. Wrappers are classified through
+ * {@link PrimitiveSupport#unwrap(Class)} like their primitive types.
+ * 
+ * @author Esko
+ */
+public final class PropertyTypes {
+    
+    /**
+     * Orders descriptors by property name, the order properties are written in.
+     */
+    public static final Comparator<PropertyDescriptor> BY_NAME = new Comparator<PropertyDescriptor>() {
+        public int compare(PropertyDescriptor left, PropertyDescriptor right) {
+            return left.getPropertyName().compareTo(right.getPropertyName());
+        }
+    };
+    
+    private PropertyTypes() {}
+    
+    /**
+     * @return <code>true</code> for numeric primitives, their wrappers, {@link BigDecimal} and
+     *         {@link BigInteger}.
+     */
+    public static boolean isNumber(Class<?> type) {
+        Class<?> primitive = PrimitiveSupport.unwrap(type);
+        if (primitive.isPrimitive()) {
+            return primitive != boolean.class && primitive != char.class && primitive != void.class;
+        }
+        return type == BigDecimal.class || type == BigInteger.class;
+    }
+    
+    /**
+     * @return <code>true</code> for types holding a single value which can be written as text;
+     *         primitives, wrappers, numbers, strings and enums.
+     */
+    public static boolean isScalar(Class<?> type) {
+        return (PrimitiveSupport.unwrap(type).isPrimitive() && type != void.class) || isNumber(type) 
+            || type == String.class || type.isEnum();
+    }
+    
+    /**
+     * @return <code>true</code> for concrete classes outside the platform's packages.
+     */
+    public static boolean isBean(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || type.isAnnotation() 
+                || Modifier.isAbstract(type.getModifiers())) {
+            return false;
+        }
+        return !isPlatform(type);
+    }
+    
+    /**
+     * @return <code>true</code> for classes of the <code>java</code>, <code>javax</code>,
+     *         <code>sun</code> and <code>jdk</code> packages.
+     */
+    public static boolean isPlatform(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.");
+    }
+}
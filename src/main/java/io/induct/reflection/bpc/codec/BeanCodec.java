@@ -0,0 +1,339 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.induct.reflection.bpc.PrimitiveSupport;
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.PropertyTypes;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+import io.induct.reflection.bpc.instantiation.ClassInstantiator;
+import io.induct.reflection.bpc.instantiation.ClassInstantiator.InstantiationPolicy;
+
+/**
+ * Compact binary codec for beans of a single class, built once per class from its writable
+ * properties.
+ * <p>
+ * Properties are written in name order without any names or type information; ints, shorts and
+ * longs as zigzag varints, floats and doubles as raw IEEE bits, strings as length prefixed UTF-8
+ * and enums as ordinals. Wrappers, strings, enums and nested beans may be <code>null</code>.
+ * Decoded beans are instantiated with {@link InstantiationPolicy#NICE} and populated through
+ * their mutators. Both ends must have the same version of the class, and object graphs with
+ * cycles can't be encoded.
+ * 
+ * @author Esko
+ */
+public class BeanCodec<T> {
+    
+    private static final int ENGINES = AccessorEngine.values().length;
+    
+    private static final ClassValue<BeanCodec<?>[]> CODECS = new ClassValue<BeanCodec<?>[]>() {
+        @Override
+        protected BeanCodec<?>[] computeValue(Class<?> c) {
+            return new BeanCodec<?>[ExtractionDepth.values().length * ENGINES];
+        }
+    };
+    
+    private static enum Kind {
+        BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE, STRING, ENUM, BEAN
+    }
+    
+    private final Class<T> c;
+    private final ExtractionDepth extractionDepth;
+    private final AccessorEngine engine;
+    private final PropertyDescriptor[] descriptors;
+    private final Kind[] kinds;
+    private final boolean[] nullable;
+    private final Object[][] constants;
+    private final BeanCodec<?>[] nested;
+    private final ClassInstantiator instantiator;
+    private final List<String> propertyNames;
+    
+    private BeanCodec(Class<T> c, ExtractionDepth extractionDepth, AccessorEngine engine) {
+        this.c = c;
+        this.extractionDepth = extractionDepth;
+        this.engine = engine;
+        
+        List<PropertyDescriptor> writable = new ArrayList<PropertyDescriptor>();
+        for (PropertyDescriptor descriptor : ClassMetadata.of(c, extractionDepth, engine).getDescriptors()) {
+            if (!descriptor.isReadOnly()) {
+                writable.add(descriptor);
+            }
+        }
+        Collections.sort(writable, PropertyTypes.BY_NAME);
+        
+        this.descriptors = writable.toArray(new PropertyDescriptor[writable.size()]);
+        this.kinds = new Kind[descriptors.length];
+        this.nullable = new boolean[descriptors.length];
+        this.constants = new Object[descriptors.length][];
+        this.nested = new BeanCodec<?>[descriptors.length];
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < descriptors.length; i++) {
+            Class<?> type = descriptors[i].getType();
+            kinds[i] = kindOf(type);
+            if (kinds[i] == null) {
+                throw new CodecException("Property '"+descriptors[i].getPropertyName()+"' of "+c.getName()
+                                        +" has type "+type.getName()+" which can't be encoded");
+            }
+            nullable[i] = !type.isPrimitive();
+            if (kinds[i] == Kind.ENUM) {
+                constants[i] = type.getEnumConstants();
+            }
+            names.add(descriptors[i].getPropertyName());
+        }
+        this.propertyNames = Collections.unmodifiableList(names);
+        this.instantiator = new ClassInstantiator(c, InstantiationPolicy.NICE);
+    }
+    
+    public static <T> BeanCodec<T> of(Class<T> c) {
+        return of(c, ExtractionDepth.METHODS, AccessorEngine.REFLECTION);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <T> BeanCodec<T> of(Class<T> c, ExtractionDepth extractionDepth, AccessorEngine engine) {
+        BeanCodec<?>[] slots = CODECS.get(c);
+        int slot = extractionDepth.ordinal() * ENGINES + engine.ordinal();
+        BeanCodec<T> codec = (BeanCodec<T>) slots[slot];
+        if (codec == null) {
+            // racing threads may both build the codec, either result is equally valid
+            codec = new BeanCodec<T>(c, extractionDepth, engine);
+            slots[slot] = codec;
+        }
+        return codec;
+    }
+    
+    private static Kind kindOf(Class<?> type) {
+        Class<?> primitive = PrimitiveSupport.unwrap(type);
+        if (primitive == int.class) {
+            return Kind.INT;
+        } else if (primitive == long.class) {
+            return Kind.LONG;
+        } else if (primitive == double.class) {
+            return Kind.DOUBLE;
+        } else if (primitive == boolean.class) {
+            return Kind.BOOLEAN;
+        } else if (primitive == float.class) {
+            return Kind.FLOAT;
+        } else if (primitive == short.class) {
+            return Kind.SHORT;
+        } else if (primitive == byte.class) {
+            return Kind.BYTE;
+        } else if (primitive == char.class) {
+            return Kind.CHAR;
+        } else if (type == String.class) {
+            return Kind.STRING;
+        } else if (type.isEnum()) {
+            return Kind.ENUM;
+        } else if (PropertyTypes.isBean(type)) {
+            return Kind.BEAN;
+        }
+        return null;
+    }
+    
+    /**
+     * Nested codecs are resolved on first use so that classes may refer to each other.
+     */
+    private BeanCodec<?> nested(int i) {
+        BeanCodec<?> codec = nested[i];
+        if (codec == null) {
+            codec = of(descriptors[i].getType(), extractionDepth, engine);
+            nested[i] = codec;
+        }
+        return codec;
+    }
+    
+    public byte[] encode(T bean) {
+        BinaryOutput out = new BinaryOutput(descriptors.length * 4);
+        write(bean, out);
+        return out.toByteArray();
+    }
+    
+    public void encode(T bean, OutputStream out) throws IOException {
+        BinaryOutput buffer = new BinaryOutput(descriptors.length * 4);
+        write(bean, buffer);
+        buffer.writeTo(out);
+    }
+    
+    public T decode(byte[] bytes) {
+        return decode(bytes, 0, bytes.length);
+    }
+    
+    public T decode(byte[] bytes, int offset, int length) {
+        return read(new BinaryInput(bytes, offset, length));
+    }
+    
+    /**
+     * Decodes a single bean from given stream, leaving it positioned right after the bean.
+     */
+    public T decode(InputStream in) {
+        return read(new BinaryInput(in));
+    }
+    
+    /**
+     * Encodes given object which must be an instance of the codec's class.
+     */
+    public byte[] encodeObject(Object bean) {
+        return encode(c.cast(bean));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void writeNested(int i, Object bean, BinaryOutput out) {
+        ((BeanCodec<Object>) nested(i)).write(bean, out);
+    }
+    
+    private void write(T bean, BinaryOutput out) {
+        for (int i = 0; i < descriptors.length; i++) {
+            PropertyDescriptor descriptor = descriptors[i];
+            Object value = null;
+            if (nullable[i] && kinds[i] != Kind.STRING) {
+                value = descriptor.access(bean);
+                out.writeByte((value == null) ? 0 : 1);
+                if (value == null) {
+                    continue;
+                }
+            }
+            switch (kinds[i]) {
+                case BOOLEAN:
+                    out.writeByte((value != null ? (Boolean) value : descriptor.accessBoolean(bean)) ? 1 : 0);
+                    break;
+                case BYTE:
+                    out.writeByte(((Number) (value != null ? value : descriptor.access(bean))).byteValue());
+                    break;
+                case SHORT:
+                    out.writeVarInt(((Number) (value != null ? value : descriptor.access(bean))).shortValue());
+                    break;
+                case CHAR:
+                    out.writeUnsignedVarLong((Character) (value != null ? value : descriptor.access(bean)));
+                    break;
+                case INT:
+                    out.writeVarInt(value != null ? (Integer) value : descriptor.accessInt(bean));
+                    break;
+                case LONG:
+                    out.writeVarLong(value != null ? (Long) value : descriptor.accessLong(bean));
+                    break;
+                case FLOAT:
+                    out.writeFixedInt(Float.floatToRawIntBits(((Number) (value != null ? value : descriptor.access(bean))).floatValue()));
+                    break;
+                case DOUBLE:
+                    out.writeFixedLong(Double.doubleToRawLongBits(value != null ? (Double) value : descriptor.accessDouble(bean)));
+                    break;
+                case STRING:
+                    out.writeString((String) descriptor.access(bean));
+                    break;
+                case ENUM:
+                    out.writeUnsignedVarLong(((Enum<?>) value).ordinal());
+                    break;
+                default:
+                    writeNested(i, value, out);
+            }
+        }
+    }
+    
+    private T read(BinaryInput in) {
+        T bean = c.cast(instantiator.instantiate());
+        for (int i = 0; i < descriptors.length; i++) {
+            PropertyDescriptor descriptor = descriptors[i];
+            boolean boxed = nullable[i] && kinds[i] != Kind.STRING;
+            if (boxed && in.readByte() == 0) {
+                descriptor.mutate(bean, null);
+                continue;
+            }
+            switch (kinds[i]) {
+                case BOOLEAN:
+                    if (boxed) {
+                        descriptor.mutate(bean, in.readByte() != 0);
+                    } else {
+                        descriptor.mutateBoolean(bean, in.readByte() != 0);
+                    }
+                    break;
+                case BYTE:
+                    descriptor.mutate(bean, (byte) in.readByte());
+                    break;
+                case SHORT:
+                    descriptor.mutate(bean, (short) in.readVarInt());
+                    break;
+                case CHAR:
+                    descriptor.mutate(bean, (char) in.readUnsignedVarLong());
+                    break;
+                case INT:
+                    if (boxed) {
+                        descriptor.mutate(bean, in.readVarInt());
+                    } else {
+                        descriptor.mutateInt(bean, in.readVarInt());
+                    }
+                    break;
+                case LONG:
+                    if (boxed) {
+                        descriptor.mutate(bean, in.readVarLong());
+                    } else {
+                        descriptor.mutateLong(bean, in.readVarLong());
+                    }
+                    break;
+                case FLOAT:
+                    descriptor.mutate(bean, Float.intBitsToFloat(in.readFixedInt()));
+                    break;
+                case DOUBLE:
+                    if (boxed) {
+                        descriptor.mutate(bean, Double.longBitsToDouble(in.readFixedLong()));
+                    } else {
+                        descriptor.mutateDouble(bean, Double.longBitsToDouble(in.readFixedLong()));
+                    }
+                    break;
+                case STRING:
+                    descriptor.mutate(bean, in.readString());
+                    break;
+                case ENUM:
+                    long ordinal = in.readUnsignedVarLong();
+                    if (ordinal < 0 || ordinal >= constants[i].length) {
+                        throw new CodecException("Unknown constant "+Long.toUnsignedString(ordinal)
+                                                +" of "+descriptor.getType().getName());
+                    }
+                    descriptor.mutate(bean, constants[i][(int) ordinal]);
+                    break;
+                default:
+                    descriptor.mutate(bean, nested(i).read(in));
+            }
+        }
+        return bean;
+    }
+    
+    /**
+     * @return Names of the encoded properties in encoding order.
+     */
+    public List<String> getPropertyNames() {
+        return propertyNames;
+    }
+    
+    public Class<T> getType() {
+        return c;
+    }
+}
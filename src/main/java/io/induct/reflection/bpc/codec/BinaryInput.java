@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the primitive encodings of {@link BinaryOutput} from a byte array or a stream. Streams
+ * are read one byte at a time so that nothing past the decoded bean is consumed, which is why
+ * they should be buffered.
+ * 
+ * @author Esko
+ */
+final class BinaryInput {
+    
+    private final byte[] buffer;
+    private final InputStream in;
+    private int position;
+    private final int limit;
+    
+    BinaryInput(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.in = null;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+    
+    BinaryInput(InputStream in) {
+        this.buffer = null;
+        this.in = in;
+        this.limit = 0;
+    }
+    
+    int readByte() {
+        if (in != null) {
+            int b;
+            try {
+                b = in.read();
+            } catch (IOException e) {
+                throw new CodecException("Couldn't read encoded bean", e);
+            }
+            if (b < 0) {
+                throw new CodecException("Unexpected end of encoded bean");
+            }
+            return b;
+        }
+        if (position >= limit) {
+            throw new CodecException("Unexpected end of encoded bean");
+        }
+        return buffer[position++] & 0xFF;
+    }
+    
+    long readUnsignedVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new CodecException("Malformed variable length integer");
+    }
+    
+    int readVarInt() {
+        int raw = (int) readUnsignedVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+    
+    long readVarLong() {
+        long raw = readUnsignedVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+    
+    int readFixedInt() {
+        return readByte() | (readByte() << 8) | (readByte() << 16) | (readByte() << 24);
+    }
+    
+    long readFixedLong() {
+        return (readFixedInt() & 0xFFFFFFFFL) | ((long) readFixedInt() << 32);
+    }
+    
+    /**
+     * @throws CodecException if the length prefix is negative or runs past the encoded bean.
+     */
+    String readString() {
+        long prefix = readUnsignedVarLong();
+        if (prefix == 0) {
+            return null;
+        }
+        if (prefix < 0 || prefix - 1 > Integer.MAX_VALUE) {
+            throw new CodecException("Malformed string length "+Long.toUnsignedString(prefix - 1));
+        }
+        int length = (int) (prefix - 1);
+        if (in == null) {
+            if (length > limit - position) {
+                throw new CodecException("Unexpected end of encoded bean");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        // grows with the bytes actually read so that a corrupt length can't exhaust the heap
+        byte[] bytes = new byte[Math.min(length, 8192)];
+        for (int i = 0; i < length; i++) {
+            if (i == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * i));
+            }
+            bytes[i] = (byte) readByte();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with the primitive encodings of {@link BeanCodec}.
+ * 
+ * @author Esko
+ */
+final class BinaryOutput {
+    
+    private byte[] buffer;
+    private int position;
+    
+    BinaryOutput(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+    
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + bytes));
+        }
+    }
+    
+    void writeByte(int value) {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+    
+    void writeUnsignedVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+    
+    /**
+     * Zigzag encoded so that small negative values stay short.
+     */
+    void writeVarInt(int value) {
+        writeUnsignedVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+    
+    void writeVarLong(long value) {
+        writeUnsignedVarLong((value << 1) ^ (value >> 63));
+    }
+    
+    void writeFixedInt(int value) {
+        ensure(4);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 24);
+    }
+    
+    void writeFixedLong(long value) {
+        writeFixedInt((int) value);
+        writeFixedInt((int) (value >>> 32));
+    }
+    
+    /**
+     * Length prefixed UTF-8, where length 0 is <code>null</code> and all other lengths are off by one.
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeByte(0);
+            return;
+        }
+        int length = value.length();
+        int ascii = 0;
+        while (ascii < length && value.charAt(ascii) < 0x80) {
+            ascii++;
+        }
+        if (ascii == length) {
+            writeUnsignedVarLong(length + 1);
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                buffer[position++] = (byte) value.charAt(i);
+            }
+        } else {
+            byte[] bytes = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            writeUnsignedVarLong(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+    }
+    
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+    
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, position);
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.codec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import io.induct.reflection.bpc.PrimitiveSupport;
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.PropertyTypes;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+import io.induct.reflection.bpc.instantiation.ClassInstantiator;
+import io.induct.reflection.bpc.instantiation.ClassInstantiator.InstantiationPolicy;
+
+/**
+ * Streaming reader of UTF-8 delimited text (CSV, TSV) with a header row, binding the header
+ * columns to properties of a bean class once.
+ * <p>
+ * Cells are parsed from a reusable byte buffer; int, long, double and boolean properties are
+ * mutated with their primitive values without creating strings. Quoted cells may contain
+ * delimiters, line breaks and doubled quotes. Empty cells leave primitive properties untouched
+ * and set other properties to <code>null</code>. Columns which don't match a writable property
+ * are skipped.
+ * 
+ * @author Esko
+ */
+public class DelimitedReader<T> implements Closeable {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final int DELIMITER = 0;
+    private static final int END_OF_ROW = 1;
+    private static final int END_OF_INPUT = 2;
+    
+    private static enum Kind {
+        INT, LONG, DOUBLE, BOOLEAN, STRING, OTHER
+    }
+    
+    private final Class<T> c;
+    private final ClassMetadata metadata;
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte delimiter;
+    private final ClassInstantiator instantiator;
+    
+    private byte[] cell = new byte[256];
+    private int cellLength;
+    private boolean cellQuoted;
+    private boolean exhausted;
+    
+    private List<String> columns;
+    private PropertyDescriptor[] bindings;
+    private Kind[] kinds;
+    private long row;
+    
+    private DelimitedReader(Class<T> c, ReadableByteChannel channel, ByteBuffer buffer, char delimiter,
+                            ExtractionDepth extractionDepth, AccessorEngine engine) {
+        if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Unsupported delimiter '"+delimiter+"'");
+        }
+        this.c = c;
+        this.metadata = ClassMetadata.of(c, extractionDepth, engine);
+        this.channel = channel;
+        this.buffer = buffer;
+        this.delimiter = (byte) delimiter;
+        this.instantiator = new ClassInstantiator(c, InstantiationPolicy.NICE);
+    }
+    
+    public static <T> DelimitedReader<T> of(Class<T> c, ReadableByteChannel channel) {
+        return of(c, channel, ',');
+    }
+    
+    public static <T> DelimitedReader<T> of(Class<T> c, ReadableByteChannel channel, char delimiter) {
+        return of(c, channel, delimiter, ExtractionDepth.METHODS, AccessorEngine.REFLECTION);
+    }
+    
+    public static <T> DelimitedReader<T> of(Class<T> c, ReadableByteChannel channel, char delimiter,
+                                            ExtractionDepth extractionDepth, AccessorEngine engine) {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.flip();
+        return new DelimitedReader<T>(c, channel, buffer, delimiter, extractionDepth, engine);
+    }
+    
+    /**
+     * Reads all rows from given buffer, for example a memory mapped file.
+     */
+    public static <T> DelimitedReader<T> of(Class<T> c, ByteBuffer buffer, char delimiter) {
+        return new DelimitedReader<T>(c, null, buffer.slice(), delimiter, ExtractionDepth.METHODS, AccessorEngine.REFLECTION);
+    }
+    
+    /**
+     * @return Names of the header columns.
+     */
+    public List<String> getColumns() throws IOException {
+        bind();
+        return columns;
+    }
+    
+    /**
+     * @return Number of rows read, excluding the header.
+     */
+    public long getRowCount() {
+        return row;
+    }
+    
+    /**
+     * @return Next row as a new bean or <code>null</code> if all rows have been read.
+     */
+    public T read() throws IOException {
+        bind();
+        if (exhausted) {
+            return null;
+        }
+        T bean = c.cast(instantiator.instantiate());
+        return readInto(bean) ? bean : null;
+    }
+    
+    /**
+     * Mutates the properties of given bean to the values of the next row.
+     * 
+     * @return <code>false</code> if all rows have been read.
+     */
+    public boolean readInto(T bean) throws IOException {
+        bind();
+        if (exhausted) {
+            return false;
+        }
+        int column = 0;
+        int terminator;
+        do {
+            terminator = readCell();
+            if (column == 0 && terminator != DELIMITER && cellLength == 0 && !cellQuoted) {
+                // blank line
+                if (terminator == END_OF_INPUT) {
+                    exhausted = true;
+                    return false;
+                }
+                continue;
+            }
+            if (column < bindings.length && bindings[column] != null) {
+                apply(column, bean);
+            }
+            column++;
+        } while (terminator == DELIMITER || column == 0);
+        if (terminator == END_OF_INPUT) {
+            exhausted = true;
+        }
+        row++;
+        return true;
+    }
+    
+    /**
+     * Reads all remaining rows into new beans.
+     * 
+     * @return Number of rows read.
+     */
+    public long forEach(Consumer<? super T> consumer) throws IOException {
+        long count = 0;
+        T bean;
+        while ((bean = read()) != null) {
+            consumer.accept(bean);
+            count++;
+        }
+        return count;
+    }
+    
+    private void bind() throws IOException {
+        if (columns != null) {
+            return;
+        }
+        List<String> names = new ArrayList<String>();
+        int terminator;
+        do {
+            terminator = readCell();
+            if (terminator == END_OF_INPUT && cellLength == 0 && names.isEmpty()) {
+                break;
+            }
+            names.add(new String(cell, 0, cellLength, StandardCharsets.UTF_8).trim());
+        } while (terminator == DELIMITER);
+        if (terminator == END_OF_INPUT) {
+            exhausted = true;
+        }
+        
+        this.bindings = new PropertyDescriptor[names.size()];
+        this.kinds = new Kind[names.size()];
+        for (int i = 0; i < bindings.length; i++) {
+            int index = metadata.indexOf(names.get(i));
+            if (index < 0 || metadata.getDescriptor(index).isReadOnly()) {
+                continue;
+            }
+            PropertyDescriptor descriptor = metadata.getDescriptor(index);
+            kinds[i] = kindOf(descriptor);
+            bindings[i] = descriptor;
+        }
+        this.columns = Collections.unmodifiableList(names);
+    }
+    
+    private static Kind kindOf(PropertyDescriptor descriptor) {
+        Class<?> type = descriptor.getType();
+        if (type == int.class) {
+            return Kind.INT;
+        } else if (type == long.class) {
+            return Kind.LONG;
+        } else if (type == double.class) {
+            return Kind.DOUBLE;
+        } else if (type == boolean.class) {
+            return Kind.BOOLEAN;
+        } else if (type == String.class) {
+            return Kind.STRING;
+        } else if (PropertyTypes.isScalar(type)) {
+            return Kind.OTHER;
+        }
+        throw new CodecException("Property '"+descriptor.getPropertyName()+"' has type "+type.getName()
+                                +" which can't be read from delimited text");
+    }
+    
+    private void apply(int column, T bean) {
+        PropertyDescriptor descriptor = bindings[column];
+        if (cellLength == 0 && !cellQuoted) {
+            if (!descriptor.getType().isPrimitive()) {
+                descriptor.mutate(bean, null);
+            }
+            return;
+        }
+        switch (kinds[column]) {
+            case INT:
+                long value = parseLong(descriptor);
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    throw unparseable(descriptor);
+                }
+                descriptor.mutateInt(bean, (int) value);
+                break;
+            case LONG:
+                descriptor.mutateLong(bean, parseLong(descriptor));
+                break;
+            case DOUBLE:
+                descriptor.mutateDouble(bean, parseDouble(descriptor));
+                break;
+            case BOOLEAN:
+                descriptor.mutateBoolean(bean, parseBoolean(descriptor));
+                break;
+            case STRING:
+                descriptor.mutate(bean, new String(cell, 0, cellLength, StandardCharsets.UTF_8));
+                break;
+            default:
+                descriptor.mutate(bean, convert(descriptor, new String(cell, 0, cellLength, StandardCharsets.UTF_8).trim()));
+        }
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object convert(PropertyDescriptor descriptor, String value) {
+        Class<?> type = descriptor.getType();
+        Class<?> primitive = PrimitiveSupport.unwrap(type);
+        try {
+            if (type.isEnum()) {
+                return Enum.valueOf((Class<Enum>) type, value);
+            } else if (primitive == int.class) {
+                return Integer.valueOf(value);
+            } else if (primitive == long.class) {
+                return Long.valueOf(value);
+            } else if (primitive == double.class) {
+                return Double.valueOf(value);
+            } else if (primitive == boolean.class) {
+                return parseBoolean(descriptor);
+            } else if (primitive == float.class) {
+                return Float.valueOf(value);
+            } else if (primitive == short.class) {
+                return Short.valueOf(value);
+            } else if (primitive == byte.class) {
+                return Byte.valueOf(value);
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(value);
+            } else if (type == BigInteger.class) {
+                return new BigInteger(value);
+            } else if (value.length() == 1) {
+                return value.charAt(0);
+            }
+        } catch (IllegalArgumentException e) {
+            // handled below
+        }
+        throw unparseable(descriptor);
+    }
+    
+    private long parseLong(PropertyDescriptor descriptor) {
+        int start = trimStart();
+        try {
+            return NumberParser.parseLong(cell, start, trimEnd(start));
+        } catch (NumberFormatException e) {
+            throw unparseable(descriptor);
+        }
+    }
+    
+    private double parseDouble(PropertyDescriptor descriptor) {
+        int start = trimStart();
+        try {
+            return NumberParser.parseDouble(cell, start, trimEnd(start));
+        } catch (NumberFormatException e) {
+            throw unparseable(descriptor);
+        }
+    }
+    
+    private int trimStart() {
+        int i = 0;
+        while (i < cellLength && cell[i] == ' ') i++;
+        return i;
+    }
+    
+    private int trimEnd(int start) {
+        int end = cellLength;
+        while (end > start && cell[end - 1] == ' ') end--;
+        return end;
+    }
+    
+    private boolean parseBoolean(PropertyDescriptor descriptor) {
+        if (matches("true") || matches("1")) {
+            return true;
+        } else if (matches("false") || matches("0")) {
+            return false;
+        }
+        throw unparseable(descriptor);
+    }
+    
+    private boolean matches(String value) {
+        int i = trimStart();
+        int end = trimEnd(i);
+        if (end - i != value.length()) {
+            return false;
+        }
+        for (int j = 0; j < value.length(); j++) {
+            if (Character.toLowerCase((char) cell[i + j]) != value.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private CodecException unparseable(PropertyDescriptor descriptor) {
+        return new CodecException("Can't parse '"+new String(cell, 0, cellLength, StandardCharsets.UTF_8)
+                                 +"' as "+descriptor.getType().getName()+" for property '"
+                                 +descriptor.getPropertyName()+"' on row "+(row + 1));
+    }
+    
+    /**
+     * Reads the next cell into the cell buffer.
+     * 
+     * @return What ended the cell.
+     */
+    private int readCell() throws IOException {
+        cellLength = 0;
+        cellQuoted = false;
+        boolean inQuotes = false;
+        while (true) {
+            int b = next();
+            if (b < 0) {
+                if (inQuotes) {
+                    throw new CodecException("Unterminated quoted cell on row "+(row + 1));
+                }
+                return END_OF_INPUT;
+            }
+            if (inQuotes) {
+                if (b == '"') {
+                    int following = peek();
+                    if (following == '"') {
+                        next();
+                        append(b);
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    append(b);
+                }
+            } else if (b == delimiter) {
+                return DELIMITER;
+            } else if (b == '\n') {
+                return END_OF_ROW;
+            } else if (b == '"' && cellLength == 0) {
+                inQuotes = true;
+                cellQuoted = true;
+            } else if (b != '\r') {
+                append(b);
+            }
+        }
+    }
+    
+    private void append(int b) {
+        if (cellLength == cell.length) {
+            cell = Arrays.copyOf(cell, cell.length << 1);
+        }
+        cell[cellLength++] = (byte) b;
+    }
+    
+    private int next() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+    
+    private int peek() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+    
+    private boolean fill() throws IOException {
+        if (channel == null) {
+            return false;
+        }
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        return read > 0;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.codec;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.PropertyTypes;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+
+/**
+ * Streaming writer of delimited text (CSV, TSV) readable by {@link DelimitedReader}. Columns are
+ * bound to properties once and the header row is written before the first bean.
+ * <p>
+ * <code>null</code> values are written as empty cells, cells containing the delimiter, quotes or
+ * line breaks are quoted.
+ * 
+ * @author Esko
+ */
+public class DelimitedWriter<T> implements Closeable, Flushable {
+    
+    private final Writer out;
+    private final char delimiter;
+    private final PropertyDescriptor[] columns;
+    private final char[] digits = new char[20];
+    private boolean headerWritten;
+    
+    private DelimitedWriter(Writer out, char delimiter, PropertyDescriptor[] columns) {
+        this.out = out;
+        this.delimiter = delimiter;
+        this.columns = columns;
+    }
+    
+    /**
+     * Writes all simply typed properties of the class in name order.
+     */
+    public static <T> DelimitedWriter<T> of(Class<T> c, Writer out, char delimiter) {
+        List<PropertyDescriptor> simple = new ArrayList<PropertyDescriptor>();
+        for (PropertyDescriptor descriptor : ClassMetadata.of(c, ExtractionDepth.METHODS).getDescriptors()) {
+            if (PropertyTypes.isScalar(descriptor.getType())) {
+                simple.add(descriptor);
+            }
+        }
+        Collections.sort(simple, PropertyTypes.BY_NAME);
+        return new DelimitedWriter<T>(out, delimiter, simple.toArray(new PropertyDescriptor[simple.size()]));
+    }
+    
+    /**
+     * Writes given properties in given order.
+     */
+    public static <T> DelimitedWriter<T> of(Class<T> c, Writer out, char delimiter, 
+                                            ExtractionDepth extractionDepth, AccessorEngine engine, String... columns) {
+        ClassMetadata metadata = ClassMetadata.of(c, extractionDepth, engine);
+        PropertyDescriptor[] descriptors = new PropertyDescriptor[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            descriptors[i] = metadata.getDescriptor(columns[i]);
+            if (!PropertyTypes.isScalar(descriptors[i].getType())) {
+                throw new CodecException("Property '"+columns[i]+"' has type "+descriptors[i].getType().getName()
+                                        +" which can't be written as delimited text");
+            }
+        }
+        return new DelimitedWriter<T>(out, delimiter, descriptors);
+    }
+    
+    public void write(T bean) throws IOException {
+        if (!headerWritten) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    out.write(delimiter);
+                }
+                writeText(columns[i].getPropertyName());
+            }
+            out.write('\n');
+            headerWritten = true;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                out.write(delimiter);
+            }
+            PropertyDescriptor descriptor = columns[i];
+            Class<?> type = descriptor.getType();
+            if (type == int.class || type == long.class) {
+                writeLong(descriptor.accessLong(bean));
+            } else if (type == double.class) {
+                out.write(Double.toString(descriptor.accessDouble(bean)));
+            } else if (type == boolean.class) {
+                out.write(descriptor.accessBoolean(bean) ? "true" : "false");
+            } else {
+                Object value = descriptor.access(bean);
+                if (value instanceof Enum) {
+                    out.write(((Enum<?>) value).name());
+                } else if (value != null) {
+                    writeText(value.toString());
+                }
+            }
+        }
+        out.write('\n');
+    }
+    
+    public void writeAll(Iterable<? extends T> beans) throws IOException {
+        for (T bean : beans) {
+            write(bean);
+        }
+    }
+    
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.write(Long.toString(value));
+            return;
+        }
+        boolean negative = value < 0;
+        if (negative) {
+            value = -value;
+        }
+        int i = digits.length;
+        do {
+            digits[--i] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        if (negative) {
+            digits[--i] = '-';
+        }
+        out.write(digits, i, digits.length - i);
+    }
+    
+    private void writeText(String value) throws IOException {
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char ch = value.charAt(i);
+            quote = ch == delimiter || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"') {
+                out.write('"');
+            }
+            out.write(ch);
+        }
+        out.write('"');
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
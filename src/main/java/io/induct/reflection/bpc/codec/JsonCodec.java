@@ -0,0 +1,435 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.PropertyTypes;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+import io.induct.reflection.bpc.extraction.NameIndex;
+import io.induct.reflection.bpc.instantiation.ClassInstantiator;
+import io.induct.reflection.bpc.instantiation.ClassInstantiator.InstantiationPolicy;
+
+/**
+ * Streaming JSON codec for beans of a single class, built once per class from its properties.
+ * <p>
+ * Beans are written as objects with their properties in name order. Property keys are encoded to
+ * UTF-8 once per class and primitive properties are written without boxing. Arrays, collections
+ * and maps are written as JSON arrays and objects, other beans as nested objects.
+ * <p>
+ * Decoded beans are instantiated with {@link InstantiationPolicy#NICE} and keys are dispatched to
+ * mutators through a case-insensitive {@link NameIndex} straight from the parsed bytes. Unknown keys,
+ * read-only properties and properties of array, collection or map types are skipped when reading.
+ * Object graphs with cycles can't be encoded.
+ * 
+ * @author Esko
+ */
+public class JsonCodec<T> {
+    
+    private static final int ENGINES = AccessorEngine.values().length;
+    
+    private static final ClassValue<JsonCodec<?>[]> CODECS = new ClassValue<JsonCodec<?>[]>() {
+        @Override
+        protected JsonCodec<?>[] computeValue(Class<?> c) {
+            return new JsonCodec<?>[ExtractionDepth.values().length * ENGINES];
+        }
+    };
+    
+    private static enum Kind {
+        INT, LONG, DOUBLE, BOOLEAN, NUMBER, CHAR, STRING, ENUM, BEAN, VALUE
+    }
+    
+    private final Class<T> c;
+    private final ExtractionDepth extractionDepth;
+    private final AccessorEngine engine;
+    private final PropertyDescriptor[] descriptors;
+    private final Kind[] kinds;
+    private final byte[][] keys;
+    private final NameIndex index;
+    private final JsonCodec<?>[] nested;
+    private final ClassInstantiator instantiator;
+    
+    private JsonCodec(Class<T> c, ExtractionDepth extractionDepth, AccessorEngine engine) {
+        this.c = c;
+        this.extractionDepth = extractionDepth;
+        this.engine = engine;
+        
+        List<PropertyDescriptor> sorted = new ArrayList<PropertyDescriptor>(ClassMetadata.of(c, extractionDepth, engine).getDescriptors());
+        Collections.sort(sorted, PropertyTypes.BY_NAME);
+        this.descriptors = sorted.toArray(new PropertyDescriptor[sorted.size()]);
+        this.kinds = new Kind[descriptors.length];
+        this.keys = new byte[descriptors.length][];
+        this.nested = new JsonCodec<?>[descriptors.length];
+        String[] names = new String[descriptors.length];
+        for (int i = 0; i < descriptors.length; i++) {
+            kinds[i] = kindOf(descriptors[i].getType());
+            names[i] = descriptors[i].getPropertyName();
+            keys[i] = ((i > 0 ? ",\"" : "\"") + names[i] + "\":").getBytes(StandardCharsets.UTF_8);
+        }
+        this.index = NameIndex.of(names);
+        this.instantiator = new ClassInstantiator(c, InstantiationPolicy.NICE);
+    }
+    
+    public static <T> JsonCodec<T> of(Class<T> c) {
+        return of(c, ExtractionDepth.METHODS, AccessorEngine.REFLECTION);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <T> JsonCodec<T> of(Class<T> c, ExtractionDepth extractionDepth, AccessorEngine engine) {
+        JsonCodec<?>[] slots = CODECS.get(c);
+        int slot = extractionDepth.ordinal() * ENGINES + engine.ordinal();
+        JsonCodec<T> codec = (JsonCodec<T>) slots[slot];
+        if (codec == null) {
+            // racing threads may both build the codec, either result is equally valid
+            codec = new JsonCodec<T>(c, extractionDepth, engine);
+            slots[slot] = codec;
+        }
+        return codec;
+    }
+    
+    private static Kind kindOf(Class<?> type) {
+        if (type == int.class) {
+            return Kind.INT;
+        } else if (type == long.class) {
+            return Kind.LONG;
+        } else if (type == double.class) {
+            return Kind.DOUBLE;
+        } else if (type == boolean.class) {
+            return Kind.BOOLEAN;
+        } else if (type == String.class) {
+            return Kind.STRING;
+        } else if (type == char.class || type == Character.class) {
+            return Kind.CHAR;
+        } else if (type == Boolean.class || PropertyTypes.isNumber(type)) {
+            return Kind.NUMBER;
+        } else if (type.isEnum()) {
+            return Kind.ENUM;
+        } else if (PropertyTypes.isBean(type)) {
+            return Kind.BEAN;
+        }
+        return Kind.VALUE;
+    }
+    
+    /**
+     * Nested codecs are resolved on first use so that classes may refer to each other.
+     */
+    private JsonCodec<?> nested(int i) {
+        JsonCodec<?> codec = nested[i];
+        if (codec == null) {
+            codec = of(descriptors[i].getType(), extractionDepth, engine);
+            nested[i] = codec;
+        }
+        return codec;
+    }
+    
+    public byte[] encode(T bean) {
+        JsonOutput out = new JsonOutput(descriptors.length * 16, null);
+        try {
+            write(bean, out);
+        } catch (IOException e) {
+            throw new CodecException("Couldn't encode "+c.getName(), e);
+        }
+        return out.toByteArray();
+    }
+    
+    public void encode(T bean, OutputStream out) throws IOException {
+        JsonOutput json = new JsonOutput(8192, out);
+        write(bean, json);
+        json.flush();
+    }
+    
+    /**
+     * Encodes straight into given buffer through a scratch array sized from the bean's properties.
+     * 
+     * @throws BufferOverflowException if the target doesn't have enough room, its position is left
+     *             unchanged.
+     */
+    public void encode(T bean, final ByteBuffer target) {
+        int start = target.position();
+        JsonOutput out = new JsonOutput(Math.min(target.remaining(), descriptors.length * 16), new OutputStream() {
+            @Override
+            public void write(int b) {
+                target.put((byte) b);
+            }
+            
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                target.put(bytes, offset, length);
+            }
+        });
+        try {
+            write(bean, out);
+            out.flush();
+        } catch (BufferOverflowException e) {
+            target.position(start);
+            throw e;
+        } catch (IOException e) {
+            throw new CodecException("Couldn't encode "+c.getName(), e);
+        }
+    }
+    
+    public T decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+    
+    /**
+     * Decodes a bean from the remaining bytes of given buffer, leaving it positioned right after the bean.
+     */
+    public T decode(ByteBuffer buffer) {
+        return read(new JsonInput(buffer));
+    }
+    
+    public T decode(InputStream in) {
+        return read(new JsonInput(in));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static void writeBean(Object bean, JsonOutput out) throws IOException {
+        ((JsonCodec<Object>) of(bean.getClass())).write(bean, out);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void writeNested(int i, Object bean, JsonOutput out) throws IOException {
+        if (bean.getClass() == descriptors[i].getType()) {
+            ((JsonCodec<Object>) nested(i)).write(bean, out);
+        } else {
+            writeBean(bean, out);
+        }
+    }
+    
+    private void write(T bean, JsonOutput out) throws IOException {
+        out.writeByte('{');
+        for (int i = 0; i < descriptors.length; i++) {
+            PropertyDescriptor descriptor = descriptors[i];
+            out.writeBytes(keys[i]);
+            switch (kinds[i]) {
+                case INT:
+                    out.writeLong(descriptor.accessInt(bean));
+                    break;
+                case LONG:
+                    out.writeLong(descriptor.accessLong(bean));
+                    break;
+                case DOUBLE:
+                    out.writeDouble(descriptor.accessDouble(bean));
+                    break;
+                case BOOLEAN:
+                    out.writeBoolean(descriptor.accessBoolean(bean));
+                    break;
+                case STRING:
+                    String string = (String) descriptor.access(bean);
+                    if (string == null) {
+                        out.writeNull();
+                    } else {
+                        out.writeString(string);
+                    }
+                    break;
+                case BEAN:
+                    Object value = descriptor.access(bean);
+                    if (value == null) {
+                        out.writeNull();
+                    } else {
+                        writeNested(i, value, out);
+                    }
+                    break;
+                default:
+                    writeValue(descriptor.access(bean), out);
+            }
+        }
+        out.writeByte('}');
+    }
+    
+    private static void writeValue(Object value, JsonOutput out) throws IOException {
+        if (value == null) {
+            out.writeNull();
+        } else if (value instanceof CharSequence || value instanceof Character) {
+            out.writeString(value.toString());
+        } else if (value instanceof Boolean) {
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            out.writeAscii(value.toString());
+        } else if (value instanceof Enum) {
+            out.writeString(((Enum<?>) value).name());
+        } else if (value.getClass().isArray()) {
+            out.writeByte('[');
+            for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                if (i > 0) {
+                    out.writeByte(',');
+                }
+                writeValue(Array.get(value, i), out);
+            }
+            out.writeByte(']');
+        } else if (value instanceof Iterable) {
+            out.writeByte('[');
+            boolean first = true;
+            for (Object element : (Iterable<?>) value) {
+                if (!first) {
+                    out.writeByte(',');
+                }
+                writeValue(element, out);
+                first = false;
+            }
+            out.writeByte(']');
+        } else if (value instanceof Map) {
+            out.writeByte('{');
+            boolean first = true;
+            for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    out.writeByte(',');
+                }
+                out.writeString(String.valueOf(entry.getKey()));
+                out.writeByte(':');
+                writeValue(entry.getValue(), out);
+                first = false;
+            }
+            out.writeByte('}');
+        } else {
+            writeBean(value, out);
+        }
+    }
+    
+    private T read(JsonInput in) {
+        T bean = c.cast(instantiator.instantiate());
+        in.expect('{');
+        if (in.consume('}')) {
+            return bean;
+        }
+        do {
+            in.readStringBytes();
+            int i = index.indexOf(in.scratch, 0, in.scratchLength);
+            in.expect(':');
+            if (i < 0 || descriptors[i].isReadOnly() || kinds[i] == Kind.VALUE) {
+                in.skipValue();
+                continue;
+            }
+            PropertyDescriptor descriptor = descriptors[i];
+            if (in.consumeNull()) {
+                if (!descriptor.getType().isPrimitive()) {
+                    descriptor.mutate(bean, null);
+                }
+                continue;
+            }
+            switch (kinds[i]) {
+                case INT:
+                    descriptor.mutateInt(bean, (int) readIntegral(descriptor, in, Integer.MIN_VALUE, Integer.MAX_VALUE));
+                    break;
+                case LONG:
+                    descriptor.mutateLong(bean, in.readLong());
+                    break;
+                case DOUBLE:
+                    descriptor.mutateDouble(bean, in.readDouble());
+                    break;
+                case BOOLEAN:
+                    descriptor.mutateBoolean(bean, in.readBoolean());
+                    break;
+                case NUMBER:
+                    descriptor.mutate(bean, readNumber(descriptor, in));
+                    break;
+                case CHAR:
+                    String chars = in.readString();
+                    if (chars.length() != 1) {
+                        throw in.malformed("'"+chars+"' isn't a single character");
+                    }
+                    descriptor.mutate(bean, chars.charAt(0));
+                    break;
+                case STRING:
+                    descriptor.mutate(bean, in.readString());
+                    break;
+                case ENUM:
+                    descriptor.mutate(bean, readEnum(descriptor.getType(), in));
+                    break;
+                default:
+                    descriptor.mutate(bean, nested(i).read(in));
+            }
+        } while (in.consume(','));
+        in.expect('}');
+        return bean;
+    }
+    
+    private static Object readNumber(PropertyDescriptor descriptor, JsonInput in) {
+        Class<?> type = descriptor.getType();
+        if (type == boolean.class || type == Boolean.class) {
+            return in.readBoolean();
+        } else if (type == long.class || type == Long.class) {
+            return in.readLong();
+        } else if (type == int.class || type == Integer.class) {
+            return (int) readIntegral(descriptor, in, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        } else if (type == short.class || type == Short.class) {
+            return (short) readIntegral(descriptor, in, Short.MIN_VALUE, Short.MAX_VALUE);
+        } else if (type == byte.class || type == Byte.class) {
+            return (byte) readIntegral(descriptor, in, Byte.MIN_VALUE, Byte.MAX_VALUE);
+        } else if (type == float.class || type == Float.class) {
+            return (float) in.readDouble();
+        } else if (type == double.class || type == Double.class) {
+            return in.readDouble();
+        }
+        String number = in.readNumberText();
+        try {
+            return (type == BigDecimal.class) ? new BigDecimal(number) : new BigInteger(number);
+        } catch (NumberFormatException e) {
+            throw in.malformed("'"+number+"' isn't a "+type.getName());
+        }
+    }
+    
+    private static long readIntegral(PropertyDescriptor descriptor, JsonInput in, long min, long max) {
+        long value = in.readLong();
+        if (value < min || value > max) {
+            throw in.malformed(value+" doesn't fit property '"+descriptor.getPropertyName()+"'");
+        }
+        return value;
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object readEnum(Class<?> type, JsonInput in) {
+        String name = in.readString();
+        try {
+            return Enum.valueOf((Class<Enum>) type, name);
+        } catch (IllegalArgumentException e) {
+            throw in.malformed("'"+name+"' isn't a constant of "+type.getName());
+        }
+    }
+    
+    public Class<T> getType() {
+        return c;
+    }
+}
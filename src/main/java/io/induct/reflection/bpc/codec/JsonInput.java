@@ -0,0 +1,316 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull parser over UTF-8 JSON in a byte buffer, refilled from an input stream if one is given.
+ * Strings and numbers are read into a reusable byte array before they're converted.
+ * 
+ * @author Esko
+ */
+final class JsonInput {
+    
+    private final ByteBuffer buffer;
+    private final InputStream in;
+    private long consumed;
+    
+    byte[] scratch = new byte[128];
+    int scratchLength;
+    
+    JsonInput(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.in = null;
+    }
+    
+    JsonInput(InputStream in) {
+        this.buffer = ByteBuffer.allocate(8192);
+        this.buffer.flip();
+        this.in = in;
+    }
+    
+    private boolean fill() {
+        if (in == null) {
+            return false;
+        }
+        consumed += buffer.limit();
+        try {
+            int read = in.read(buffer.array(), 0, buffer.capacity());
+            buffer.position(0);
+            buffer.limit(Math.max(read, 0));
+            return read > 0;
+        } catch (IOException e) {
+            throw new CodecException("Couldn't read JSON", e);
+        }
+    }
+    
+    private int read() {
+        if (!buffer.hasRemaining() && !fill()) {
+            throw malformed("unexpected end of input");
+        }
+        return buffer.get() & 0xFF;
+    }
+    
+    /**
+     * @return Next non-whitespace byte without consuming it, -1 at the end of input.
+     */
+    int peek() {
+        while (true) {
+            if (!buffer.hasRemaining() && !fill()) {
+                return -1;
+            }
+            int b = buffer.get(buffer.position()) & 0xFF;
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return b;
+            }
+            buffer.get();
+        }
+    }
+    
+    void expect(int expected) {
+        int b = peek();
+        if (b != expected) {
+            throw malformed("expected '"+(char) expected+"' but found "+describe(b));
+        }
+        buffer.get();
+    }
+    
+    /**
+     * Consumes the next byte if it's the given one.
+     */
+    boolean consume(int expected) {
+        if (peek() == expected) {
+            buffer.get();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Consumes a <code>null</code> literal if one is next.
+     */
+    boolean consumeNull() {
+        if (peek() != 'n') {
+            return false;
+        }
+        literal("null");
+        return true;
+    }
+    
+    boolean readBoolean() {
+        int b = peek();
+        if (b == 't') {
+            literal("true");
+            return true;
+        } else if (b == 'f') {
+            literal("false");
+            return false;
+        }
+        throw malformed("expected a boolean but found "+describe(b));
+    }
+    
+    private void literal(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (read() != literal.charAt(i)) {
+                throw malformed("expected '"+literal+"'");
+            }
+        }
+    }
+    
+    /**
+     * Reads a string into the scratch array as UTF-8.
+     */
+    void readStringBytes() {
+        expect('"');
+        scratchLength = 0;
+        while (true) {
+            int b = read();
+            if (b == '"') {
+                return;
+            } else if (b == '\\') {
+                int escaped = read();
+                switch (escaped) {
+                    case 'n': append('\n'); break;
+                    case 'r': append('\r'); break;
+                    case 't': append('\t'); break;
+                    case 'b': append('\b'); break;
+                    case 'f': append('\f'); break;
+                    case 'u': appendCodeUnit(readHex()); break;
+                    default: append(escaped);
+                }
+            } else {
+                append(b);
+            }
+        }
+    }
+    
+    private int readHex() {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0) {
+                throw malformed("invalid unicode escape");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+    
+    private void appendCodeUnit(int ch) {
+        if (Character.isHighSurrogate((char) ch)) {
+            if (read() != '\\' || read() != 'u') {
+                throw malformed("unpaired surrogate");
+            }
+            int low = readHex();
+            appendCodePoint(Character.toCodePoint((char) ch, (char) low));
+        } else {
+            appendCodePoint(ch);
+        }
+    }
+    
+    private void appendCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            append(codePoint);
+        } else if (codePoint < 0x800) {
+            append(0xC0 | (codePoint >> 6));
+            append(0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            append(0xE0 | (codePoint >> 12));
+            append(0x80 | ((codePoint >> 6) & 0x3F));
+            append(0x80 | (codePoint & 0x3F));
+        } else {
+            append(0xF0 | (codePoint >> 18));
+            append(0x80 | ((codePoint >> 12) & 0x3F));
+            append(0x80 | ((codePoint >> 6) & 0x3F));
+            append(0x80 | (codePoint & 0x3F));
+        }
+    }
+    
+    private void append(int b) {
+        if (scratchLength == scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratch.length << 1);
+        }
+        scratch[scratchLength++] = (byte) b;
+    }
+    
+    String readString() {
+        if (consumeNull()) {
+            return null;
+        }
+        readStringBytes();
+        return new String(scratch, 0, scratchLength, StandardCharsets.UTF_8);
+    }
+    
+    private void readNumberBytes() {
+        int b = peek();
+        scratchLength = 0;
+        while ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') {
+            append(buffer.get());
+            if (!buffer.hasRemaining() && !fill()) {
+                break;
+            }
+            b = buffer.get(buffer.position()) & 0xFF;
+        }
+        if (scratchLength == 0) {
+            throw malformed("expected a number but found "+describe(b));
+        }
+    }
+    
+    String readNumberText() {
+        readNumberBytes();
+        return new String(scratch, 0, scratchLength, StandardCharsets.US_ASCII);
+    }
+    
+    long readLong() {
+        readNumberBytes();
+        try {
+            return NumberParser.parseLong(scratch, 0, scratchLength);
+        } catch (NumberFormatException e) {
+            throw malformed("'"+new String(scratch, 0, scratchLength, StandardCharsets.US_ASCII)+"' isn't an integer");
+        }
+    }
+    
+    double readDouble() {
+        readNumberBytes();
+        try {
+            return NumberParser.parseDouble(scratch, 0, scratchLength);
+        } catch (NumberFormatException e) {
+            throw malformed("'"+new String(scratch, 0, scratchLength, StandardCharsets.US_ASCII)+"' isn't a number");
+        }
+    }
+    
+    /**
+     * Skips over the next value of any type.
+     */
+    void skipValue() {
+        int b = peek();
+        switch (b) {
+            case '"':
+                readStringBytes();
+                break;
+            case '{':
+                buffer.get();
+                if (!consume('}')) {
+                    do {
+                        readStringBytes();
+                        expect(':');
+                        skipValue();
+                    } while (consume(','));
+                    expect('}');
+                }
+                break;
+            case '[':
+                buffer.get();
+                if (!consume(']')) {
+                    do {
+                        skipValue();
+                    } while (consume(','));
+                    expect(']');
+                }
+                break;
+            case 't':
+            case 'f':
+                readBoolean();
+                break;
+            case 'n':
+                consumeNull();
+                break;
+            default:
+                readNumberBytes();
+        }
+    }
+    
+    private String describe(int b) {
+        return (b < 0) ? "end of input" : "'"+(char) b+"'";
+    }
+    
+    CodecException malformed(String reason) {
+        return new CodecException("Malformed JSON at offset "+(consumed + buffer.position())+": "+reason);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * UTF-8 JSON output buffer which either grows or drains into an output stream when full.
+ * 
+ * @author Esko
+ */
+final class JsonOutput {
+    
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+    
+    private byte[] buffer;
+    private int position;
+    private final OutputStream sink;
+    
+    JsonOutput(int capacity, OutputStream sink) {
+        this.buffer = new byte[Math.max(capacity, 64)];
+        this.sink = sink;
+    }
+    
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes <= buffer.length) {
+            return;
+        }
+        if (sink != null) {
+            flush();
+        }
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + bytes));
+        }
+    }
+    
+    void writeByte(int value) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+    
+    void writeBytes(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+    
+    void writeNull() throws IOException {
+        writeBytes(NULL);
+    }
+    
+    void writeBoolean(boolean value) throws IOException {
+        writeBytes(value ? TRUE : FALSE);
+    }
+    
+    void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte swap = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = swap;
+        }
+    }
+    
+    /**
+     * Non-finite values have no JSON representation and are written as <code>null</code>.
+     */
+    void writeDouble(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writeNull();
+        } else if (value == (long) value && Math.abs(value) < 1e15) {
+            writeLong((long) value);
+        } else {
+            writeAscii(Double.toString(value));
+        }
+    }
+    
+    void writeAscii(String value) throws IOException {
+        int length = value.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+    
+    void writeString(CharSequence value) throws IOException {
+        int length = value.length();
+        ensure(length + 2);
+        buffer[position++] = '"';
+        for (int i = 0; i < length; i++) {
+            char ch = value.charAt(i);
+            if (ch >= 0x20 && ch < 0x80 && ch != '"' && ch != '\\') {
+                ensure(1);
+                buffer[position++] = (byte) ch;
+            } else if (ch < 0x80) {
+                writeEscaped(ch);
+            } else if (ch < 0x800) {
+                ensure(2);
+                buffer[position++] = (byte) (0xC0 | (ch >> 6));
+                buffer[position++] = (byte) (0x80 | (ch & 0x3F));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(ch, value.charAt(++i));
+                ensure(4);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(ch)) {
+                writeEscaped(ch);
+            } else {
+                ensure(3);
+                buffer[position++] = (byte) (0xE0 | (ch >> 12));
+                buffer[position++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+    
+    private void writeEscaped(char ch) throws IOException {
+        ensure(6);
+        buffer[position++] = '\\';
+        switch (ch) {
+            case '"': buffer[position++] = '"'; return;
+            case '\\': buffer[position++] = '\\'; return;
+            case '\n': buffer[position++] = 'n'; return;
+            case '\r': buffer[position++] = 'r'; return;
+            case '\t': buffer[position++] = 't'; return;
+            default:
+                buffer[position++] = 'u';
+                buffer[position++] = HEX[(ch >> 12) & 0xF];
+                buffer[position++] = HEX[(ch >> 8) & 0xF];
+                buffer[position++] = HEX[(ch >> 4) & 0xF];
+                buffer[position++] = HEX[ch & 0xF];
+        }
+    }
+    
+    void flush() throws IOException {
+        sink.write(buffer, 0, position);
+        position = 0;
+    }
+    
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses numbers straight from ASCII bytes of text codecs.
+ * 
+ * @author Esko
+ */
+final class NumberParser {
+    
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    private NumberParser() {}
+    
+    /**
+     * @throws NumberFormatException if the bytes aren't a decimal long.
+     */
+    static long parseLong(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = i < end && bytes[i] == '-';
+        if (negative || (i < end && bytes[i] == '+')) {
+            i++;
+        }
+        if (i == end) {
+            throw invalid(bytes, start, end);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 
+                    || value < Long.MIN_VALUE / 10 || (value == Long.MIN_VALUE / 10 && digit > 8)) {
+                throw invalid(bytes, start, end);
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw invalid(bytes, start, end);
+            }
+            value = -value;
+        }
+        return value;
+    }
+    
+    /**
+     * Plain decimals with at most 15 significant digits are converted exactly without creating
+     * a string, everything else is left to {@link Double#parseDouble(String)}.
+     * 
+     * @throws NumberFormatException if the bytes aren't a number.
+     */
+    static double parseDouble(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = i < end && bytes[i] == '-';
+        if (negative || (i < end && bytes[i] == '+')) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        boolean simple = i < end;
+        boolean sawDigit = false;
+        for (; i < end && simple; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                sawDigit = true;
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                simple = false;
+            }
+        }
+        if (simple && sawDigit && digits <= 15 && scale < POWERS_OF_TEN.length) {
+            double value = (scale > 0) ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.US_ASCII));
+    }
+    
+    private static NumberFormatException invalid(byte[] bytes, int start, int end) {
+        return new NumberFormatException("For input string: \""+new String(bytes, start, end - start, StandardCharsets.UTF_8)+"\"");
+    }
+}
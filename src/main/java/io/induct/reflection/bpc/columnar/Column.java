@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.columnar;
+
+import io.induct.reflection.bpc.PropertyDescriptor;
+
+/**
+ * Growable column of property values filled by {@link ColumnProjection}.
+ * 
+ * @author Esko
+ */
+public abstract class Column {
+    
+    protected static final int DEFAULT_CAPACITY = 16;
+    
+    private final String propertyName;
+    protected int size;
+    
+    protected Column(String propertyName) {
+        this.propertyName = propertyName;
+    }
+    
+    /**
+     * Appends the value of the described property of given bean to this column.
+     */
+    abstract void append(PropertyDescriptor descriptor, Object bean);
+    
+    /**
+     * @return Value of given row, boxed if this is a primitive column.
+     */
+    public abstract Object get(int row);
+    
+    /**
+     * @return Type of the values, a primitive type for primitive columns.
+     */
+    public abstract Class<?> getType();
+    
+    public String getPropertyName() {
+        return propertyName;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    protected static int grow(int capacity, int required) {
+        return Math.max(required, capacity + (capacity >> 1) + 1);
+    }
+    
+    protected void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row "+row+" of column '"+propertyName+"' with "+size+" rows");
+        }
+    }
+    
+    /**
+     * Creates a column suitable for values of given property type. Narrower primitive types are
+     * widened to int columns and float to double.
+     */
+    static Column of(String propertyName, Class<?> type, int capacity) {
+        if (type == int.class || type == short.class || type == byte.class || type == char.class) {
+            return new IntColumn(propertyName, capacity);
+        } else if (type == long.class) {
+            return new LongColumn(propertyName, capacity);
+        } else if (type == double.class || type == float.class) {
+            return new DoubleColumn(propertyName, capacity);
+        } else if (type == boolean.class) {
+            return new BooleanColumn(propertyName, capacity);
+        }
+        return new ObjectColumn(propertyName, capacity);
+    }
+    
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()+" :: "+propertyName+" ("+size+" rows)";
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.columnar;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+
+/**
+ * Projects properties of a stream of beans into columns. Primitive properties are read with the
+ * primitive accessors straight into primitive arrays, so projecting them doesn't box anything.
+ * <p>
+ * Column types are chosen by the property types of the first bean's class. Later beans may be of
+ * other classes as long as their values can be converted into the same columns.
+ * 
+ * @author Esko
+ */
+public class ColumnProjection {
+    
+    private final String[] propertyNames;
+    private final ExtractionDepth extractionDepth;
+    private final AccessorEngine engine;
+    
+    private ColumnProjection(String[] propertyNames, ExtractionDepth extractionDepth, AccessorEngine engine) {
+        if (propertyNames.length == 0) {
+            throw new IllegalArgumentException("Can't construct ColumnProjection without properties");
+        }
+        this.propertyNames = propertyNames.clone();
+        this.extractionDepth = extractionDepth;
+        this.engine = engine;
+    }
+    
+    public static ColumnProjection of(String... propertyNames) {
+        return of(ExtractionDepth.METHODS, AccessorEngine.REFLECTION, propertyNames);
+    }
+    
+    public static ColumnProjection of(ExtractionDepth extractionDepth, AccessorEngine engine, String... propertyNames) {
+        return new ColumnProjection(propertyNames, extractionDepth, engine);
+    }
+    
+    public ColumnSet project(Iterable<?> beans) {
+        return project(beans.spliterator());
+    }
+    
+    public ColumnSet project(Spliterator<?> beans) {
+        long exactSize = beans.getExactSizeIfKnown();
+        Projector projector = new Projector((exactSize >= 0 && exactSize < Integer.MAX_VALUE) ? (int) exactSize : 0);
+        beans.forEachRemaining(projector);
+        return projector.finish();
+    }
+    
+    /**
+     * Fills the columns of a single projection.
+     */
+    private class Projector implements Consumer<Object> {
+        private final int capacity;
+        private final PropertyDescriptor[] descriptors = new PropertyDescriptor[propertyNames.length];
+        private Column[] columns;
+        private Class<?> resolvedClass;
+        private int rows;
+        
+        Projector(int capacity) {
+            this.capacity = capacity;
+        }
+        
+        public void accept(Object bean) {
+            if (bean == null) {
+                throw new IllegalArgumentException("Can't project null bean at row "+rows);
+            }
+            Class<?> c = bean.getClass();
+            if (c != resolvedClass) {
+                ClassMetadata metadata = ClassMetadata.of(c, extractionDepth, engine);
+                for (int p = 0; p < propertyNames.length; p++) {
+                    descriptors[p] = metadata.getDescriptor(propertyNames[p]);
+                }
+                resolvedClass = c;
+            }
+            if (columns == null) {
+                columns = new Column[propertyNames.length];
+                for (int p = 0; p < propertyNames.length; p++) {
+                    columns[p] = Column.of(propertyNames[p], descriptors[p].getType(), capacity);
+                }
+            }
+            for (int p = 0; p < columns.length; p++) {
+                columns[p].append(descriptors[p], bean);
+            }
+            rows++;
+        }
+        
+        ColumnSet finish() {
+            if (columns == null) {
+                // nothing to infer the types from
+                columns = new Column[propertyNames.length];
+                for (int p = 0; p < propertyNames.length; p++) {
+                    columns[p] = new ObjectColumn(propertyNames[p], 1);
+                }
+            }
+            return new ColumnSet(columns, rows);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.columnar;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Columns produced by a single {@link ColumnProjection#project(Iterable)} call, one for each
+ * projected property in projection order.
+ * 
+ * @author Esko
+ */
+public class ColumnSet {
+    
+    private final List<Column> columns;
+    private final int rowCount;
+    
+    ColumnSet(Column[] columns, int rowCount) {
+        this.columns = Collections.unmodifiableList(Arrays.asList(columns));
+        this.rowCount = rowCount;
+    }
+    
+    public List<Column> getColumns() {
+        return columns;
+    }
+    
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the property wasn't projected.
+     */
+    public Column getColumn(String propertyName) {
+        for (Column column : columns) {
+            if (column.getPropertyName().equals(propertyName)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("Property '"+propertyName+"' wasn't projected");
+    }
+    
+    public IntColumn getIntColumn(String propertyName) {
+        return typed(IntColumn.class, propertyName);
+    }
+    
+    public LongColumn getLongColumn(String propertyName) {
+        return typed(LongColumn.class, propertyName);
+    }
+    
+    public DoubleColumn getDoubleColumn(String propertyName) {
+        return typed(DoubleColumn.class, propertyName);
+    }
+    
+    public BooleanColumn getBooleanColumn(String propertyName) {
+        return typed(BooleanColumn.class, propertyName);
+    }
+    
+    public ObjectColumn getObjectColumn(String propertyName) {
+        return typed(ObjectColumn.class, propertyName);
+    }
+    
+    private <C extends Column> C typed(Class<C> type, String propertyName) {
+        Column column = getColumn(propertyName);
+        if (!type.isInstance(column)) {
+            throw new IllegalArgumentException("Property '"+propertyName+"' was projected into "
+                                              +column.getClass().getSimpleName()+", not "+type.getSimpleName());
+        }
+        return type.cast(column);
+    }
+}
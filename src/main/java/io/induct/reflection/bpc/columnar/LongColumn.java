@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.columnar;
+
+import java.util.Arrays;
+
+import io.induct.reflection.bpc.PropertyDescriptor;
+
+/**
+ * Column of long values stored in a primitive array.
+ * 
+ * @author Esko
+ */
+public class LongColumn extends Column {
+    
+    private long[] values;
+    
+    public LongColumn(String propertyName) {
+        this(propertyName, DEFAULT_CAPACITY);
+    }
+    
+    public LongColumn(String propertyName, int capacity) {
+        super(propertyName);
+        this.values = new long[Math.max(capacity, 1)];
+    }
+    
+    @Override
+    void append(PropertyDescriptor descriptor, Object bean) {
+        add(descriptor.accessLong(bean));
+    }
+    
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, grow(values.length, size + 1));
+        }
+        values[size++] = value;
+    }
+    
+    public long getLong(int row) {
+        checkRow(row);
+        return values[row];
+    }
+    
+    @Override
+    public Object get(int row) {
+        return getLong(row);
+    }
+    
+    @Override
+    public Class<?> getType() {
+        return long.class;
+    }
+    
+    /**
+     * @return The backing array without copying, only the first {@link #size()} values are valid.
+     */
+    public long[] values() {
+        return values;
+    }
+    
+    /**
+     * @return Copy of the values trimmed to size.
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
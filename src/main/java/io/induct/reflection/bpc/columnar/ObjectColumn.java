@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.columnar;
+
+import java.util.Arrays;
+
+import io.induct.reflection.bpc.PropertyDescriptor;
+
+/**
+ * Column of non-primitive property values.
+ * 
+ * @author Esko
+ */
+public class ObjectColumn extends Column {
+    
+    private Object[] values;
+    
+    public ObjectColumn(String propertyName) {
+        this(propertyName, DEFAULT_CAPACITY);
+    }
+    
+    public ObjectColumn(String propertyName, int capacity) {
+        super(propertyName);
+        this.values = new Object[Math.max(capacity, 1)];
+    }
+    
+    @Override
+    void append(PropertyDescriptor descriptor, Object bean) {
+        add(descriptor.access(bean));
+    }
+    
+    public void add(Object value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, grow(values.length, size + 1));
+        }
+        values[size++] = value;
+    }
+    
+    @Override
+    public Object get(int row) {
+        checkRow(row);
+        return values[row];
+    }
+    
+    @Override
+    public Class<?> getType() {
+        return Object.class;
+    }
+    
+    public Object[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -29,39 +29,82 @@ import io.induct.reflection.bpc.IAccessor;
 import io.induct.reflection.bpc.IBeanProperty;
 import io.induct.reflection.bpc.IMutator;
 import io.induct.reflection.bpc.MethodAccessor;
+import io.induct.reflection.bpc.MethodHandleAccessor;
+import io.induct.reflection.bpc.MethodHandleMutator;
 import io.induct.reflection.bpc.MethodMutator;
 import io.induct.reflection.bpc.NonMatchingAccessorAndMutatorException;
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
 
 public abstract class AbstractExtractor {
     
-    public abstract IBeanProperty<Object> extractProperty(String propertyName, Object object);
+    protected final AccessorEngine engine;
     
-    protected IAccessor<?> findAccessor(String prefix, String propertyName, Object object) {
-        Method m = findMethod(prefix, propertyName, object, 0);
-        return ( m != null ) ? new MethodAccessor<Object>(m) : null;
+    protected AbstractExtractor() {
+        this(AccessorEngine.REFLECTION);
     }
     
-    protected IMutator<?> findMutator(String prefix, String propertyName, Object object) {
-        Method m = findMethod(prefix, propertyName, object, 1);
-        return ( m != null ) ? new MethodMutator<Object>(m) : null;
+    protected AbstractExtractor(AccessorEngine engine) {
+        this.engine = engine;
     }
-
-    protected Method findMethod(String prefix, String propertyName, Object object, int expectedParams) {
-        // TODO: For mutators check that only 1 input param is allowed
-        String possibleMethodName = prefix.toLowerCase() + propertyName.substring(0, 1).toUpperCase() + propertyName.substring(1);
-        
-        for (Method m : object.getClass().getMethods()) {
-            if (m.getName().equals(possibleMethodName) ||
-                m.getName().equalsIgnoreCase(possibleMethodName)) {
-                
-                if (m.getParameterTypes().length != expectedParams) {
-                    continue;
-                }
-                return m;
+    
+    /**
+     * Resolves the object independent accessor/mutator pair for given property of given class.
+     * 
+     * @return Descriptor of the property or <code>null</code> if this extractor can't find it.
+     */
+    public abstract PropertyDescriptor extractDescriptor(String propertyName, Class<?> c);
+    
+    public IBeanProperty<Object> extractProperty(String propertyName, Object object) {
+        PropertyDescriptor descriptor = extractDescriptor(propertyName, object.getClass());
+        return (descriptor != null) ? descriptor.bind(object) : null;
+    }
+    
+    protected IAccessor<?> findAccessor(String prefix, String propertyName, Class<?> c) {
+        Method m = findMethod(prefix, propertyName, c, 0);
+        return ( m != null ) ? createAccessor(m) : null;
+    }
+    
+    protected IMutator<?> findMutator(String prefix, String propertyName, Class<?> c) {
+        Method m = findMethod(prefix, propertyName, c, 1);
+        return ( m != null ) ? createMutator(m) : null;
+    }
+    
+    /**
+     * Creates accessor for the method using the engine of this extractor. If method handles
+     * aren't available for the method, plain reflection is used instead.
+     */
+    protected IAccessor<?> createAccessor(Method m) {
+        if (engine != AccessorEngine.REFLECTION) {
+            try {
+                return new MethodHandleAccessor<Object>(m);
+            } catch (IllegalAccessException e) {
+                // fall back to reflection
             }
-        }        
-        
-        return null;
+        }
+        return new MethodAccessor<Object>(m);
+    }
+    
+    protected IMutator<?> createMutator(Method m) {
+        if (engine != AccessorEngine.REFLECTION) {
+            try {
+                return new MethodHandleMutator<Object>(m);
+            } catch (IllegalAccessException e) {
+                // fall back to reflection
+            }
+        }
+        return new MethodMutator<Object>(m);
+    }
+
+    /**
+     * Finds the public method named prefix + property name, ignoring case, with given amount of
+     * parameters. The lookup goes through a per-class table and doesn't build the method name.
+     */
+    protected Method findMethod(String prefix, String propertyName, Class<?> c, int expectedParams) {
+        if (propertyName.isEmpty()) {
+            return null;
+        }
+        return MemberTable.methods(c).findMethod(prefix, propertyName, expectedParams);
     }
     
     protected void validateProperties(IAccessor<?> accessor, IMutator<?> mutator) {
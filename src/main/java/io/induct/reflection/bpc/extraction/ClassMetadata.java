@@ -0,0 +1,384 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.extraction;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.induct.reflection.bpc.ControlledBean;
+import io.induct.reflection.bpc.DispatcherAccessor;
+import io.induct.reflection.bpc.DispatcherMutator;
+import io.induct.reflection.bpc.IAccessor;
+import io.induct.reflection.bpc.IMutator;
+import io.induct.reflection.bpc.NonMatchingAccessorAndMutatorException;
+import io.induct.reflection.bpc.NonexistentPropertyException;
+import io.induct.reflection.bpc.PropertyAccessorTable;
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.PropertyDispatcher;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.metrics.IMetricsCollector;
+import io.induct.reflection.bpc.metrics.Metrics;
+import io.induct.reflection.bpc.metrics.IMetricsCollector.Cache;
+
+/**
+ * Process wide registry of extracted property descriptors.
+ * <p>
+ * Each class has one metadata instance per {@link ExtractionDepth} and {@link AccessorEngine}
+ * combination and every controller working with that class shares it, so the actual method and
+ * field scanning for any given property is done only once per JVM. The registry is backed by
+ * {@link ClassValue} so that it won't keep classes (or their class loaders) alive on its own.
+ * <p>
+ * Single properties are extracted lazily by name. The whole class can also be indexed with
+ * {@link #getDescriptors()}, which gives every property a stable index. With
+ * {@link AccessorEngine#GENERATED} the index is built on first use and the indexed properties are
+ * served by a generated {@link PropertyDispatcher}.
+ * <p>
+ * Classes annotated with {@link ControlledBean} which have a compile time generated
+ * {@link PropertyAccessorTable} are indexed from the table without any reflective scanning when
+ * extracting with {@link ExtractionDepth#METHODS}.
+ * 
+ * @author Esko
+ */
+public class ClassMetadata {
+    
+    private static final int ENGINES = AccessorEngine.values().length;
+    
+    private static final ClassValue<ClassMetadata[]> REGISTRY = new ClassValue<ClassMetadata[]>() {
+        @Override
+        protected ClassMetadata[] computeValue(Class<?> c) {
+            ExtractionDepth[] depths = ExtractionDepth.values();
+            ClassMetadata[] metadata = new ClassMetadata[depths.length * ENGINES];
+            for (ExtractionDepth depth : depths) {
+                for (AccessorEngine engine : AccessorEngine.values()) {
+                    metadata[slotOf(depth, engine)] = new ClassMetadata(c, depth, engine);
+                }
+            }
+            return metadata;
+        }
+    };
+    
+    private static final ClassValue<PropertyAccessorTable> TABLES = new ClassValue<PropertyAccessorTable>() {
+        @Override
+        protected PropertyAccessorTable computeValue(Class<?> c) {
+            if (!c.isAnnotationPresent(ControlledBean.class)) {
+                return null;
+            }
+            try {
+                Class<?> table = Class.forName(c.getName() + PropertyAccessorTable.CLASS_NAME_SUFFIX, true, c.getClassLoader());
+                return (PropertyAccessorTable) table.newInstance();
+            } catch (ReflectiveOperationException e) {
+                // annotation processor wasn't run, fall back to reflection
+                return null;
+            } catch (LinkageError e) {
+                return null;
+            }
+        }
+    };
+    
+    private final Class<?> c;
+    private final ExtractionDepth extractionDepth;
+    private final AccessorEngine engine;
+    private final PropertyExtractor extractor;
+    private final PropertyAccessorTable table;
+    private final ConcurrentMap<String, PropertyDescriptor> descriptors;
+    private volatile PropertyIndex index;
+    
+    private ClassMetadata(Class<?> c, ExtractionDepth extractionDepth, AccessorEngine engine) {
+        this.c = c;
+        this.extractionDepth = extractionDepth;
+        this.engine = engine;
+        this.extractor = new PropertyExtractor(extractionDepth, engine);
+        this.table = (extractionDepth == ExtractionDepth.METHODS) ? TABLES.get(c) : null;
+        this.descriptors = new ConcurrentHashMap<String, PropertyDescriptor>();
+    }
+    
+    public static ClassMetadata of(Class<?> c, ExtractionDepth extractionDepth) {
+        return of(c, extractionDepth, AccessorEngine.REFLECTION);
+    }
+    
+    public static ClassMetadata of(Class<?> c, ExtractionDepth extractionDepth, AccessorEngine engine) {
+        return REGISTRY.get(c)[slotOf(extractionDepth, engine)];
+    }
+    
+    private static int slotOf(ExtractionDepth extractionDepth, AccessorEngine engine) {
+        return extractionDepth.ordinal() * ENGINES + engine.ordinal();
+    }
+    
+    /**
+     * Returns the shared descriptor of the named property, extracting it first if needed.
+     * 
+     * @throws NonexistentPropertyException if the property can't be found.
+     */
+    public PropertyDescriptor getDescriptor(String propertyName) {
+        PropertyDescriptor descriptor = descriptors.get(propertyName);
+        if (descriptor != null) {
+            Metrics.getCollector().cacheHit(Cache.METADATA);
+        } else {
+            Metrics.getCollector().cacheMiss(Cache.METADATA);
+            PropertyIndex propertyIndex = (engine == AccessorEngine.GENERATED || table != null) ? getIndex() : index;
+            int i = (propertyIndex != null) ? propertyIndex.indexOf(propertyName) : -1;
+            descriptor = (i >= 0) ? propertyIndex.descriptors[i] : extract(propertyName);
+            PropertyDescriptor existing = descriptors.putIfAbsent(propertyName, descriptor);
+            if (existing != null) {
+                descriptor = existing;
+            }
+        }
+        return descriptor;
+    }
+    
+    /**
+     * Returns descriptors of all properties of the class in a stable order, the position of each
+     * descriptor is its property index. The class is scanned on first call.
+     */
+    public List<PropertyDescriptor> getDescriptors() {
+        return getIndex().descriptorList;
+    }
+    
+    public PropertyDescriptor getDescriptor(int propertyIndex) {
+        return getIndex().descriptors[propertyIndex];
+    }
+    
+    public int getPropertyCount() {
+        return getIndex().descriptors.length;
+    }
+    
+    /**
+     * @return Index of the named property or -1 if the class has no such indexed property.
+     */
+    public int indexOf(CharSequence propertyName) {
+        return getIndex().indexOf(propertyName);
+    }
+    
+    /**
+     * Resolves a UTF-8 encoded property name, for example straight from a network buffer, 
+     * without decoding it into a string.
+     * 
+     * @return Index of the named property or -1 if the class has no such indexed property.
+     */
+    public int indexOf(byte[] utf8, int offset, int length) {
+        return getIndex().names.indexOf(utf8, offset, length);
+    }
+    
+    /**
+     * @return The generated dispatcher of this class or <code>null</code> if there isn't one.
+     */
+    public PropertyDispatcher getDispatcher() {
+        return getIndex().dispatcher;
+    }
+    
+    public Class<?> getType() {
+        return c;
+    }
+    
+    public ExtractionDepth getExtractionDepth() {
+        return extractionDepth;
+    }
+    
+    public AccessorEngine getEngine() {
+        return engine;
+    }
+    
+    private PropertyIndex getIndex() {
+        PropertyIndex propertyIndex = index;
+        if (propertyIndex == null) {
+            synchronized (this) {
+                propertyIndex = index;
+                if (propertyIndex == null) {
+                    propertyIndex = buildIndex();
+                    index = propertyIndex;
+                }
+            }
+        }
+        return propertyIndex;
+    }
+    
+    private PropertyIndex buildIndex() {
+        if (table != null) {
+            return tableIndex();
+        }
+        List<PropertyDescriptor> found = new ArrayList<PropertyDescriptor>();
+        Set<String> seen = new HashSet<String>();
+        for (String candidate : findCandidateNames()) {
+            if (!seen.add(candidate.toLowerCase(Locale.ENGLISH))) {
+                continue;
+            }
+            try {
+                found.add(extract(candidate));
+            } catch (NonexistentPropertyException e) {
+                // name only looked like a property
+            } catch (NonMatchingAccessorAndMutatorException e) {
+                // not a valid property, accessing it by name will tell why
+            }
+        }
+        return completeIndex(found.toArray(new PropertyDescriptor[found.size()]));
+    }
+    
+    private PropertyIndex completeIndex(PropertyDescriptor[] indexed) {
+        PropertyDispatcher dispatcher = null;
+        if (engine == AccessorEngine.GENERATED) {
+            dispatcher = DispatcherGenerator.generate(c, indexed);
+            if (dispatcher != null) {
+                for (int i = 0; i < indexed.length; i++) {
+                    indexed[i] = dispatchedDescriptor(dispatcher, i, indexed[i]);
+                }
+            }
+        }
+        return new PropertyIndex(indexed, dispatcher);
+    }
+    
+    PropertyExtractor getExtractor() {
+        return extractor;
+    }
+    
+    /**
+     * Installs an index resolved elsewhere, for example from a {@link MetadataSnapshot}, unless the
+     * class has already been indexed or has a generated accessor table.
+     * 
+     * @return <code>true</code> if the descriptors were installed.
+     */
+    synchronized boolean preload(PropertyDescriptor[] indexed) {
+        if (index != null || table != null) {
+            return false;
+        }
+        index = completeIndex(indexed);
+        return true;
+    }
+    
+    /**
+     * Index served entirely by the compile time generated table of a {@link ControlledBean}.
+     */
+    private PropertyIndex tableIndex() {
+        PropertyDescriptor[] indexed = new PropertyDescriptor[table.getPropertyCount()];
+        for (int i = 0; i < indexed.length; i++) {
+            Class<?> type = table.getPropertyType(i);
+            IMutator<?> mutator = table.isReadOnly(i) ? null : new DispatcherMutator<Object>(table, i, type);
+            indexed[i] = new PropertyDescriptor(table.getPropertyName(i), new DispatcherAccessor<Object>(table, i, type), mutator);
+        }
+        return new PropertyIndex(indexed, table);
+    }
+    
+    private PropertyDescriptor extract(String propertyName) {
+        IMetricsCollector metrics = Metrics.getCollector();
+        if (!metrics.isEnabled()) {
+            return extractor.extractDescriptor(propertyName, c);
+        }
+        long start = System.nanoTime();
+        try {
+            return extractor.extractDescriptor(propertyName, c);
+        } finally {
+            metrics.propertyResolved(c, System.nanoTime() - start);
+        }
+    }
+    
+    private PropertyDescriptor dispatchedDescriptor(PropertyDispatcher dispatcher, int i, PropertyDescriptor descriptor) {
+        IAccessor<?> accessor = descriptor.getAccessor();
+        IMutator<?> mutator = descriptor.getMutator();
+        if (DispatcherGenerator.canGet(descriptor)) {
+            accessor = new DispatcherAccessor<Object>(dispatcher, i, accessor.getReturnType());
+        }
+        if (DispatcherGenerator.canSet(descriptor)) {
+            mutator = new DispatcherMutator<Object>(dispatcher, i, mutator.getType());
+        }
+        return descriptor.withControls(accessor, mutator);
+    }
+    
+    /**
+     * Collects every name which might be a property in the extraction depth of this metadata. The
+     * names are sorted to make the property indexes stable between JVMs.
+     */
+    private SortedSet<String> findCandidateNames() {
+        SortedSet<String> candidates = new TreeSet<String>();
+        for (Method m : c.getMethods()) {
+            if (m.getDeclaringClass().equals(Object.class) || m.isBridge() || m.isSynthetic()) {
+                continue;
+            }
+            String name = m.getName();
+            int parameters = m.getParameterTypes().length;
+            if (name.startsWith("set") && parameters == 1) {
+                addCandidate(candidates, name.substring(3));
+            } else if (name.startsWith("get") && parameters == 0) {
+                addCandidate(candidates, name.substring(3));
+            } else if (name.startsWith("is") && parameters == 0) {
+                addCandidate(candidates, name.substring(2));
+            }
+        }
+        if (extractionDepth.compareTo(ExtractionDepth.FIELDS) >= 0) {
+            addFieldCandidates(candidates, c.getFields());
+        }
+        if (extractionDepth.compareTo(ExtractionDepth.QUESTIMATE) >= 0) {
+            addFieldCandidates(candidates, c.getDeclaredFields());
+        }
+        return candidates;
+    }
+    
+    private void addCandidate(SortedSet<String> candidates, String baseName) {
+        if (baseName.length() > 0) {
+            candidates.add(baseName.substring(0, 1).toLowerCase() + baseName.substring(1));
+        }
+    }
+    
+    private void addFieldCandidates(SortedSet<String> candidates, Field[] fields) {
+        for (Field f : fields) {
+            if (!f.isSynthetic()) {
+                candidates.add(f.getName());
+            }
+        }
+    }
+    
+    private static final class PropertyIndex {
+        
+        private final PropertyDescriptor[] descriptors;
+        private final List<PropertyDescriptor> descriptorList;
+        private final NameIndex names;
+        private final PropertyDispatcher dispatcher;
+        
+        PropertyIndex(PropertyDescriptor[] descriptors, PropertyDispatcher dispatcher) {
+            this.descriptors = descriptors;
+            this.descriptorList = Collections.unmodifiableList(Arrays.asList(descriptors));
+            String[] propertyNames = new String[descriptors.length];
+            for (int i = 0; i < descriptors.length; i++) {
+                propertyNames[i] = descriptors[i].getPropertyName();
+            }
+            this.names = NameIndex.of(propertyNames);
+            this.dispatcher = dispatcher;
+        }
+        
+        int indexOf(CharSequence propertyName) {
+            return names.indexOf(propertyName);
+        }
+    }
+
+}
@@ -25,33 +25,31 @@ package io.induct.reflection.bpc.extraction;
 
 import java.lang.reflect.Field;
 
-import io.induct.reflection.bpc.BeanProperty;
-import io.induct.reflection.bpc.FieldAccessMutateControl;
-import io.induct.reflection.bpc.IAccessor;
-import io.induct.reflection.bpc.IBeanProperty;
-import io.induct.reflection.bpc.IMutator;
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
 
 public class DeclaredFieldExtractor extends FieldExtractor {
     
-    public IBeanProperty<Object> extractProperty(String propertyName, Object object) {
-        FieldAccessMutateControl<?> declaredFieldControl = null;
-        Field f = findField(propertyName, object);
+    public DeclaredFieldExtractor() {
+        super();
+    }
+    
+    public DeclaredFieldExtractor(AccessorEngine engine) {
+        super(engine);
+    }
+    
+    public PropertyDescriptor extractDescriptor(String propertyName, Class<?> c) {
+        Field f = findField(propertyName, c);
         if (f != null) {
-            declaredFieldControl = new FieldAccessMutateControl<Object>(f);    
-        }
-        if (declaredFieldControl != null) {
-
-            IMutator<?> mutator = declaredFieldControl;
-            IAccessor<?> accessor = declaredFieldControl;
-            
-            validateProperties(accessor, mutator);
-            return new BeanProperty(object, propertyName, accessor, mutator);    
+            PropertyDescriptor descriptor = describeField(propertyName, f);
+            validateProperties(descriptor.getAccessor(), descriptor.getMutator());
+            return descriptor;    
         }
         return null;
     }
     @Override
-    protected Field findField(String propertyName, Object object) {
-        return extractField(propertyName, object.getClass().getDeclaredFields());
+    protected Field findField(String propertyName, Class<?> c) {
+        return accessible(MemberTable.declaredFields(c).findField(propertyName));
     }
     
 }
@@ -0,0 +1,631 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.extraction;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.PrimitiveSupport;
+import io.induct.reflection.bpc.PropertyDispatcher;
+
+/**
+ * Generates a {@link PropertyDispatcher} class for a single bean class. Each method of the generated
+ * class is a <code>tableswitch</code> over the property index which calls the property's
+ * getter/setter or reads/writes its field directly, boxing and unboxing values only in the Object
+ * variants.
+ * <p>
+ * The class file is written by hand in version 49 format so that it needs neither stack map frames
+ * nor a bytecode library. It is defined in its own class loader, so only public, non-static members
+ * of public classes can be reached from it; {@link #canGet(PropertyDescriptor)} and
+ * {@link #canSet(PropertyDescriptor)} tell which properties are covered.
+ * 
+ * @author Esko
+ */
+final class DispatcherGenerator {
+    
+    private static final String PACKAGE = "io/induct/reflection/bpc/generated/";
+    private static final Class<?>[] PRIMITIVES = { int.class, long.class, double.class, boolean.class };
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+    
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int ILOAD_2 = 0x1c;
+    private static final int ILOAD_3 = 0x1d;
+    private static final int LLOAD_3 = 0x21;
+    private static final int DLOAD_3 = 0x29;
+    private static final int I2L = 0x85;
+    private static final int I2F = 0x86;
+    private static final int I2D = 0x87;
+    private static final int L2F = 0x89;
+    private static final int L2D = 0x8a;
+    private static final int F2D = 0x8d;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int IRETURN = 0xac;
+    private static final int LRETURN = 0xad;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int NEW = 0xbb;
+    private static final int ATHROW = 0xbf;
+    private static final int CHECKCAST = 0xc0;
+    private static final int DUP = 0x59;
+    private static final int LDC_W = 0x13;
+    
+    private DispatcherGenerator() {}
+    
+    /**
+     * @return Dispatcher for given properties or <code>null</code> if the class can't have one.
+     */
+    static PropertyDispatcher generate(Class<?> c, PropertyDescriptor[] descriptors) {
+        if (!Modifier.isPublic(c.getModifiers()) || c.isArray() || c.isPrimitive() || !coversAny(descriptors)) {
+            return null;
+        }
+        String className = PACKAGE + c.getSimpleName() + "$$Dispatcher" + SEQUENCE.incrementAndGet();
+        try {
+            byte[] bytes = new DispatcherGenerator.ClassFile(className, c, descriptors).toByteArray();
+            Class<?> dispatcherClass = new DispatcherClassLoader(c.getClassLoader()).define(className.replace('/', '.'), bytes);
+            return (PropertyDispatcher) dispatcherClass.newInstance();
+        } catch (LinkageError e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private static boolean coversAny(PropertyDescriptor[] descriptors) {
+        for (PropertyDescriptor descriptor : descriptors) {
+            if (canGet(descriptor) || canSet(descriptor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    static boolean canGet(PropertyDescriptor descriptor) {
+        Member member = descriptor.getAccessorMember();
+        if (member instanceof Method) {
+            return isReachable(member) && !((Method) member).getReturnType().equals(void.class);
+        }
+        return member instanceof Field && isReachable(member);
+    }
+    
+    static boolean canSet(PropertyDescriptor descriptor) {
+        Member member = descriptor.getMutatorMember();
+        if (!isVisible(descriptor.getMutator() != null ? descriptor.getMutator().getType() : null)) {
+            return false;
+        }
+        if (member instanceof Method) {
+            return isReachable(member);
+        }
+        return member instanceof Field && isReachable(member) && !Modifier.isFinal(member.getModifiers());
+    }
+    
+    private static boolean isReachable(Member member) {
+        return Modifier.isPublic(member.getModifiers()) && !Modifier.isStatic(member.getModifiers());
+    }
+    
+    /**
+     * Values given to the mutators are cast to the mutator's type, which must be public for that.
+     */
+    private static boolean isVisible(Class<?> type) {
+        if (type == null) {
+            return false;
+        }
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+    
+    private static String internalName(Class<?> c) {
+        return c.getName().replace('.', '/');
+    }
+    
+    private static String descriptorOf(Class<?> c) {
+        if (c.isPrimitive()) {
+            if (c.equals(int.class)) return "I";
+            if (c.equals(long.class)) return "J";
+            if (c.equals(double.class)) return "D";
+            if (c.equals(float.class)) return "F";
+            if (c.equals(boolean.class)) return "Z";
+            if (c.equals(short.class)) return "S";
+            if (c.equals(byte.class)) return "B";
+            if (c.equals(char.class)) return "C";
+            return "V";
+        }
+        if (c.isArray()) {
+            return internalName(c);
+        }
+        return "L" + internalName(c) + ";";
+    }
+    
+    private static String methodDescriptorOf(Method m) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Class<?> parameterType : m.getParameterTypes()) {
+            descriptor.append(descriptorOf(parameterType));
+        }
+        return descriptor.append(')').append(descriptorOf(m.getReturnType())).toString();
+    }
+    
+    private static Class<?> wrapperOf(Class<?> primitive) {
+        if (primitive.equals(int.class)) return Integer.class;
+        if (primitive.equals(long.class)) return Long.class;
+        if (primitive.equals(double.class)) return Double.class;
+        if (primitive.equals(float.class)) return Float.class;
+        if (primitive.equals(boolean.class)) return Boolean.class;
+        if (primitive.equals(short.class)) return Short.class;
+        if (primitive.equals(byte.class)) return Byte.class;
+        return Character.class;
+    }
+    
+    /**
+     * Minimal class file writer, just enough to express the two dispatch methods.
+     */
+    private static final class ClassFile {
+        
+        private final ByteArrayOutputStream constantPool = new ByteArrayOutputStream();
+        private final Map<String, Integer> constants = new HashMap<String, Integer>();
+        private int constantCount = 1;
+        
+        private final String className;
+        private final Class<?> beanClass;
+        private final PropertyDescriptor[] descriptors;
+        
+        ClassFile(String className, Class<?> beanClass, PropertyDescriptor[] descriptors) {
+            this.className = className;
+            this.beanClass = beanClass;
+            this.descriptors = descriptors;
+        }
+        
+        byte[] toByteArray() {
+            int thisClass = classConstant(className);
+            int superClass = classConstant("java/lang/Object");
+            int dispatcherInterface = classConstant(internalName(PropertyDispatcher.class));
+            Bytes methods = new Bytes();
+            methods.bytes(method("<init>", "()V", 1, 1, constructorCode()));
+            methods.bytes(method("get", "(Ljava/lang/Object;I)Ljava/lang/Object;", 3, 3, getCode(Object.class)));
+            methods.bytes(method("set", "(Ljava/lang/Object;ILjava/lang/Object;)V", 3, 4, setCode(Object.class)));
+            for (Class<?> primitive : PRIMITIVES) {
+                String name = Character.toUpperCase(primitive.getName().charAt(0)) + primitive.getName().substring(1);
+                String type = descriptorOf(primitive);
+                methods.bytes(method("get" + name, "(Ljava/lang/Object;I)" + type, 3, 3, getCode(primitive)));
+                methods.bytes(method("set" + name, "(Ljava/lang/Object;I" + type + ")V", 3, isWideType(primitive) ? 5 : 4, setCode(primitive)));
+            }
+            
+            Bytes out = new Bytes();
+            out.u4(0xCAFEBABE);
+            out.u2(0);
+            out.u2(49);
+            out.u2(constantCount);
+            out.bytes(constantPool.toByteArray());
+            out.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.u2(thisClass);
+            out.u2(superClass);
+            out.u2(1);
+            out.u2(dispatcherInterface);
+            out.u2(0);
+            out.u2(3 + 2 * PRIMITIVES.length);
+            out.bytes(methods.toByteArray());
+            out.u2(0);
+            return out.toByteArray();
+        }
+        
+        private byte[] constructorCode() {
+            Bytes code = new Bytes();
+            code.u1(ALOAD_0);
+            code.u1(INVOKESPECIAL);
+            code.u2(methodConstant("java/lang/Object", "<init>", "()V", false));
+            code.u1(RETURN);
+            return code.toByteArray();
+        }
+        
+        /**
+         * Writes accessing switch which returns property values as given type, either boxed as
+         * Object or widened to a primitive type.
+         */
+        private byte[] getCode(Class<?> resultType) {
+            Bytes code = new Bytes();
+            int[] cases = tableswitch(code);
+            int switchStart = cases[cases.length - 1];
+            for (int i = 0; i < descriptors.length; i++) {
+                Class<?> type = descriptors[i].getType();
+                if (!canGet(descriptors[i]) || !(resultType.equals(Object.class) || PrimitiveSupport.isWidening(type, resultType))) {
+                    continue;
+                }
+                code.patch4(cases[i], code.position() - switchStart);
+                code.u1(ALOAD_1);
+                code.u1(CHECKCAST);
+                code.u2(classConstant(internalName(beanClass)));
+                invoke(code, descriptors[i].getAccessorMember(), true);
+                if (resultType.equals(Object.class)) {
+                    if (type.isPrimitive()) {
+                        code.u1(INVOKESTATIC);
+                        code.u2(methodConstant(internalName(wrapperOf(type)), "valueOf",
+                                               "(" + descriptorOf(type) + ")" + descriptorOf(wrapperOf(type)), false));
+                    }
+                    code.u1(ARETURN);
+                } else {
+                    widen(code, type, resultType);
+                    code.u1(returnOpcodeOf(resultType));
+                }
+            }
+            defaultCase(code, cases);
+            return code.toByteArray();
+        }
+        
+        /**
+         * Writes mutating switch which takes the new value as given type, either as an Object which
+         * is unboxed if needed or as a primitive which is widened if needed.
+         */
+        private byte[] setCode(Class<?> valueType) {
+            Bytes code = new Bytes();
+            int[] cases = tableswitch(code);
+            int switchStart = cases[cases.length - 1];
+            for (int i = 0; i < descriptors.length; i++) {
+                if (!canSet(descriptors[i])) {
+                    continue;
+                }
+                Class<?> type = descriptors[i].getMutator().getType();
+                if (!(valueType.equals(Object.class) || PrimitiveSupport.isWidening(valueType, type))) {
+                    continue;
+                }
+                code.patch4(cases[i], code.position() - switchStart);
+                code.u1(ALOAD_1);
+                code.u1(CHECKCAST);
+                code.u2(classConstant(internalName(beanClass)));
+                if (valueType.equals(Object.class)) {
+                    code.u1(ALOAD_3);
+                    unbox(code, type);
+                } else {
+                    code.u1(loadOpcodeOf(valueType));
+                    widen(code, valueType, type);
+                }
+                invoke(code, descriptors[i].getMutatorMember(), false);
+                code.u1(RETURN);
+            }
+            defaultCase(code, cases);
+            return code.toByteArray();
+        }
+        
+        /**
+         * Widens primitive on top of the stack, only the conversions allowed by
+         * {@link PrimitiveSupport#isWidening(Class, Class)} into int, long, float or double are
+         * supported.
+         */
+        private void widen(Bytes code, Class<?> from, Class<?> to) {
+            if (from.equals(to) || to.equals(int.class) || to.equals(boolean.class)) {
+                return;
+            }
+            if (to.equals(long.class)) {
+                code.u1(I2L);
+            } else if (to.equals(float.class)) {
+                code.u1(from.equals(long.class) ? L2F : I2F);
+            } else if (from.equals(long.class)) {
+                code.u1(L2D);
+            } else if (from.equals(float.class)) {
+                code.u1(F2D);
+            } else {
+                code.u1(I2D);
+            }
+        }
+        
+        private int returnOpcodeOf(Class<?> primitive) {
+            if (primitive.equals(long.class)) return LRETURN;
+            if (primitive.equals(double.class)) return DRETURN;
+            return IRETURN;
+        }
+        
+        private int loadOpcodeOf(Class<?> primitive) {
+            if (primitive.equals(long.class)) return LLOAD_3;
+            if (primitive.equals(double.class)) return DLOAD_3;
+            return ILOAD_3;
+        }
+        
+        /**
+         * Writes the switch over the property index argument with all jumps pointing nowhere yet.
+         * 
+         * @return Positions of each case's jump offset followed by the position of the default
+         *         jump offset and finally the position of the switch instruction itself.
+         */
+        private int[] tableswitch(Bytes code) {
+            int[] positions = new int[descriptors.length + 2];
+            code.u1(ILOAD_2);
+            positions[positions.length - 1] = code.position();
+            code.u1(TABLESWITCH);
+            while (code.position() % 4 != 0) {
+                code.u1(0);
+            }
+            positions[positions.length - 2] = code.position();
+            code.u4(0);
+            code.u4(0);
+            code.u4(descriptors.length - 1);
+            for (int i = 0; i < descriptors.length; i++) {
+                positions[i] = code.position();
+                code.u4(0);
+            }
+            return positions;
+        }
+        
+        /**
+         * Points the default jump and all jumps of unsupported properties to an exception.
+         */
+        private void defaultCase(Bytes code, int[] cases) {
+            int switchStart = cases[cases.length - 1];
+            int offset = code.position() - switchStart;
+            for (int i = 0; i < cases.length - 1; i++) {
+                if (code.get4(cases[i]) == 0) {
+                    code.patch4(cases[i], offset);
+                }
+            }
+            code.u1(NEW);
+            code.u2(classConstant("java/lang/IllegalArgumentException"));
+            code.u1(DUP);
+            code.u1(LDC_W);
+            code.u2(stringConstant("No generated dispatch for property index"));
+            code.u1(INVOKESPECIAL);
+            code.u2(methodConstant("java/lang/IllegalArgumentException", "<init>", "(Ljava/lang/String;)V", false));
+            code.u1(ATHROW);
+        }
+        
+        /**
+         * @return Type of the value left on stack by the access or <code>void</code> for mutations.
+         */
+        private Class<?> invoke(Bytes code, Member member, boolean access) {
+            String owner = internalName(beanClass);
+            if (member instanceof Field) {
+                Field f = (Field) member;
+                code.u1(access ? GETFIELD : PUTFIELD);
+                code.u2(fieldConstant(owner, f.getName(), descriptorOf(f.getType())));
+                return access ? f.getType() : void.class;
+            }
+            Method m = (Method) member;
+            if (beanClass.isInterface()) {
+                code.u1(INVOKEINTERFACE);
+                code.u2(methodConstant(owner, m.getName(), methodDescriptorOf(m), true));
+                code.u1(access ? 1 : 1 + (isWideType(m.getParameterTypes()[0]) ? 2 : 1));
+                code.u1(0);
+            } else {
+                code.u1(INVOKEVIRTUAL);
+                code.u2(methodConstant(owner, m.getName(), methodDescriptorOf(m), false));
+            }
+            return m.getReturnType();
+        }
+        
+        /**
+         * Converts the object on top of the stack into given type. Primitives are unboxed through
+         * {@link PrimitiveSupport} so that only widening conversions are accepted, for example an
+         * Integer can be given to a double property but a Long can't be given to an int property.
+         */
+        private void unbox(Bytes code, Class<?> type) {
+            if (!type.isPrimitive()) {
+                if (!type.equals(Object.class)) {
+                    code.u1(CHECKCAST);
+                    code.u2(classConstant(internalName(type)));
+                }
+                return;
+            }
+            String name = Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1);
+            code.u1(INVOKESTATIC);
+            code.u2(methodConstant(internalName(PrimitiveSupport.class), "unbox" + name, "(Ljava/lang/Object;)" + descriptorOf(type), false));
+        }
+        
+        private boolean isWideType(Class<?> type) {
+            return type.equals(long.class) || type.equals(double.class);
+        }
+        
+        private byte[] method(String name, String descriptor, int maxStack, int maxLocals, byte[] code) {
+            Bytes out = new Bytes();
+            out.u2(ACC_PUBLIC);
+            out.u2(utf8Constant(name));
+            out.u2(utf8Constant(descriptor));
+            out.u2(1);
+            out.u2(utf8Constant("Code"));
+            out.u4(2 + 2 + 4 + code.length + 2 + 2);
+            out.u2(maxStack);
+            out.u2(maxLocals);
+            out.u4(code.length);
+            out.bytes(code);
+            out.u2(0);
+            out.u2(0);
+            return out.toByteArray();
+        }
+        
+        private int utf8Constant(String value) {
+            Integer index = constants.get("utf8:" + value);
+            if (index == null) {
+                Bytes entry = new Bytes();
+                entry.u1(1);
+                entry.utf(value);
+                index = add("utf8:" + value, entry);
+            }
+            return index;
+        }
+        
+        private int classConstant(String internalName) {
+            Integer index = constants.get("class:" + internalName);
+            if (index == null) {
+                Bytes entry = new Bytes();
+                entry.u1(7);
+                entry.u2(utf8Constant(internalName));
+                index = add("class:" + internalName, entry);
+            }
+            return index;
+        }
+        
+        private int stringConstant(String value) {
+            Integer index = constants.get("string:" + value);
+            if (index == null) {
+                Bytes entry = new Bytes();
+                entry.u1(8);
+                entry.u2(utf8Constant(value));
+                index = add("string:" + value, entry);
+            }
+            return index;
+        }
+        
+        private int nameAndTypeConstant(String name, String descriptor) {
+            String key = "nat:" + name + ":" + descriptor;
+            Integer index = constants.get(key);
+            if (index == null) {
+                Bytes entry = new Bytes();
+                entry.u1(12);
+                entry.u2(utf8Constant(name));
+                entry.u2(utf8Constant(descriptor));
+                index = add(key, entry);
+            }
+            return index;
+        }
+        
+        private int fieldConstant(String owner, String name, String descriptor) {
+            return memberConstant(9, owner, name, descriptor);
+        }
+        
+        private int methodConstant(String owner, String name, String descriptor, boolean isInterface) {
+            return memberConstant(isInterface ? 11 : 10, owner, name, descriptor);
+        }
+        
+        private int memberConstant(int tag, String owner, String name, String descriptor) {
+            String key = tag + ":" + owner + "." + name + ":" + descriptor;
+            Integer index = constants.get(key);
+            if (index == null) {
+                Bytes entry = new Bytes();
+                entry.u1(tag);
+                entry.u2(classConstant(owner));
+                entry.u2(nameAndTypeConstant(name, descriptor));
+                index = add(key, entry);
+            }
+            return index;
+        }
+        
+        private int add(String key, Bytes entry) {
+            byte[] bytes = entry.toByteArray();
+            constantPool.write(bytes, 0, bytes.length);
+            int index = constantCount++;
+            constants.put(key, index);
+            return index;
+        }
+    }
+    
+    /**
+     * Big endian byte buffer which can patch already written jump offsets.
+     */
+    private static final class Bytes extends ByteArrayOutputStream {
+        
+        void u1(int value) {
+            write(value);
+        }
+        
+        void u2(int value) {
+            write(value >>> 8);
+            write(value);
+        }
+        
+        void u4(int value) {
+            u2(value >>> 16);
+            u2(value);
+        }
+        
+        void bytes(byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        }
+        
+        void utf(String value) {
+            ByteArrayOutputStream modifiedUtf8 = new ByteArrayOutputStream();
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch >= 0x0001 && ch <= 0x007F) {
+                    modifiedUtf8.write(ch);
+                } else if (ch <= 0x07FF) {
+                    modifiedUtf8.write(0xC0 | (ch >> 6));
+                    modifiedUtf8.write(0x80 | (ch & 0x3F));
+                } else {
+                    modifiedUtf8.write(0xE0 | (ch >> 12));
+                    modifiedUtf8.write(0x80 | ((ch >> 6) & 0x3F));
+                    modifiedUtf8.write(0x80 | (ch & 0x3F));
+                }
+            }
+            u2(modifiedUtf8.size());
+            bytes(modifiedUtf8.toByteArray());
+        }
+        
+        int position() {
+            return count;
+        }
+        
+        int get4(int position) {
+            return ((buf[position] & 0xFF) << 24) | ((buf[position + 1] & 0xFF) << 16)
+                 | ((buf[position + 2] & 0xFF) << 8) | (buf[position + 3] & 0xFF);
+        }
+        
+        void patch4(int position, int value) {
+            buf[position] = (byte) (value >>> 24);
+            buf[position + 1] = (byte) (value >>> 16);
+            buf[position + 2] = (byte) (value >>> 8);
+            buf[position + 3] = (byte) value;
+        }
+    }
+    
+    /**
+     * Defines each dispatcher as a child of the bean's own class loader while still letting it see
+     * this library's {@link PropertyDispatcher} interface.
+     */
+    private static final class DispatcherClassLoader extends ClassLoader {
+        
+        DispatcherClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+        
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.equals(PropertyDispatcher.class.getName())) {
+                return PropertyDispatcher.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+        
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
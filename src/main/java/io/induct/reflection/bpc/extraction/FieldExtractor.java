@@ -25,38 +25,56 @@ package io.induct.reflection.bpc.extraction;
 
 import java.lang.reflect.Field;
 
-import io.induct.reflection.bpc.BeanProperty;
 import io.induct.reflection.bpc.FieldAccessMutateControl;
-import io.induct.reflection.bpc.IBeanProperty;
+import io.induct.reflection.bpc.FieldHandleControl;
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
 
 public class FieldExtractor extends AbstractExtractor {
 
+    public FieldExtractor() {
+        super();
+    }
+    
+    public FieldExtractor(AccessorEngine engine) {
+        super(engine);
+    }
+    
     @Override
-    public IBeanProperty<Object> extractProperty(String propertyName, Object object) {
-        Field f = findField(propertyName, object);
+    public PropertyDescriptor extractDescriptor(String propertyName, Class<?> c) {
+        Field f = findField(propertyName, c);
         
         if (f != null) {
-            FieldAccessMutateControl<?> fieldControl = new FieldAccessMutateControl<Object>(f);
-            return new BeanProperty(object, propertyName, fieldControl, fieldControl);    
+            return describeField(propertyName, f);    
         }
         return null;
     }
     
-    protected Field findField(String propertyName, Object object) {
-        return extractField(propertyName, object.getClass().getFields());
+    /**
+     * Creates descriptor using the field itself as both the accessor and the mutator.
+     */
+    protected PropertyDescriptor describeField(String propertyName, Field f) {
+        if (engine != AccessorEngine.REFLECTION) {
+            try {
+                FieldHandleControl<Object> fieldControl = new FieldHandleControl<Object>(f);
+                return new PropertyDescriptor(propertyName, fieldControl, fieldControl, f, f);
+            } catch (IllegalAccessException e) {
+                // final fields can't be unreflected as setters, fall back to reflection
+            }
+        }
+        FieldAccessMutateControl<Object> fieldControl = new FieldAccessMutateControl<Object>(f);
+        return new PropertyDescriptor(propertyName, fieldControl, fieldControl, f, f);
+    }
+    
+    protected Field findField(String propertyName, Class<?> c) {
+        return accessible(MemberTable.fields(c).findField(propertyName));
     }
     
-    protected Field extractField(String propertyName, Field[] fields) {
-        for (Field f : fields) {
-            if (f.getName().equals(propertyName) ||
-                f.getName().equalsIgnoreCase(propertyName)) {
-                if (!f.isAccessible()) {
-                    f.setAccessible(true);
-                }
-                return f;
-            }
+    protected Field accessible(Field f) {
+        if (f != null && !f.isAccessible()) {
+            f.setAccessible(true);
         }
-        return null;
+        return f;
     }
 
 }
@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.extraction;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Public methods, public fields or declared fields of a class grouped by case-insensitive name,
+ * each group in the order reflection returned them. Tables are built once per class.
+ * 
+ * @author Esko
+ */
+final class MemberTable {
+    
+    private static final ClassValue<MemberTable> METHODS = new ClassValue<MemberTable>() {
+        @Override
+        protected MemberTable computeValue(Class<?> c) {
+            return new MemberTable(c.getMethods());
+        }
+    };
+    
+    private static final ClassValue<MemberTable> FIELDS = new ClassValue<MemberTable>() {
+        @Override
+        protected MemberTable computeValue(Class<?> c) {
+            return new MemberTable(c.getFields());
+        }
+    };
+    
+    private static final ClassValue<MemberTable> DECLARED_FIELDS = new ClassValue<MemberTable>() {
+        @Override
+        protected MemberTable computeValue(Class<?> c) {
+            return new MemberTable(c.getDeclaredFields());
+        }
+    };
+    
+    private final NameIndex index;
+    private final Member[][] groups;
+    
+    private MemberTable(Member[] members) {
+        Map<String, List<Member>> grouped = new LinkedHashMap<String, List<Member>>();
+        for (Member member : members) {
+            String key = NameIndex.fold(member.getName());
+            List<Member> group = grouped.get(key);
+            if (group == null) {
+                group = new ArrayList<Member>(1);
+                grouped.put(key, group);
+            }
+            group.add(member);
+        }
+        this.index = NameIndex.of(new ArrayList<String>(grouped.keySet()));
+        this.groups = new Member[grouped.size()][];
+        int i = 0;
+        for (List<Member> group : grouped.values()) {
+            groups[i++] = group.toArray(new Member[group.size()]);
+        }
+    }
+    
+    static MemberTable methods(Class<?> c) {
+        return METHODS.get(c);
+    }
+    
+    static MemberTable fields(Class<?> c) {
+        return FIELDS.get(c);
+    }
+    
+    static MemberTable declaredFields(Class<?> c) {
+        return DECLARED_FIELDS.get(c);
+    }
+    
+    /**
+     * @return First method named prefix + name ignoring case with given amount of parameters.
+     */
+    Method findMethod(CharSequence prefix, CharSequence name, int parameters) {
+        int i = index.indexOf(prefix, name);
+        if (i >= 0) {
+            for (Member member : groups[i]) {
+                Method m = (Method) member;
+                if (m.getParameterTypes().length == parameters) {
+                    return m;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * @return First field with given name ignoring case.
+     */
+    Field findField(CharSequence name) {
+        int i = index.indexOf(name);
+        return (i >= 0) ? (Field) groups[i][0] : null;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.extraction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+
+/**
+ * Persists the resolved property index of classes so that a new JVM can install it into
+ * {@link ClassMetadata} without scanning the classes again.
+ * <p>
+ * For every class the snapshot holds the extraction depth, the exact signatures of each
+ * property's accessor and mutator and a CRC32 of the class files of the class and its
+ * supertypes. Members are resolved by signature on load, and classes whose class files have
+ * changed (or can't be read) are skipped and left to normal extraction.
+ * 
+ * @author Esko
+ */
+public final class MetadataSnapshot {
+    
+    private static final int MAGIC = 0x42504d49; // "BPMI"
+    private static final int VERSION = 1;
+    
+    private static final byte NONE = 0;
+    private static final byte METHOD = 1;
+    private static final byte FIELD = 2;
+    
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+    static {
+        for (Class<?> c : new Class<?>[] { int.class, long.class, double.class, float.class, 
+                                           short.class, byte.class, char.class, boolean.class }) {
+            PRIMITIVES.put(c.getName(), c);
+        }
+    }
+    
+    private MetadataSnapshot() {}
+    
+    /**
+     * Indexes given classes (if they aren't already) and writes their metadata into a file.
+     * 
+     * @return Number of classes written, classes without readable class files are left out.
+     */
+    public static int save(Path file, ExtractionDepth extractionDepth, Collection<? extends Class<?>> classes) throws IOException {
+        List<Class<?>> saved = new ArrayList<Class<?>>();
+        List<Long> hashes = new ArrayList<Long>();
+        for (Class<?> c : classes) {
+            long hash = hashOf(c);
+            if (hash != 0 && isResolvable(ClassMetadata.of(c, extractionDepth).getDescriptors())) {
+                saved.add(c);
+                hashes.add(hash);
+            }
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(extractionDepth.ordinal());
+            out.writeInt(saved.size());
+            for (int i = 0; i < saved.size(); i++) {
+                Class<?> c = saved.get(i);
+                List<PropertyDescriptor> descriptors = ClassMetadata.of(c, extractionDepth).getDescriptors();
+                out.writeUTF(c.getName());
+                out.writeLong(hashes.get(i));
+                out.writeInt(descriptors.size());
+                for (PropertyDescriptor descriptor : descriptors) {
+                    out.writeUTF(descriptor.getPropertyName());
+                    writeMember(out, descriptor.getAccessorMember());
+                    writeMember(out, descriptor.getMutatorMember());
+                }
+            }
+        } finally {
+            out.close();
+        }
+        return saved.size();
+    }
+    
+    /**
+     * Loads a snapshot into the {@link ClassMetadata} of given engine. Classes which have already
+     * been indexed are left as they are.
+     * 
+     * @return Number of classes installed from the snapshot.
+     */
+    public static int load(Path file, AccessorEngine engine, ClassLoader loader) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file+" isn't a metadata snapshot");
+            }
+            ExtractionDepth extractionDepth = ExtractionDepth.values()[in.readByte()];
+            int installed = 0;
+            for (int classes = in.readInt(); classes > 0; classes--) {
+                String className = in.readUTF();
+                long hash = in.readLong();
+                int count = in.readInt();
+                String[] names = new String[count];
+                MemberSignature[][] members = new MemberSignature[count][];
+                for (int i = 0; i < count; i++) {
+                    names[i] = in.readUTF();
+                    members[i] = new MemberSignature[] { readMember(in), readMember(in) };
+                }
+                
+                Class<?> c;
+                try {
+                    c = Class.forName(className, false, loader);
+                } catch (ClassNotFoundException e) {
+                    continue;
+                }
+                if (hashOf(c) != hash) {
+                    continue;
+                }
+                ClassMetadata metadata = ClassMetadata.of(c, extractionDepth, engine);
+                PropertyDescriptor[] descriptors = resolve(metadata, names, members, c.getClassLoader());
+                if (descriptors != null && metadata.preload(descriptors)) {
+                    installed++;
+                }
+            }
+            return installed;
+        } finally {
+            in.close();
+        }
+    }
+    
+    public static int load(Path file, AccessorEngine engine) throws IOException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return load(file, engine, (loader != null) ? loader : MetadataSnapshot.class.getClassLoader());
+    }
+    
+    private static boolean isResolvable(List<PropertyDescriptor> descriptors) {
+        for (PropertyDescriptor descriptor : descriptors) {
+            if (descriptor.getAccessorMember() == null 
+                    || (!descriptor.isReadOnly() && descriptor.getMutatorMember() == null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static PropertyDescriptor[] resolve(ClassMetadata metadata, String[] names, MemberSignature[][] members, ClassLoader loader) {
+        PropertyDescriptor[] descriptors = new PropertyDescriptor[names.length];
+        try {
+            for (int i = 0; i < names.length; i++) {
+                Member accessor = members[i][0].resolve(loader);
+                Member mutator = (members[i][1] != null) ? members[i][1].resolve(loader) : null;
+                descriptors[i] = metadata.getExtractor().describe(names[i], accessor, mutator);
+            }
+        } catch (ReflectiveOperationException e) {
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+        return descriptors;
+    }
+    
+    private static void writeMember(DataOutputStream out, Member member) throws IOException {
+        if (member == null) {
+            out.writeByte(NONE);
+            return;
+        }
+        out.writeByte(member instanceof Method ? METHOD : FIELD);
+        out.writeUTF(member.getDeclaringClass().getName());
+        out.writeUTF(member.getName());
+        if (member instanceof Method) {
+            Class<?>[] parameters = ((Method) member).getParameterTypes();
+            out.writeByte(parameters.length);
+            for (Class<?> parameter : parameters) {
+                out.writeUTF(parameter.getName());
+            }
+        }
+    }
+    
+    private static MemberSignature readMember(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        if (kind == NONE) {
+            return null;
+        }
+        MemberSignature signature = new MemberSignature(kind, in.readUTF(), in.readUTF());
+        if (kind == METHOD) {
+            signature.parameters = new String[in.readByte()];
+            for (int i = 0; i < signature.parameters.length; i++) {
+                signature.parameters[i] = in.readUTF();
+            }
+        }
+        return signature;
+    }
+    
+    /**
+     * CRC32 of the class files of given class and all its supertypes outside of the JDK.
+     * 
+     * @return The hash or 0 if a class file can't be read.
+     */
+    static long hashOf(Class<?> c) {
+        Set<Class<?>> hierarchy = new LinkedHashSet<Class<?>>();
+        collectHierarchy(c, hierarchy);
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        for (Class<?> type : hierarchy) {
+            InputStream in = type.getResourceAsStream(type.getName().substring(type.getName().lastIndexOf('.') + 1) + ".class");
+            if (in == null) {
+                return 0;
+            }
+            try {
+                try {
+                    for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+                        crc.update(buffer, 0, read);
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+        return crc.getValue() | (1L << 32);
+    }
+    
+    private static void collectHierarchy(Class<?> c, Set<Class<?>> hierarchy) {
+        if (c == null || c.getClassLoader() == null || !hierarchy.add(c)) {
+            return;
+        }
+        collectHierarchy(c.getSuperclass(), hierarchy);
+        for (Class<?> i : c.getInterfaces()) {
+            collectHierarchy(i, hierarchy);
+        }
+    }
+    
+    /**
+     * Exact signature of a persisted method or field.
+     */
+    private static final class MemberSignature {
+        
+        final byte kind;
+        final String declaringClass;
+        final String name;
+        String[] parameters;
+        
+        MemberSignature(byte kind, String declaringClass, String name) {
+            this.kind = kind;
+            this.declaringClass = declaringClass;
+            this.name = name;
+        }
+        
+        Member resolve(ClassLoader loader) throws ReflectiveOperationException {
+            Class<?> owner = Class.forName(declaringClass, false, loader);
+            if (kind == FIELD) {
+                return owner.getDeclaredField(name);
+            }
+            Class<?>[] types = new Class<?>[parameters.length];
+            for (int i = 0; i < types.length; i++) {
+                Class<?> primitive = PRIMITIVES.get(parameters[i]);
+                types[i] = (primitive != null) ? primitive : Class.forName(parameters[i], false, loader);
+            }
+            return owner.getMethod(name, types);
+        }
+    }
+}
@@ -23,32 +23,44 @@
  */
 package io.induct.reflection.bpc.extraction;
 
-import io.induct.reflection.bpc.BeanProperty;
+import java.lang.reflect.Method;
+
 import io.induct.reflection.bpc.IAccessor;
-import io.induct.reflection.bpc.IBeanProperty;
 import io.induct.reflection.bpc.IMutator;
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
 
 public class MethodExtractor extends AbstractExtractor {
     
-    public IBeanProperty<Object> extractProperty(String propertyName, Object object) {
-        IMutator<?> mutator = null;
-        IAccessor<?> accessor = null;
-        mutator = findMutator("set", propertyName, object);
-        if (mutator != null) {
-            if (mutator.getType().equals(Boolean.class) ||
-                mutator.getType().equals(boolean.class)) {
-                accessor = findAccessor("is", propertyName, object);
+    public MethodExtractor() {
+        super();
+    }
+    
+    public MethodExtractor(AccessorEngine engine) {
+        super(engine);
+    }
+    
+    public PropertyDescriptor extractDescriptor(String propertyName, Class<?> c) {
+        Method mutatorMethod = findMethod("set", propertyName, c, 1);
+        if (mutatorMethod != null) {
+            Method accessorMethod = null;
+            Class<?> type = mutatorMethod.getParameterTypes()[0];
+            if (type.equals(Boolean.class) ||
+                type.equals(boolean.class)) {
+                accessorMethod = findMethod("is", propertyName, c, 0);
             } else {
-                accessor = findAccessor("get", propertyName, object);    
+                accessorMethod = findMethod("get", propertyName, c, 0);    
             }
-            if (accessor != null) {
+            if (accessorMethod != null) {
+                IAccessor<?> accessor = createAccessor(accessorMethod);
+                IMutator<?> mutator = createMutator(mutatorMethod);
                 validateProperties(accessor, mutator);
-                return new BeanProperty(object, propertyName, accessor, mutator);
+                return new PropertyDescriptor(propertyName, accessor, mutator, accessorMethod, mutatorMethod);
             }    
         } else {
-            accessor = findAccessor("get", propertyName, object);    
-            if (accessor != null) {
-                return new BeanProperty(object, propertyName, accessor, null);
+            Method accessorMethod = findMethod("get", propertyName, c, 0);    
+            if (accessorMethod != null) {
+                return new PropertyDescriptor(propertyName, createAccessor(accessorMethod), null, accessorMethod, null);
             }
         }
         return null;
@@ -0,0 +1,265 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.extraction;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Case-insensitive index of names which resolves strings, any other character sequences and
+ * UTF-8 byte slices to name positions without allocating.
+ * <p>
+ * Names are hashed case folded into an open addressing table. An exact match always wins,
+ * otherwise the first name equal ignoring case (as {@link String#equalsIgnoreCase(String)}) is
+ * returned, which is the same resolution order property lookups have always used.
+ * 
+ * @author Esko
+ */
+public final class NameIndex {
+    
+    private static final int EXACT = 2;
+    private static final int IGNORING_CASE = 1;
+    private static final int MISMATCH = 0;
+    
+    private final String[] names;
+    private final int[] hashes;
+    private final int[] table;
+    private final int mask;
+    
+    private NameIndex(String[] names) {
+        this.names = names;
+        this.hashes = new int[names.length];
+        this.table = new int[Integer.highestOneBit(Math.max(names.length, 1)) << 2];
+        this.mask = table.length - 1;
+        for (int i = 0; i < names.length; i++) {
+            hashes[i] = hash("", names[i]);
+            int slot = hashes[i] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+    
+    public static NameIndex of(String... names) {
+        return new NameIndex(names.clone());
+    }
+    
+    public static NameIndex of(List<String> names) {
+        return new NameIndex(names.toArray(new String[names.size()]));
+    }
+    
+    private static char fold(char ch) {
+        return Character.toLowerCase(Character.toUpperCase(ch));
+    }
+    
+    /**
+     * @return Given name with every character case folded, names equal ignoring case fold equal.
+     */
+    static String fold(CharSequence name) {
+        StringBuilder folded = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            folded.append(fold(name.charAt(i)));
+        }
+        return folded.toString();
+    }
+    
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+    
+    private static int hash(CharSequence prefix, CharSequence name) {
+        int hash = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            hash = 31 * hash + fold(prefix.charAt(i));
+        }
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + fold(name.charAt(i));
+        }
+        return spread(hash);
+    }
+    
+    /**
+     * @return Position of the name or -1 if there's no such name.
+     */
+    public int indexOf(CharSequence name) {
+        return indexOf("", name);
+    }
+    
+    /**
+     * Looks up the concatenation of prefix and name without concatenating them.
+     * 
+     * @return Position of the name or -1 if there's no such name.
+     */
+    public int indexOf(CharSequence prefix, CharSequence name) {
+        int hash = hash(prefix, name);
+        int found = -1;
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int i = table[slot] - 1;
+            if (hashes[i] != hash) {
+                continue;
+            }
+            int match = compare(names[i], prefix, name);
+            if (match == EXACT) {
+                return i;
+            } else if (match == IGNORING_CASE && (found < 0 || i < found)) {
+                found = i;
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * @return Position of the UTF-8 encoded name or -1 if there's no such name.
+     */
+    public int indexOf(byte[] utf8, int offset, int length) {
+        int hash = 0;
+        int end = offset + length;
+        for (int at = offset; at < end; ) {
+            long decoded = decode(utf8, at, end);
+            int codePoint = (int) decoded;
+            at += (int) (decoded >>> 32);
+            if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                hash = 31 * hash + fold(Character.highSurrogate(codePoint));
+                hash = 31 * hash + fold(Character.lowSurrogate(codePoint));
+            } else {
+                hash = 31 * hash + fold((char) codePoint);
+            }
+        }
+        hash = spread(hash);
+        int found = -1;
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int i = table[slot] - 1;
+            if (hashes[i] != hash) {
+                continue;
+            }
+            int match = compare(names[i], utf8, offset, end);
+            if (match == EXACT) {
+                return i;
+            } else if (match == IGNORING_CASE && (found < 0 || i < found)) {
+                found = i;
+            }
+        }
+        return found;
+    }
+    
+    private static int compare(String candidate, CharSequence prefix, CharSequence name) {
+        int prefixLength = prefix.length();
+        if (candidate.length() != prefixLength + name.length()) {
+            return MISMATCH;
+        }
+        int match = EXACT;
+        for (int i = 0; i < candidate.length(); i++) {
+            char expected = candidate.charAt(i);
+            char actual = (i < prefixLength) ? prefix.charAt(i) : name.charAt(i - prefixLength);
+            if (expected != actual) {
+                if (!equalIgnoringCase(expected, actual)) {
+                    return MISMATCH;
+                }
+                match = IGNORING_CASE;
+            }
+        }
+        return match;
+    }
+    
+    private static int compare(String candidate, byte[] utf8, int at, int end) {
+        int match = EXACT;
+        int i = 0;
+        while (at < end) {
+            long decoded = decode(utf8, at, end);
+            int codePoint = (int) decoded;
+            at += (int) (decoded >>> 32);
+            if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (i + 2 > candidate.length() 
+                        || candidate.charAt(i++) != Character.highSurrogate(codePoint)
+                        || candidate.charAt(i++) != Character.lowSurrogate(codePoint)) {
+                    return MISMATCH;
+                }
+                continue;
+            }
+            if (i == candidate.length()) {
+                return MISMATCH;
+            }
+            char expected = candidate.charAt(i++);
+            char actual = (char) codePoint;
+            if (expected != actual) {
+                if (!equalIgnoringCase(expected, actual)) {
+                    return MISMATCH;
+                }
+                match = IGNORING_CASE;
+            }
+        }
+        return (i == candidate.length()) ? match : MISMATCH;
+    }
+    
+    /**
+     * Same comparison as {@link String#equalsIgnoreCase(String)} does for single characters.
+     */
+    private static boolean equalIgnoringCase(char left, char right) {
+        char upperLeft = Character.toUpperCase(left);
+        char upperRight = Character.toUpperCase(right);
+        return upperLeft == upperRight || Character.toLowerCase(upperLeft) == Character.toLowerCase(upperRight);
+    }
+    
+    /**
+     * Decodes the code point at given position, malformed sequences decode to U+FFFD one byte at a time.
+     * 
+     * @return The code point in the low and its encoded length in the high 32 bits.
+     */
+    private static long decode(byte[] utf8, int at, int end) {
+        int b = utf8[at] & 0xFF;
+        if (b < 0x80) {
+            return (1L << 32) | b;
+        }
+        int length = (b >= 0xF8) ? 0 : (b >= 0xF0) ? 4 : (b >= 0xE0) ? 3 : (b >= 0xC0) ? 2 : 0;
+        if (length == 0 || at + length > end) {
+            return (1L << 32) | 0xFFFD;
+        }
+        int codePoint = b & (0x3F >> (length - 1));
+        for (int i = 1; i < length; i++) {
+            int continuation = utf8[at + i] & 0xFF;
+            if ((continuation & 0xC0) != 0x80) {
+                return (1L << 32) | 0xFFFD;
+            }
+            codePoint = (codePoint << 6) | (continuation & 0x3F);
+        }
+        if (codePoint > Character.MAX_CODE_POINT) {
+            return (1L << 32) | 0xFFFD;
+        }
+        return ((long) length << 32) | codePoint;
+    }
+    
+    public int size() {
+        return names.length;
+    }
+    
+    public String getName(int i) {
+        return names[i];
+    }
+    
+    @Override
+    public String toString() {
+        return "NameIndex :: "+Arrays.toString(names);
+    }
+}
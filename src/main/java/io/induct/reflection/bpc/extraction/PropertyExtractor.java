@@ -23,37 +23,84 @@
  */
 package io.induct.reflection.bpc.extraction;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+import io.induct.reflection.bpc.IAccessor;
 import io.induct.reflection.bpc.IBeanProperty;
+import io.induct.reflection.bpc.IMutator;
 import io.induct.reflection.bpc.NonexistentPropertyException;
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
 import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
 
 public class PropertyExtractor {
     
     private final ExtractionDepth extractionDepth;
+    private final AccessorEngine engine;
     
     public PropertyExtractor(ExtractionDepth extractionDepth) {
+        this(extractionDepth, AccessorEngine.REFLECTION);
+    }
+    
+    public PropertyExtractor(ExtractionDepth extractionDepth, AccessorEngine engine) {
         this.extractionDepth = extractionDepth;
+        this.engine = engine;
     }
     
+    /**
+     * Returns property of the given object bound to the shared, class level descriptor of the
+     * named property. Descriptors are extracted only once per class, extraction depth and engine.
+     */
     public IBeanProperty<?> extractProperty(String propertyName, Object object) {
-        IBeanProperty<Object> beanProperty = null;
+        return ClassMetadata.of(object.getClass(), extractionDepth, engine).getDescriptor(propertyName).bind(object);
+    }
+    
+    /**
+     * Uncached extraction of the named property's descriptor, use {@link ClassMetadata} instead
+     * unless you really need to rescan the class.
+     */
+    public PropertyDescriptor extractDescriptor(String propertyName, Class<?> c) {
+        PropertyDescriptor descriptor = null;
        
         if (extractionDepth.compareTo(ExtractionDepth.METHODS) == 0) {
-            beanProperty = new MethodExtractor().extractProperty(propertyName, object);
+            descriptor = new MethodExtractor(engine).extractDescriptor(propertyName, c);
         }
         
-        if (beanProperty == null && extractionDepth.compareTo(ExtractionDepth.FIELDS) >= 0) {
-            beanProperty = new FieldExtractor().extractProperty(propertyName, object);
+        if (descriptor == null && extractionDepth.compareTo(ExtractionDepth.FIELDS) >= 0) {
+            descriptor = new FieldExtractor(engine).extractDescriptor(propertyName, c);
         }
 
-        if (beanProperty == null && extractionDepth.compareTo(ExtractionDepth.QUESTIMATE) >= 0) {
-            beanProperty = new DeclaredFieldExtractor().extractProperty(propertyName, object);                
+        if (descriptor == null && extractionDepth.compareTo(ExtractionDepth.QUESTIMATE) >= 0) {
+            descriptor = new DeclaredFieldExtractor(engine).extractDescriptor(propertyName, c);                
         }
         
-        if (beanProperty != null) {            
-            return beanProperty;
+        if (descriptor != null) {            
+            return descriptor;
         }
         
-        throw new NonexistentPropertyException(propertyName, object.getClass());
+        throw new NonexistentPropertyException(propertyName, c);
+    }
+    
+    /**
+     * Describes a property from already known members without scanning the class.
+     * 
+     * @param accessor Getter method or field.
+     * @param mutator Setter method, the same field as accessor or <code>null</code> for read-only properties.
+     */
+    PropertyDescriptor describe(String propertyName, Member accessor, Member mutator) {
+        if (accessor instanceof Field) {
+            FieldExtractor fields = new FieldExtractor(engine);
+            return fields.describeField(propertyName, fields.accessible((Field) accessor));
+        }
+        MethodExtractor methods = new MethodExtractor(engine);
+        IAccessor<?> methodAccessor = methods.createAccessor((Method) accessor);
+        if (mutator == null) {
+            return new PropertyDescriptor(propertyName, methodAccessor, null, accessor, null);
+        }
+        IMutator<?> methodMutator = methods.createMutator((Method) mutator);
+        methods.validateProperties(methodAccessor, methodMutator);
+        return new PropertyDescriptor(propertyName, methodAccessor, methodMutator, accessor, mutator);
     }
 }
@@ -0,0 +1,214 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.extraction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.induct.reflection.bpc.NonMatchingAccessorAndMutatorException;
+import io.induct.reflection.bpc.NonexistentPropertyException;
+import io.induct.reflection.bpc.PropertyTypes;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+
+/**
+ * Dotted paths of all properties reachable from a class, enumerated from the declared property
+ * types instead of live values.
+ * <p>
+ * Every property named by {@link PropertyNameIndex} is listed, and properties whose type is
+ * another bean are followed into that bean. Primitives, arrays, enums and JDK types are leaves.
+ * A type which is already being enumerated higher up in the same path is not entered again, so
+ * self referential types such as trees are cut at their first repetition even without a step
+ * limit. Subtrees which don't depend on their ancestors are enumerated only once per graph.
+ * <p>
+ * Graphs are cached per root class, extraction depth and step limit.
+ * 
+ * @author Esko
+ */
+public final class PropertyGraph {
+    
+    private static final ClassValue<ConcurrentMap<Long, PropertyGraph>> REGISTRY = 
+            new ClassValue<ConcurrentMap<Long, PropertyGraph>>() {
+        @Override
+        protected ConcurrentMap<Long, PropertyGraph> computeValue(Class<?> c) {
+            return new ConcurrentHashMap<Long, PropertyGraph>();
+        }
+    };
+    
+    private final Class<?> root;
+    private final ExtractionDepth extractionDepth;
+    private final int maxSteps;
+    private final List<String> paths;
+    
+    private PropertyGraph(Class<?> root, ExtractionDepth extractionDepth, int maxSteps) {
+        this.root = root;
+        this.extractionDepth = extractionDepth;
+        this.maxSteps = maxSteps;
+        
+        Enumeration enumeration = new Enumeration(extractionDepth);
+        List<String> found = new ArrayList<String>();
+        enumeration.enumerate(root, maxSteps, found, new HashSet<Class<?>>());
+        this.paths = Collections.unmodifiableList(found);
+    }
+    
+    /**
+     * @param maxSteps How many steps into nested beans are taken, -1 for no limit.
+     */
+    public static PropertyGraph of(Class<?> root, ExtractionDepth extractionDepth, int maxSteps) {
+        ConcurrentMap<Long, PropertyGraph> graphs = REGISTRY.get(root);
+        Long key = Long.valueOf(((long) maxSteps << 8) | extractionDepth.ordinal());
+        PropertyGraph graph = graphs.get(key);
+        if (graph == null) {
+            graph = new PropertyGraph(root, extractionDepth, maxSteps);
+            PropertyGraph existing = graphs.putIfAbsent(key, graph);
+            if (existing != null) {
+                graph = existing;
+            }
+        }
+        return graph;
+    }
+    
+    /**
+     * @return Unmodifiable list of property paths, each bean property is directly followed by the
+     *         paths within it.
+     */
+    public List<String> getPaths() {
+        return paths;
+    }
+    
+    public Class<?> getRoot() {
+        return root;
+    }
+    
+    public ExtractionDepth getExtractionDepth() {
+        return extractionDepth;
+    }
+    
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+    
+    /**
+     * Tells if properties of given type are listed without stepping into them.
+     */
+    static boolean isLeaf(Class<?> type) {
+        return type.isPrimitive() || type.isArray() || type.isEnum() || type.isAnnotation() || PropertyTypes.isPlatform(type);
+    }
+    
+    /**
+     * Depth first enumeration of a single graph. The classes on the current path are kept on a
+     * stack, and every subtree reports the lowest stack position it was cut at. A subtree cut only
+     * at or below its own position looks the same wherever it appears and is memoized together
+     * with the classes it entered, it's reused only where none of those classes is on the stack.
+     */
+    private static class Enumeration {
+        private final ExtractionDepth extractionDepth;
+        private final List<Class<?>> stack = new ArrayList<Class<?>>();
+        private final Map<Class<?>, Map<Integer, Subtree>> memo = new HashMap<Class<?>, Map<Integer, Subtree>>();
+        
+        Enumeration(ExtractionDepth extractionDepth) {
+            this.extractionDepth = extractionDepth;
+        }
+        
+        /**
+         * Adds relative paths of the given class to the list and the classes entered for them,
+         * including the given class, to the set.
+         * 
+         * @return Lowest stack position the enumeration was cut at, or Integer.MAX_VALUE.
+         */
+        int enumerate(Class<?> c, int steps, List<String> paths, Set<Class<?>> entered) {
+            Map<Integer, Subtree> memoized = memo.get(c);
+            Subtree subtree = (memoized != null) ? memoized.get(steps) : null;
+            if (subtree != null && Collections.disjoint(subtree.entered, stack)) {
+                paths.addAll(subtree.paths);
+                entered.addAll(subtree.entered);
+                return Integer.MAX_VALUE;
+            }
+            
+            int position = stack.size();
+            stack.add(c);
+            int cut = Integer.MAX_VALUE;
+            List<String> found = new ArrayList<String>();
+            Set<Class<?>> enteredBelow = new HashSet<Class<?>>();
+            enteredBelow.add(c);
+            ClassMetadata metadata = ClassMetadata.of(c, extractionDepth);
+            for (String name : PropertyNameIndex.of(c, extractionDepth).getNames()) {
+                found.add(name);
+                Class<?> type = typeOf(metadata, name);
+                if (type == null || isLeaf(type) || steps == 0) {
+                    continue;
+                }
+                int onStack = stack.indexOf(type);
+                if (onStack >= 0) {
+                    cut = Math.min(cut, onStack);
+                    continue;
+                }
+                List<String> nested = new ArrayList<String>();
+                cut = Math.min(cut, enumerate(type, (steps < 0) ? steps : steps - 1, nested, enteredBelow));
+                for (String path : nested) {
+                    found.add(name + "." + path);
+                }
+            }
+            stack.remove(position);
+            
+            if (cut >= position) {
+                if (memoized == null) {
+                    memoized = new HashMap<Integer, Subtree>();
+                    memo.put(c, memoized);
+                }
+                memoized.put(steps, new Subtree(found, enteredBelow));
+                cut = Integer.MAX_VALUE;
+            }
+            paths.addAll(found);
+            entered.addAll(enteredBelow);
+            return cut;
+        }
+        
+        private Class<?> typeOf(ClassMetadata metadata, String name) {
+            try {
+                return metadata.getDescriptor(name).getType();
+            } catch (NonexistentPropertyException e) {
+                return null;
+            } catch (NonMatchingAccessorAndMutatorException e) {
+                return null;
+            }
+        }
+    }
+    
+    private static final class Subtree {
+        final List<String> paths;
+        final Set<Class<?>> entered;
+        
+        Subtree(List<String> paths, Set<Class<?>> entered) {
+            this.paths = paths;
+            this.entered = entered;
+        }
+    }
+}
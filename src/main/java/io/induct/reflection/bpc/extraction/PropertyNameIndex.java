@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.extraction;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+
+/**
+ * Cached names of the properties of a class as listed by
+ * {@link io.induct.reflection.bpc.BeanPropertyController#getPropertyNames()}.
+ * <p>
+ * A name is listed for every mutator with a matching accessor (names compared case insensitively)
+ * and, depending on the extraction depth, for every field. The methods are grouped by property
+ * name in a single pass and the result is computed once per class and extraction depth.
+ * 
+ * @author Esko
+ */
+public final class PropertyNameIndex {
+    
+    private static final ClassValue<PropertyNameIndex[]> REGISTRY = new ClassValue<PropertyNameIndex[]>() {
+        @Override
+        protected PropertyNameIndex[] computeValue(Class<?> c) {
+            ExtractionDepth[] depths = ExtractionDepth.values();
+            PropertyNameIndex[] indexes = new PropertyNameIndex[depths.length];
+            for (ExtractionDepth depth : depths) {
+                indexes[depth.ordinal()] = new PropertyNameIndex(c, depth);
+            }
+            return indexes;
+        }
+    };
+    
+    private final String[] names;
+    private final List<String> nameList;
+    
+    private PropertyNameIndex(Class<?> c, ExtractionDepth extractionDepth) {
+        SortedSet<String> found = new TreeSet<String>();
+        
+        Map<String, MethodGroup> groups = new HashMap<String, MethodGroup>();
+        for (Method m : c.getMethods()) {
+            String name = m.getName();
+            int parameters = m.getParameterTypes().length;
+            if (name.startsWith("set") && parameters == 1 && name.length() > 3) {
+                String baseName = name.substring(3);
+                groupOf(groups, baseName).addMutator(baseName.substring(0, 1).toLowerCase() + baseName.substring(1));
+            }
+            if (parameters == 0) {
+                if (name.startsWith("get")) {
+                    groupOf(groups, name.substring(3)).accessor = true;
+                } else if (name.startsWith("is")) {
+                    groupOf(groups, name.substring(2)).accessor = true;
+                }
+            }
+        }
+        for (MethodGroup group : groups.values()) {
+            if (group.accessor && group.mutatorName != null) {
+                found.add(group.mutatorName);
+            }
+        }
+        
+        if (extractionDepth.compareTo(ExtractionDepth.FIELDS) >= 0) {
+            for (Field f : c.getFields()) {
+                found.add(f.getName());
+            }
+        }
+        if (extractionDepth.compareTo(ExtractionDepth.QUESTIMATE) >= 0) {
+            for (Field f : c.getDeclaredFields()) {
+                found.add(f.getName());
+            }
+        }
+        
+        this.names = found.toArray(new String[found.size()]);
+        this.nameList = Collections.unmodifiableList(Arrays.asList(names));
+    }
+    
+    public static PropertyNameIndex of(Class<?> c, ExtractionDepth extractionDepth) {
+        return REGISTRY.get(c)[extractionDepth.ordinal()];
+    }
+    
+    private static MethodGroup groupOf(Map<String, MethodGroup> groups, String baseName) {
+        String key = baseName.toLowerCase(Locale.ENGLISH);
+        MethodGroup group = groups.get(key);
+        if (group == null) {
+            group = new MethodGroup();
+            groups.put(key, group);
+        }
+        return group;
+    }
+    
+    /**
+     * @return Shared, unmodifiable list of the property names in sorted order.
+     */
+    public List<String> getNames() {
+        return nameList;
+    }
+    
+    /**
+     * @return Copy of the property names in sorted order.
+     */
+    public String[] toArray() {
+        return names.clone();
+    }
+    
+    public int size() {
+        return names.length;
+    }
+    
+    /**
+     * Methods sharing a case insensitive property name.
+     */
+    private static class MethodGroup {
+        private String mutatorName;
+        private boolean accessor;
+        
+        void addMutator(String name) {
+            if (mutatorName == null) {
+                mutatorName = name;
+            }
+        }
+    }
+}
@@ -24,16 +24,16 @@
 package io.induct.reflection.bpc.instantiation;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
 
-import io.induct.reflection.bpc.BeanInstantiationException;
+import io.induct.reflection.bpc.metrics.IMetricsCollector;
+import io.induct.reflection.bpc.metrics.Metrics;
 
 public class ClassInstantiator implements Serializable {
     
     private static final long serialVersionUID = 1L;
-    private final Class<?> c;
-    private final InstantiationPolicy policy;
+    protected final Class<?> c;
+    protected final InstantiationPolicy policy;
+    private transient InstantiationPlan plan;
 
     public ClassInstantiator(Class<?> c, InstantiationPolicy policy) {
         this.c = c;
@@ -62,20 +62,22 @@ public class ClassInstantiator implements Serializable {
     }
     
     public Object instantiate() {
-        List<Throwable> exceptions = new ArrayList<Throwable>();
-        Object instantiated = null;
-        if (policy.compareTo(InstantiationPolicy.NO_ARGS) == 0) {
-            instantiated = new DefaultInstantiator().instantiate(c);
-        } else if (instantiated == null && policy.compareTo(InstantiationPolicy.NICE) == 0) {
-            instantiated = new ConstructorInstantiator().instantiate(c);
+        IMetricsCollector metrics = Metrics.getCollector();
+        if (!metrics.isEnabled()) {
+            return instantiateBean();
         }
-
-        if (instantiated != null) {
-            return instantiated;    
-        } else {
-            throw new BeanInstantiationException("Failed to instantiate given class :: " + exceptions.toString(),
-                                                 exceptions);
+        long start = System.nanoTime();
+        Object instantiated = instantiateBean();
+        metrics.beanInstantiated(c, System.nanoTime() - start);
+        return instantiated;
+    }
+    
+    private Object instantiateBean() {
+        InstantiationPlan resolved = plan;
+        if (resolved == null) {
+            resolved = InstantiationPlan.of(c, policy);
+            plan = resolved;
         }
-        
+        return resolved.instantiate();
     }
 }
@@ -23,18 +23,12 @@
  */
 package io.induct.reflection.bpc.instantiation;
 
-import io.induct.reflection.bpc.BeanInstantiationException;
+import io.induct.reflection.bpc.instantiation.ClassInstantiator.InstantiationPolicy;
 
 public class DefaultInstantiator implements IClassInstantiator {
 
     public <C> C instantiate(Class<C> c) {
-        try {
-            return c.newInstance();
-        } catch (InstantiationException e) {
-            throw new BeanInstantiationException("Couldn't instantiate given class "+c.getName(), e);
-        } catch (IllegalAccessException e) {
-            throw new BeanInstantiationException("Couldn't instantiate given class "+c.getName(), e);
-        }
+        return c.cast(InstantiationPlan.of(c, InstantiationPolicy.NO_ARGS).instantiate());
     }
 
 }
@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.instantiation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+import io.induct.reflection.bpc.BeanInstantiationException;
+import io.induct.reflection.bpc.ConstructorComparator;
+import io.induct.reflection.bpc.NiceValueProvider;
+import io.induct.reflection.bpc.instantiation.ClassInstantiator.InstantiationPolicy;
+
+/**
+ * Constructor of a class resolved once per {@link InstantiationPolicy}, with any nice arguments
+ * already bound, so that instantiating is a single method handle call.
+ * <p>
+ * Classes which can't be instantiated get a plan too, it fails every instantiation with the
+ * reason found during resolution.
+ * 
+ * @author Esko
+ */
+final class InstantiationPlan {
+    
+    private static final MethodType FACTORY = MethodType.methodType(Object.class);
+    
+    private static final ClassValue<InstantiationPlan[]> PLANS = new ClassValue<InstantiationPlan[]>() {
+        @Override
+        protected InstantiationPlan[] computeValue(Class<?> c) {
+            return new InstantiationPlan[InstantiationPolicy.values().length];
+        }
+    };
+    
+    private final Class<?> c;
+    private final MethodHandle factory;
+    private final String failureMessage;
+    private final Throwable failure;
+    
+    private InstantiationPlan(Class<?> c, MethodHandle factory, String failureMessage, Throwable failure) {
+        this.c = c;
+        this.factory = factory;
+        this.failureMessage = failureMessage;
+        this.failure = failure;
+    }
+    
+    static InstantiationPlan of(Class<?> c, InstantiationPolicy policy) {
+        InstantiationPlan[] plans = PLANS.get(c);
+        InstantiationPlan plan = plans[policy.ordinal()];
+        if (plan == null) {
+            // racing threads may resolve the same plan twice, both are equal
+            plan = (policy.compareTo(InstantiationPolicy.NICE) == 0) ? resolveNice(c) : resolveNoArgs(c);
+            plans[policy.ordinal()] = plan;
+        }
+        return plan;
+    }
+    
+    Object instantiate() {
+        if (factory == null) {
+            throw new BeanInstantiationException(failureMessage, failure);
+        }
+        try {
+            return factory.invokeExact();
+        } catch (RuntimeException e) {
+            throw new BeanInstantiationException(failureMessage, e);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new BeanInstantiationException(failureMessage, t);
+        }
+    }
+    
+    private static InstantiationPlan resolveNoArgs(Class<?> c) {
+        String message = "Couldn't instantiate given class "+c.getName();
+        try {
+            return resolve(c, c.getConstructor(), message);
+        } catch (NoSuchMethodException e) {
+            return new InstantiationPlan(c, null, message, e);
+        }
+    }
+    
+    private static InstantiationPlan resolveNice(Class<?> c) {
+        Constructor<?>[] constructors = c.getConstructors();
+        if (constructors.length == 0) {
+            String message = "Couldn't instantiate class "+c.getName()+", it has no public constructors";
+            return new InstantiationPlan(c, null, message, new NoSuchMethodException(c.getName()+".<init>"));
+        }
+        Arrays.sort(constructors, ConstructorComparator.PARAMETER_COUNT);
+        Constructor<?> constructor = constructors[0];
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        String message = "Couldn't instantiate class "+c.getName()+" using the "+parameterTypes.length+"-argument constructor";
+        
+        Object[] niceParameters = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            niceParameters[i] = NiceValueProvider.INSTANCE.getNiceValueFor(parameterTypes[i]);
+        }
+        InstantiationPlan plan = resolve(c, constructor, message);
+        if (plan.factory == null) {
+            return plan;
+        }
+        try {
+            MethodHandle bound = MethodHandles.insertArguments(plan.factory, 0, niceParameters);
+            return new InstantiationPlan(c, bound.asType(FACTORY), message, null);
+        } catch (RuntimeException e) {
+            // a nice value didn't fit the parameter type
+            return new InstantiationPlan(c, null, message, e);
+        }
+    }
+    
+    /**
+     * @return Plan with the unbound constructor handle, its return type adapted to Object.
+     */
+    private static InstantiationPlan resolve(Class<?> c, Constructor<?> constructor, String message) {
+        if (Modifier.isAbstract(c.getModifiers())) {
+            return new InstantiationPlan(c, null, message, new InstantiationException(c.getName()+" is abstract"));
+        }
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().unreflectConstructor(constructor);
+            MethodType type = handle.type().changeReturnType(Object.class);
+            return new InstantiationPlan(c, handle.asType(type), message, null);
+        } catch (IllegalAccessException e) {
+            return new InstantiationPlan(c, null, message, e);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "InstantiationPlan :: "+c.getName()+((factory == null) ? " (not instantiable)" : "");
+    }
+}
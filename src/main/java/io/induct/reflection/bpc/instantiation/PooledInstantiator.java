@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.instantiation;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import io.induct.reflection.bpc.BeanInstantiationException;
+
+/**
+ * Class instantiator which hands out beans from a buffer of pre-instantiated beans.
+ * <p>
+ * In the default mode the buffer is refilled a whole batch at a time when it runs empty. In
+ * background mode a daemon thread keeps a buffer of one batch filled ahead of the consumers and
+ * {@link #close()} should be called to stop it once the instantiator isn't needed anymore.
+ * 
+ * @author Esko
+ */
+public class PooledInstantiator extends ClassInstantiator implements Closeable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final int batchSize;
+    private final boolean background;
+    private transient Object[] buffer;
+    private transient int next;
+    private transient BlockingQueue<Object> queue;
+    private transient Thread filler;
+    
+    public PooledInstantiator(Class<?> c, InstantiationPolicy policy, int batchSize) {
+        this(c, policy, batchSize, false);
+    }
+    
+    public PooledInstantiator(Class<?> c, InstantiationPolicy policy, int batchSize, boolean background) {
+        super(c, policy);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive, was "+batchSize);
+        }
+        this.batchSize = batchSize;
+        this.background = background;
+    }
+    
+    @Override
+    public Object instantiate() {
+        if (!background) {
+            synchronized (this) {
+                return poll();
+            }
+        }
+        // waiting happens outside the monitor so that close() isn't blocked by consumers
+        return take(filled());
+    }
+    
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public boolean isBackground() {
+        return background;
+    }
+    
+    /**
+     * Stops the background filler thread, if any. Consumers still waiting for a bean fail with
+     * {@link BeanInstantiationException}. Instantiating after closing starts a new filler.
+     */
+    public synchronized void close() {
+        if (filler != null) {
+            filler.interrupt();
+            end(queue, new EndOfBeans(null));
+            filler = null;
+            queue = null;
+        }
+    }
+    
+    private Object poll() {
+        if (buffer == null || next == buffer.length) {
+            Object[] batch = new Object[batchSize];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = super.instantiate();
+            }
+            buffer = batch;
+            next = 0;
+        }
+        Object instantiated = buffer[next];
+        buffer[next++] = null;
+        return instantiated;
+    }
+    
+    private synchronized BlockingQueue<Object> filled() {
+        if (filler == null) {
+            startFiller();
+        }
+        return queue;
+    }
+    
+    private Object take(BlockingQueue<Object> filled) {
+        Object instantiated;
+        try {
+            instantiated = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeanInstantiationException("Interrupted while waiting for a pre-instantiated bean", e);
+        }
+        if (!(instantiated instanceof EndOfBeans)) {
+            return instantiated;
+        }
+        // leave the marker for the other consumers of the same queue
+        filled.offer(instantiated);
+        Throwable failure = ((EndOfBeans) instantiated).failure;
+        if (failure == null) {
+            throw new BeanInstantiationException("Instantiator was closed while waiting for a pre-instantiated bean", 
+                    Collections.<Throwable>emptyList());
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        throw new BeanInstantiationException("Background instantiation of "+c.getName()+" failed", failure);
+    }
+    
+    private void startFiller() {
+        final BlockingQueue<Object> filled = new ArrayBlockingQueue<Object>(batchSize);
+        final ClassInstantiator instantiator = new ClassInstantiator(c, policy);
+        filler = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        filled.put(instantiator.instantiate());
+                    }
+                } catch (InterruptedException e) {
+                    // closed, close() has already ended the queue
+                } catch (Throwable t) {
+                    end(filled, new EndOfBeans(t));
+                }
+            }
+        }, "bpc-pool-" + c.getName());
+        filler.setDaemon(true);
+        queue = filled;
+        filler.start();
+    }
+    
+    /**
+     * Replaces the remaining beans with the end marker. Only the filler thread puts beans into the
+     * queue and it has either stopped or been interrupted, so there is always room for the marker.
+     */
+    private static void end(BlockingQueue<Object> filled, EndOfBeans marker) {
+        filled.clear();
+        filled.offer(marker);
+    }
+    
+    /**
+     * Marks the end of the beans in the queue, the cause is <code>null</code> when the
+     * instantiator was closed.
+     */
+    private static final class EndOfBeans {
+        final Throwable failure;
+        
+        EndOfBeans(Throwable failure) {
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory collector which aggregates counts and total/maximum durations of every event type.
+ * Updates are contention free, {@link #snapshot()} gives the current values for scraping.
+ * 
+ * @author Esko
+ */
+public class AggregatingMetricsCollector implements IMetricsCollector {
+    
+    private final Timer resolutions = new Timer();
+    private final Timer accesses = new Timer();
+    private final Timer mutations = new Timer();
+    private final Timer instantiations = new Timer();
+    private final Timer scans = new Timer();
+    private final LongAdder[] hits = adders(Cache.values().length);
+    private final LongAdder[] misses = adders(Cache.values().length);
+    
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public boolean isEnabled() {
+        return true;
+    }
+
+    public void propertyResolved(Class<?> c, long nanos) {
+        resolutions.record(nanos);
+    }
+
+    public void cacheHit(Cache cache) {
+        hits[cache.ordinal()].increment();
+    }
+
+    public void cacheMiss(Cache cache) {
+        misses[cache.ordinal()].increment();
+    }
+
+    public void propertyAccessed(long nanos) {
+        accesses.record(nanos);
+    }
+
+    public void propertyMutated(long nanos) {
+        mutations.record(nanos);
+    }
+
+    public void beanInstantiated(Class<?> c, long nanos) {
+        instantiations.record(nanos);
+    }
+
+    public void propertyNamesScanned(Class<?> c, long nanos) {
+        scans.record(nanos);
+    }
+    
+    public long getCacheHits(Cache cache) {
+        return hits[cache.ordinal()].sum();
+    }
+    
+    public long getCacheMisses(Cache cache) {
+        return misses[cache.ordinal()].sum();
+    }
+    
+    public long getResolutionCount() {
+        return resolutions.count.sum();
+    }
+    
+    public long getAccessCount() {
+        return accesses.count.sum();
+    }
+    
+    public long getMutationCount() {
+        return mutations.count.sum();
+    }
+    
+    public long getInstantiationCount() {
+        return instantiations.count.sum();
+    }
+    
+    public long getPropertyNameScanCount() {
+        return scans.count.sum();
+    }
+    
+    /**
+     * Returns current values of all metrics by name. Timers are given as <code>.count</code>,
+     * <code>.totalNanos</code> and <code>.maxNanos</code>.
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<String, Long>();
+        resolutions.snapshot("bpc.resolution", snapshot);
+        accesses.snapshot("bpc.access", snapshot);
+        mutations.snapshot("bpc.mutation", snapshot);
+        instantiations.snapshot("bpc.instantiation", snapshot);
+        scans.snapshot("bpc.propertyNames", snapshot);
+        for (Cache cache : Cache.values()) {
+            String name = "bpc.cache." + cache.name().toLowerCase(Locale.ENGLISH);
+            snapshot.put(name + ".hits", getCacheHits(cache));
+            snapshot.put(name + ".misses", getCacheMisses(cache));
+        }
+        return snapshot;
+    }
+    
+    public void reset() {
+        resolutions.reset();
+        accesses.reset();
+        mutations.reset();
+        instantiations.reset();
+        scans.reset();
+        for (int i = 0; i < hits.length; i++) {
+            hits[i].reset();
+            misses[i].reset();
+        }
+    }
+    
+    private static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+        
+        void record(long nanos) {
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+        }
+        
+        void snapshot(String name, Map<String, Long> snapshot) {
+            snapshot.put(name + ".count", count.sum());
+            snapshot.put(name + ".totalNanos", total.sum());
+            snapshot.put(name + ".maxNanos", max.get());
+        }
+        
+        void reset() {
+            count.reset();
+            total.reset();
+            max.reset();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.metrics;
+
+/**
+ * Receives instrumentation events from the library. Install an implementation with
+ * {@link Metrics#setCollector(IMetricsCollector)}.
+ * <p>
+ * Implementations are called from every thread using the library and must be thread safe. Timed
+ * events are only measured when {@link #isEnabled()} returns <code>true</code>.
+ * 
+ * @author Esko
+ */
+public interface IMetricsCollector {
+    
+    /**
+     * Caches which report hits and misses.
+     */
+    public static enum Cache {
+        /**
+         * Bound properties of a single {@link io.induct.reflection.bpc.BeanPropertyController}.
+         */
+        CONTROLLER,
+        /**
+         * Process wide property descriptors of {@link io.induct.reflection.bpc.extraction.ClassMetadata}.
+         */
+        METADATA
+    }
+    
+    boolean isEnabled();
+    
+    /**
+     * A property was extracted by scanning the methods and fields of given class.
+     */
+    void propertyResolved(Class<?> c, long nanos);
+    
+    void cacheHit(Cache cache);
+    
+    void cacheMiss(Cache cache);
+    
+    /**
+     * A property was accessed through a controller, by name or through a
+     * {@link io.induct.reflection.bpc.PropertyHandle}, including the primitive variants. Bulk
+     * paths which use {@link io.induct.reflection.bpc.PropertyDescriptor}s directly, such as the
+     * codecs, stores and batches, don't report individual properties.
+     */
+    void propertyAccessed(long nanos);
+    
+    /**
+     * A property was mutated through a controller, see {@link #propertyAccessed(long)}.
+     */
+    void propertyMutated(long nanos);
+    
+    void beanInstantiated(Class<?> c, long nanos);
+    
+    /**
+     * All property names of given class were scanned with {@link io.induct.reflection.bpc.BeanPropertyController#getPropertyNames()}.
+     */
+    void propertyNamesScanned(Class<?> c, long nanos);
+}
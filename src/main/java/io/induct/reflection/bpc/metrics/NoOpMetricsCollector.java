@@ -0,0 +1,52 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.metrics;
+
+/**
+ * Default collector which ignores every event. Since it reports itself as disabled nothing is
+ * timed either.
+ * 
+ * @author Esko
+ */
+public enum NoOpMetricsCollector implements IMetricsCollector {
+    INSTANCE;
+
+    public boolean isEnabled() {
+        return false;
+    }
+
+    public void propertyResolved(Class<?> c, long nanos) {}
+
+    public void cacheHit(Cache cache) {}
+
+    public void cacheMiss(Cache cache) {}
+
+    public void propertyAccessed(long nanos) {}
+
+    public void propertyMutated(long nanos) {}
+
+    public void beanInstantiated(Class<?> c, long nanos) {}
+
+    public void propertyNamesScanned(Class<?> c, long nanos) {}
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.store;
+
+/**
+ * Flyweight view of a single row of a {@link BeanStore}, which can be moved from row to row
+ * without creating new objects or beans.
+ * 
+ * @author Esko
+ */
+public class BeanRow {
+    
+    private final BeanStore store;
+    private int row;
+    
+    BeanRow(BeanStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+    
+    /**
+     * @return This view, positioned at given row.
+     */
+    public BeanRow moveTo(int row) {
+        this.row = row;
+        return this;
+    }
+    
+    public int getRow() {
+        return row;
+    }
+    
+    public BeanStore getStore() {
+        return store;
+    }
+    
+    public Object access(String propertyName) {
+        return store.access(row, propertyName);
+    }
+    
+    public BeanRow mutate(String propertyName, Object newValue) {
+        store.mutate(row, propertyName, newValue);
+        return this;
+    }
+    
+    public int accessInt(String propertyName) {
+        return store.accessInt(row, propertyName);
+    }
+    
+    public long accessLong(String propertyName) {
+        return store.accessLong(row, propertyName);
+    }
+    
+    public double accessDouble(String propertyName) {
+        return store.accessDouble(row, propertyName);
+    }
+    
+    public boolean accessBoolean(String propertyName) {
+        return store.accessBoolean(row, propertyName);
+    }
+    
+    public BeanRow mutateInt(String propertyName, int newValue) {
+        store.mutateInt(row, propertyName, newValue);
+        return this;
+    }
+    
+    public BeanRow mutateLong(String propertyName, long newValue) {
+        store.mutateLong(row, propertyName, newValue);
+        return this;
+    }
+    
+    public BeanRow mutateDouble(String propertyName, double newValue) {
+        store.mutateDouble(row, propertyName, newValue);
+        return this;
+    }
+    
+    public BeanRow mutateBoolean(String propertyName, boolean newValue) {
+        store.mutateBoolean(row, propertyName, newValue);
+        return this;
+    }
+    
+    /**
+     * @return New bean with the properties of the current row.
+     */
+    public Object materialize() {
+        return store.materialize(row);
+    }
+    
+    @Override
+    public String toString() {
+        return "BeanRow :: "+store.getLayout().getType().getName()+"#"+row;
+    }
+}
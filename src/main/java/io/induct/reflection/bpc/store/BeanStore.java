@@ -0,0 +1,274 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.store;
+
+import java.nio.ByteBuffer;
+
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.instantiation.ClassInstantiator;
+import io.induct.reflection.bpc.instantiation.ClassInstantiator.InstantiationPolicy;
+
+/**
+ * Rows of bean properties stored in fixed width records of a {@link RecordLayout} outside of
+ * the controlled objects themselves. Subclasses decide where the record segments live.
+ * <p>
+ * Properties of any row can be accessed and mutated directly, either by name or by slot index
+ * of the layout. Beans are only created when a row is {@link #materialize(int) materialized}.
+ * Stores aren't thread safe.
+ * 
+ * @author Esko
+ */
+public abstract class BeanStore {
+    
+    protected final RecordLayout layout;
+    protected final int rowsPerSegment;
+    protected int size;
+    private ClassInstantiator instantiator;
+    
+    protected BeanStore(RecordLayout layout, int rowsPerSegment) {
+        if (rowsPerSegment < 1) {
+            throw new IllegalArgumentException("Rows per segment must be positive, was "+rowsPerSegment);
+        }
+        this.layout = layout;
+        this.rowsPerSegment = rowsPerSegment;
+    }
+    
+    /**
+     * Returns the segment with given index, creating it if it doesn't exist yet. Records of new
+     * segments must be zeroed.
+     */
+    protected abstract ByteBuffer segment(int index);
+    
+    /**
+     * Called whenever rows are added.
+     */
+    protected void sizeChanged() {}
+    
+    /**
+     * Default amount of rows per segment for given layout, about a megabyte worth of records.
+     */
+    protected static int defaultRowsPerSegment(RecordLayout layout) {
+        return Math.max(1, (1 << 20) / layout.getRecordSize());
+    }
+    
+    public RecordLayout getLayout() {
+        return layout;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Adds a zeroed row, its strings and wrappers read as <code>null</code>.
+     * 
+     * @return Index of the new row.
+     */
+    public int addRow() {
+        int row = size;
+        ByteBuffer segment = segment(row / rowsPerSegment);
+        int record = record(row);
+        for (RecordSlot slot : layout.getSlots()) {
+            if (slot.isNullable()) {
+                slot.write(segment, record, null);
+            }
+        }
+        size++;
+        sizeChanged();
+        return row;
+    }
+    
+    /**
+     * Adds a row with the properties of given bean.
+     * 
+     * @return Index of the new row.
+     */
+    public int add(Object bean) {
+        int row = addRow();
+        write(row, bean);
+        return row;
+    }
+    
+    /**
+     * Stores the properties of given bean into an existing row.
+     */
+    public void write(int row, Object bean) {
+        ByteBuffer segment = segmentOf(row);
+        int record = record(row);
+        for (RecordSlot slot : layout.getSlots()) {
+            PropertyDescriptor descriptor = slot.getDescriptor();
+            if (slot.isNullable()) {
+                slot.write(segment, record, descriptor.access(bean));
+                continue;
+            }
+            switch (slot.getKind()) {
+                case INT:
+                case LONG:
+                case SHORT:
+                case BYTE:
+                    slot.writeLong(segment, record, descriptor.accessLong(bean));
+                    break;
+                case DOUBLE:
+                case FLOAT:
+                    slot.writeDouble(segment, record, descriptor.accessDouble(bean));
+                    break;
+                default:
+                    slot.write(segment, record, descriptor.access(bean));
+            }
+        }
+    }
+    
+    /**
+     * Mutates the properties of given bean to the values of a row.
+     */
+    public void read(int row, Object bean) {
+        ByteBuffer segment = segmentOf(row);
+        int record = record(row);
+        for (RecordSlot slot : layout.getSlots()) {
+            PropertyDescriptor descriptor = slot.getDescriptor();
+            Object value = slot.read(segment, record);
+            if (value != null || slot.isNullable()) {
+                descriptor.mutate(bean, value);
+            }
+        }
+    }
+    
+    /**
+     * Creates a new bean with the properties of a row. The bean class must have a no-args constructor.
+     */
+    public Object materialize(int row) {
+        if (instantiator == null) {
+            instantiator = new ClassInstantiator(layout.getType(), InstantiationPolicy.NO_ARGS);
+        }
+        Object bean = instantiator.instantiate();
+        read(row, bean);
+        return bean;
+    }
+    
+    /**
+     * @return Flyweight view positioned at given row.
+     */
+    public BeanRow row(int row) {
+        return new BeanRow(this, row);
+    }
+    
+    public Object access(int row, String propertyName) {
+        return access(row, slot(propertyName));
+    }
+    
+    public Object access(int row, int slot) {
+        return layout.getSlot(slot).read(segmentOf(row), record(row));
+    }
+    
+    public BeanStore mutate(int row, String propertyName, Object newValue) {
+        return mutate(row, slot(propertyName), newValue);
+    }
+    
+    public BeanStore mutate(int row, int slot, Object newValue) {
+        layout.getSlot(slot).write(segmentOf(row), record(row), newValue);
+        return this;
+    }
+    
+    public int accessInt(int row, String propertyName) {
+        return accessInt(row, slot(propertyName));
+    }
+    
+    public int accessInt(int row, int slot) {
+        return (int) layout.getSlot(slot).readLong(segmentOf(row), record(row));
+    }
+    
+    public long accessLong(int row, String propertyName) {
+        return accessLong(row, slot(propertyName));
+    }
+    
+    public long accessLong(int row, int slot) {
+        return layout.getSlot(slot).readLong(segmentOf(row), record(row));
+    }
+    
+    public double accessDouble(int row, String propertyName) {
+        return accessDouble(row, slot(propertyName));
+    }
+    
+    public double accessDouble(int row, int slot) {
+        return layout.getSlot(slot).readDouble(segmentOf(row), record(row));
+    }
+    
+    public boolean accessBoolean(int row, String propertyName) {
+        return accessBoolean(row, slot(propertyName));
+    }
+    
+    public boolean accessBoolean(int row, int slot) {
+        return layout.getSlot(slot).readBoolean(segmentOf(row), record(row));
+    }
+    
+    public BeanStore mutateInt(int row, String propertyName, int newValue) {
+        return mutateLong(row, slot(propertyName), newValue);
+    }
+    
+    public BeanStore mutateLong(int row, String propertyName, long newValue) {
+        return mutateLong(row, slot(propertyName), newValue);
+    }
+    
+    public BeanStore mutateLong(int row, int slot, long newValue) {
+        layout.getSlot(slot).writeLong(segmentOf(row), record(row), newValue);
+        return this;
+    }
+    
+    public BeanStore mutateDouble(int row, String propertyName, double newValue) {
+        return mutateDouble(row, slot(propertyName), newValue);
+    }
+    
+    public BeanStore mutateDouble(int row, int slot, double newValue) {
+        layout.getSlot(slot).writeDouble(segmentOf(row), record(row), newValue);
+        return this;
+    }
+    
+    public BeanStore mutateBoolean(int row, String propertyName, boolean newValue) {
+        return mutateBoolean(row, slot(propertyName), newValue);
+    }
+    
+    public BeanStore mutateBoolean(int row, int slot, boolean newValue) {
+        layout.getSlot(slot).writeBoolean(segmentOf(row), record(row), newValue);
+        return this;
+    }
+    
+    private int slot(String propertyName) {
+        int slot = layout.indexOf(propertyName);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Property '"+propertyName+"' isn't stored in records of "+layout.getType().getName());
+        }
+        return slot;
+    }
+    
+    private ByteBuffer segmentOf(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row "+row+" of store with "+size+" rows");
+        }
+        return segment(row / rowsPerSegment);
+    }
+    
+    private int record(int row) {
+        return (row % rowsPerSegment) * layout.getRecordSize();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bean store which keeps its records in a memory mapped file so that they survive restarts.
+ * <p>
+ * The file starts with a header holding the layout fingerprint, record size, segment size and
+ * row count, followed by the record segments. Opening an existing file only maps it, so pages
+ * are read by the operating system as rows are touched. A file can only be opened with a layout
+ * equal to the one it was written with.
+ * 
+ * @author Esko
+ */
+public class MappedBeanStore extends BeanStore implements Closeable {
+    
+    private static final int MAGIC = 0x42504353; // "BPCS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    
+    private static final int FINGERPRINT_AT = 8;
+    private static final int RECORD_SIZE_AT = 16;
+    private static final int ROWS_PER_SEGMENT_AT = 20;
+    private static final int SIZE_AT = 24;
+    
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+    
+    private MappedBeanStore(Path path, FileChannel channel, MappedByteBuffer header, 
+                            RecordLayout layout, int rowsPerSegment, int size) {
+        super(layout, rowsPerSegment);
+        this.path = path;
+        this.channel = channel;
+        this.header = header;
+        this.size = size;
+    }
+    
+    /**
+     * Opens the store in given file, creating it if it doesn't exist.
+     */
+    public static MappedBeanStore open(Path path, RecordLayout layout) throws IOException {
+        return open(path, layout, defaultRowsPerSegment(layout));
+    }
+    
+    /**
+     * Opens the store in given file, creating it if it doesn't exist. Segment size of an existing
+     * file overrides <code>rowsPerSegment</code>.
+     */
+    public static MappedBeanStore open(Path path, RecordLayout layout, int rowsPerSegment) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+                                                     StandardOpenOption.READ, 
+                                                     StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            MappedByteBuffer header = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            int size = 0;
+            if (created) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(FINGERPRINT_AT, layout.getFingerprint());
+                header.putInt(RECORD_SIZE_AT, layout.getRecordSize());
+                header.putInt(ROWS_PER_SEGMENT_AT, rowsPerSegment);
+                header.putInt(SIZE_AT, 0);
+            } else {
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException(path+" isn't a bean store file");
+                }
+                if (header.getLong(FINGERPRINT_AT) != layout.getFingerprint() 
+                        || header.getInt(RECORD_SIZE_AT) != layout.getRecordSize()) {
+                    throw new IOException(path+" wasn't written with the layout of "+layout.getType().getName());
+                }
+                rowsPerSegment = header.getInt(ROWS_PER_SEGMENT_AT);
+                size = header.getInt(SIZE_AT);
+            }
+            return new MappedBeanStore(path, channel, header, layout, rowsPerSegment, size);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    @Override
+    protected ByteBuffer segment(int index) {
+        while (segments.size() <= index) {
+            long segmentSize = (long) rowsPerSegment * layout.getRecordSize();
+            try {
+                MappedByteBuffer segment = channel.map(MapMode.READ_WRITE, 
+                                                       HEADER_SIZE + segments.size() * segmentSize, 
+                                                       segmentSize);
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                segments.add(segment);
+            } catch (IOException e) {
+                throw new IllegalStateException("Couldn't map segment "+segments.size()+" of "+path, e);
+            }
+        }
+        return segments.get(index);
+    }
+    
+    @Override
+    protected void sizeChanged() {
+        header.putInt(SIZE_AT, size);
+    }
+    
+    /**
+     * Writes all changes to the underlying file.
+     */
+    public void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        header.force();
+    }
+    
+    /**
+     * Flushes and closes the file. The store mustn't be used after closing.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            flush();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bean store which keeps its records in direct byte buffers outside of the Java heap. The store
+ * grows one segment at a time, so existing rows are never copied.
+ * 
+ * @author Esko
+ */
+public class OffHeapBeanStore extends BeanStore {
+    
+    private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+    
+    public OffHeapBeanStore(RecordLayout layout) {
+        this(layout, defaultRowsPerSegment(layout));
+    }
+    
+    public OffHeapBeanStore(RecordLayout layout, int rowsPerSegment) {
+        super(layout, rowsPerSegment);
+    }
+    
+    public static OffHeapBeanStore of(Class<?> c) {
+        return new OffHeapBeanStore(RecordLayout.of(c));
+    }
+    
+    @Override
+    protected ByteBuffer segment(int index) {
+        while (segments.size() <= index) {
+            ByteBuffer segment = ByteBuffer.allocateDirect(rowsPerSegment * layout.getRecordSize());
+            segments.add(segment.order(ByteOrder.nativeOrder()));
+        }
+        return segments.get(index);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.induct.reflection.bpc.PropertyDescriptor;
+import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+import io.induct.reflection.bpc.store.RecordSlot.Kind;
+
+/**
+ * Fixed width binary record layout of a bean class, derived from its indexed properties.
+ * <p>
+ * Every writable property of a primitive, wrapper or String type gets a slot, other properties
+ * aren't stored. Slots are ordered by width (widest first) and name so that the layout is the
+ * same on every JVM, which {@link #getFingerprint()} can be used to verify. Layouts are cached per
+ * class, extraction depth and string capacity.
+ * 
+ * @author Esko
+ */
+public class RecordLayout {
+    
+    /**
+     * Default capacity of string slots in UTF-8 bytes.
+     */
+    public static final int DEFAULT_STRING_CAPACITY = 32;
+    
+    private static final ClassValue<ConcurrentMap<Long, RecordLayout>> REGISTRY = 
+            new ClassValue<ConcurrentMap<Long, RecordLayout>>() {
+        @Override
+        protected ConcurrentMap<Long, RecordLayout> computeValue(Class<?> c) {
+            return new ConcurrentHashMap<Long, RecordLayout>();
+        }
+    };
+    
+    private static final Comparator<RecordSlot> WIDEST_FIRST = new Comparator<RecordSlot>() {
+        public int compare(RecordSlot left, RecordSlot right) {
+            int byWidth = right.getWidth() - left.getWidth();
+            return (byWidth != 0) ? byWidth : left.getPropertyName().compareTo(right.getPropertyName());
+        }
+    };
+    
+    private final Class<?> c;
+    private final ExtractionDepth extractionDepth;
+    private final int stringCapacity;
+    private final RecordSlot[] slots;
+    private final List<RecordSlot> slotList;
+    private final Map<String, Integer> slotIndex;
+    private final int recordSize;
+    private final long fingerprint;
+    
+    private RecordLayout(Class<?> c, ExtractionDepth extractionDepth, int stringCapacity) {
+        this.c = c;
+        this.extractionDepth = extractionDepth;
+        this.stringCapacity = stringCapacity;
+        
+        List<RecordSlot> found = new ArrayList<RecordSlot>();
+        for (PropertyDescriptor descriptor : ClassMetadata.of(c, extractionDepth).getDescriptors()) {
+            Kind kind = RecordSlot.kindOf(descriptor.getType());
+            if (kind == null || descriptor.isReadOnly()) {
+                continue;
+            }
+            boolean nullable = !descriptor.getType().isPrimitive();
+            int width = (kind == Kind.STRING) ? 2 + stringCapacity 
+                                              : kind.getWidth() + (nullable ? 1 : 0);
+            found.add(new RecordSlot(descriptor, kind, nullable, 0, width));
+        }
+        Collections.sort(found, WIDEST_FIRST);
+        
+        this.slots = new RecordSlot[found.size()];
+        this.slotIndex = new HashMap<String, Integer>();
+        int offset = 0;
+        long hash = fnv(0xcbf29ce484222325L, c.getName());
+        for (int i = 0; i < slots.length; i++) {
+            RecordSlot slot = found.get(i);
+            slots[i] = new RecordSlot(slot.getDescriptor(), slot.getKind(), slot.isNullable(), offset, slot.getWidth());
+            slotIndex.put(slot.getPropertyName().toLowerCase(Locale.ENGLISH), i);
+            offset += slot.getWidth();
+            hash = fnv(hash, slot.getPropertyName() + ":" + slot.getKind() + ":" + slot.isNullable() + ":" + slot.getWidth());
+        }
+        this.slotList = Collections.unmodifiableList(Arrays.asList(slots));
+        this.recordSize = Math.max(offset, 1);
+        this.fingerprint = hash;
+    }
+    
+    public static RecordLayout of(Class<?> c) {
+        return of(c, ExtractionDepth.METHODS, DEFAULT_STRING_CAPACITY);
+    }
+    
+    public static RecordLayout of(Class<?> c, ExtractionDepth extractionDepth, int stringCapacity) {
+        if (stringCapacity < 0 || stringCapacity > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String capacity must be between 0 and "+Short.MAX_VALUE+", was "+stringCapacity);
+        }
+        ConcurrentMap<Long, RecordLayout> layouts = REGISTRY.get(c);
+        Long key = Long.valueOf(((long) stringCapacity << 8) | extractionDepth.ordinal());
+        RecordLayout layout = layouts.get(key);
+        if (layout == null) {
+            layout = new RecordLayout(c, extractionDepth, stringCapacity);
+            RecordLayout existing = layouts.putIfAbsent(key, layout);
+            if (existing != null) {
+                layout = existing;
+            }
+        }
+        return layout;
+    }
+    
+    private static long fnv(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+    
+    /**
+     * @return Index of the named slot or -1 if the property isn't stored.
+     */
+    public int indexOf(String propertyName) {
+        Integer i = slotIndex.get(propertyName);
+        if (i == null) {
+            i = slotIndex.get(propertyName.toLowerCase(Locale.ENGLISH));
+        }
+        return (i != null) ? i : -1;
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the property isn't stored.
+     */
+    public RecordSlot getSlot(String propertyName) {
+        int i = indexOf(propertyName);
+        if (i < 0) {
+            throw new IllegalArgumentException("Property '"+propertyName+"' isn't stored in records of "+c.getName());
+        }
+        return slots[i];
+    }
+    
+    public RecordSlot getSlot(int slot) {
+        return slots[slot];
+    }
+    
+    public List<RecordSlot> getSlots() {
+        return slotList;
+    }
+    
+    public int getRecordSize() {
+        return recordSize;
+    }
+    
+    /**
+     * @return Hash of the class name and slots, equal for equal layouts.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+    
+    public Class<?> getType() {
+        return c;
+    }
+    
+    public ExtractionDepth getExtractionDepth() {
+        return extractionDepth;
+    }
+    
+    public int getStringCapacity() {
+        return stringCapacity;
+    }
+    
+    @Override
+    public String toString() {
+        return "RecordLayout :: "+c.getName()+" "+slotList+" ("+recordSize+" bytes)";
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2014 Esko Suomi
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.induct.reflection.bpc.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import io.induct.reflection.bpc.PrimitiveSupport;
+import io.induct.reflection.bpc.PropertyDescriptor;
+
+/**
+ * Fixed width position of a single property within the records of a {@link RecordLayout}.
+ * <p>
+ * Primitives are stored as is. Wrapper types are preceded by a presence byte so that they can
+ * hold <code>null</code>. Strings are stored as UTF-8 in a fixed capacity, preceded by their
+ * encoded length, or -1 for <code>null</code>.
+ * 
+ * @author Esko
+ */
+public class RecordSlot {
+    
+    /**
+     * Storage format of a slot.
+     */
+    public static enum Kind {
+        BOOLEAN(1), BYTE(1), SHORT(2), CHAR(2), INT(4), FLOAT(4), LONG(8), DOUBLE(8), STRING(2);
+        
+        private final int width;
+        
+        private Kind(int width) {
+            this.width = width;
+        }
+        
+        public int getWidth() {
+            return width;
+        }
+    }
+    
+    private final PropertyDescriptor descriptor;
+    private final Kind kind;
+    private final boolean nullable;
+    private final int offset;
+    private final int width;
+    
+    RecordSlot(PropertyDescriptor descriptor, Kind kind, boolean nullable, int offset, int width) {
+        this.descriptor = descriptor;
+        this.kind = kind;
+        this.nullable = nullable;
+        this.offset = offset;
+        this.width = width;
+    }
+    
+    /**
+     * @return Storage kind of given property type or <code>null</code> if it can't be stored.
+     */
+    static Kind kindOf(Class<?> type) {
+        Class<?> primitive = PrimitiveSupport.unwrap(type);
+        if (primitive == int.class) {
+            return Kind.INT;
+        } else if (primitive == long.class) {
+            return Kind.LONG;
+        } else if (primitive == double.class) {
+            return Kind.DOUBLE;
+        } else if (primitive == float.class) {
+            return Kind.FLOAT;
+        } else if (primitive == boolean.class) {
+            return Kind.BOOLEAN;
+        } else if (primitive == short.class) {
+            return Kind.SHORT;
+        } else if (primitive == byte.class) {
+            return Kind.BYTE;
+        } else if (primitive == char.class) {
+            return Kind.CHAR;
+        } else if (type == String.class) {
+            return Kind.STRING;
+        }
+        return null;
+    }
+    
+    public String getPropertyName() {
+        return descriptor.getPropertyName();
+    }
+    
+    public PropertyDescriptor getDescriptor() {
+        return descriptor;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    /**
+     * @return <code>true</code> if the slot has a presence byte or is a string.
+     */
+    public boolean isNullable() {
+        return nullable;
+    }
+    
+    public int getOffset() {
+        return offset;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    Object read(ByteBuffer buffer, int record) {
+        int at = record + offset;
+        if (kind == Kind.STRING) {
+            short length = buffer.getShort(at);
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(at + 2 + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (nullable) {
+            if (buffer.get(at) == 0) {
+                return null;
+            }
+            at++;
+        }
+        switch (kind) {
+            case BOOLEAN: return buffer.get(at) != 0;
+            case BYTE: return buffer.get(at);
+            case SHORT: return buffer.getShort(at);
+            case CHAR: return buffer.getChar(at);
+            case INT: return buffer.getInt(at);
+            case FLOAT: return buffer.getFloat(at);
+            case LONG: return buffer.getLong(at);
+            default: return buffer.getDouble(at);
+        }
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the value's type or magnitude doesn't fit the slot.
+     */
+    void write(ByteBuffer buffer, int record, Object value) {
+        int at = record + offset;
+        if (kind == Kind.STRING) {
+            if (value != null && !(value instanceof String)) {
+                throw mismatch(value);
+            }
+            writeString(buffer, at, (String) value);
+            return;
+        }
+        if (value == null) {
+            if (!nullable) {
+                throw new IllegalArgumentException("Can't store null into primitive property '"+getPropertyName()+"'");
+            }
+            buffer.put(at, (byte) 0);
+            return;
+        }
+        switch (kind) {
+            case BOOLEAN:
+                if (!(value instanceof Boolean)) {
+                    throw mismatch(value);
+                }
+                writeBoolean(buffer, record, (Boolean) value);
+                break;
+            case CHAR:
+                if (!(value instanceof Character)) {
+                    throw mismatch(value);
+                }
+                writeLong(buffer, record, (Character) value);
+                break;
+            default:
+                if (value instanceof Double || value instanceof Float) {
+                    writeDouble(buffer, record, ((Number) value).doubleValue());
+                } else if (value instanceof Long || value instanceof Integer 
+                        || value instanceof Short || value instanceof Byte) {
+                    writeLong(buffer, record, ((Number) value).longValue());
+                } else if (value instanceof Character) {
+                    writeLong(buffer, record, (Character) value);
+                } else {
+                    throw mismatch(value);
+                }
+        }
+    }
+    
+    private void writeString(ByteBuffer buffer, int at, String value) {
+        if (value == null) {
+            buffer.putShort(at, (short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > width - 2) {
+            throw new IllegalArgumentException("Value of property '"+getPropertyName()+"' is "+bytes.length
+                                              +" bytes long, capacity is "+(width - 2));
+        }
+        buffer.putShort(at, (short) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(at + 2 + i, bytes[i]);
+        }
+    }
+    
+    /*
+     * Primitive variants, null wrappers read as zero/false.
+     */
+    
+    long readLong(ByteBuffer buffer, int record) {
+        checkNumeric();
+        int at = record + offset;
+        if (nullable) {
+            if (buffer.get(at) == 0) {
+                return 0L;
+            }
+            at++;
+        }
+        switch (kind) {
+            case BYTE: return buffer.get(at);
+            case SHORT: return buffer.getShort(at);
+            case CHAR: return buffer.getChar(at);
+            case INT: return buffer.getInt(at);
+            case LONG: return buffer.getLong(at);
+            case FLOAT: return (long) buffer.getFloat(at);
+            default: return (long) buffer.getDouble(at);
+        }
+    }
+    
+    double readDouble(ByteBuffer buffer, int record) {
+        int at = record + offset;
+        switch (kind) {
+            case FLOAT:
+            case DOUBLE:
+                if (nullable) {
+                    if (buffer.get(at) == 0) {
+                        return 0d;
+                    }
+                    at++;
+                }
+                return (kind == Kind.FLOAT) ? buffer.getFloat(at) : buffer.getDouble(at);
+            default:
+                return readLong(buffer, record);
+        }
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the value doesn't fit an integral slot.
+     */
+    void writeLong(ByteBuffer buffer, int record, long value) {
+        checkNumeric();
+        boolean fits;
+        switch (kind) {
+            case BYTE: fits = value == (byte) value; break;
+            case SHORT: fits = value == (short) value; break;
+            case CHAR: fits = value == (char) value; break;
+            case INT: fits = value == (int) value; break;
+            default: fits = true;
+        }
+        if (!fits) {
+            throw doesNotFit(value);
+        }
+        int at = record + offset;
+        if (nullable) {
+            buffer.put(at++, (byte) 1);
+        }
+        switch (kind) {
+            case BYTE: buffer.put(at, (byte) value); break;
+            case SHORT: buffer.putShort(at, (short) value); break;
+            case CHAR: buffer.putChar(at, (char) value); break;
+            case INT: buffer.putInt(at, (int) value); break;
+            case LONG: buffer.putLong(at, value); break;
+            case FLOAT: buffer.putFloat(at, value); break;
+            default: buffer.putDouble(at, value);
+        }
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the value overflows a float slot or isn't a whole number
+     *             fitting an integral slot.
+     */
+    void writeDouble(ByteBuffer buffer, int record, double value) {
+        int at = record + offset;
+        switch (kind) {
+            case FLOAT:
+            case DOUBLE:
+                if (kind == Kind.FLOAT && Float.isInfinite((float) value) && !Double.isInfinite(value)) {
+                    throw doesNotFit(value);
+                }
+                if (nullable) {
+                    buffer.put(at++, (byte) 1);
+                }
+                if (kind == Kind.FLOAT) {
+                    buffer.putFloat(at, (float) value);
+                } else {
+                    buffer.putDouble(at, value);
+                }
+                break;
+            default:
+                checkNumeric();
+                long integral = (long) value;
+                if (integral != value || value >= 0x1p63) {
+                    throw doesNotFit(value);
+                }
+                writeLong(buffer, record, integral);
+        }
+    }
+    
+    boolean readBoolean(ByteBuffer buffer, int record) {
+        if (kind != Kind.BOOLEAN) {
+            throw new IllegalArgumentException("Property '"+getPropertyName()+"' isn't boolean");
+        }
+        int at = record + offset;
+        if (nullable) {
+            if (buffer.get(at) == 0) {
+                return false;
+            }
+            at++;
+        }
+        return buffer.get(at) != 0;
+    }
+    
+    void writeBoolean(ByteBuffer buffer, int record, boolean value) {
+        if (kind != Kind.BOOLEAN) {
+            throw new IllegalArgumentException("Property '"+getPropertyName()+"' isn't boolean");
+        }
+        int at = record + offset;
+        if (nullable) {
+            buffer.put(at++, (byte) 1);
+        }
+        buffer.put(at, (byte) (value ? 1 : 0));
+    }
+    
+    private void checkNumeric() {
+        if (kind == Kind.STRING || kind == Kind.BOOLEAN) {
+            throw new IllegalArgumentException("Property '"+getPropertyName()+"' isn't numeric");
+        }
+    }
+    
+    private IllegalArgumentException mismatch(Object value) {
+        return new IllegalArgumentException("Can't store "+value.getClass().getName()+" into "+kind
+                                           +" property '"+getPropertyName()+"'");
+    }
+    
+    private IllegalArgumentException doesNotFit(Object value) {
+        return new IllegalArgumentException("Value "+value+" doesn't fit "+kind+" property '"+getPropertyName()+"'");
+    }
+    
+    @Override
+    public String toString() {
+        return "RecordSlot :: "+getPropertyName()+" "+kind+(nullable ? "?" : "")+" @"+offset+"+"+width;
+    }
+}
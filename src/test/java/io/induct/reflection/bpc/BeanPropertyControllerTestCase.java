@@ -25,29 +25,72 @@ package io.induct.reflection.bpc;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import junit.framework.TestCase;
+import io.induct.reflection.bpc.BeanPropertyController.AccessorEngine;
 import io.induct.reflection.bpc.BeanPropertyController.ExtractionDepth;
+import io.induct.reflection.bpc.codec.BeanCodec;
+import io.induct.reflection.bpc.codec.CodecException;
+import io.induct.reflection.bpc.codec.DelimitedReader;
+import io.induct.reflection.bpc.codec.DelimitedWriter;
+import io.induct.reflection.bpc.codec.JsonCodec;
+import io.induct.reflection.bpc.columnar.ColumnProjection;
+import io.induct.reflection.bpc.columnar.ColumnSet;
+import io.induct.reflection.bpc.extraction.ClassMetadata;
+import io.induct.reflection.bpc.extraction.MetadataSnapshot;
+import io.induct.reflection.bpc.extraction.NameIndex;
+import io.induct.reflection.bpc.instantiation.PooledInstantiator;
 import io.induct.reflection.bpc.instantiation.ClassInstantiator.InstantiationPolicy;
+import io.induct.reflection.bpc.metrics.AggregatingMetricsCollector;
+import io.induct.reflection.bpc.metrics.Metrics;
+import io.induct.reflection.bpc.metrics.NoOpMetricsCollector;
+import io.induct.reflection.bpc.metrics.IMetricsCollector.Cache;
+import io.induct.reflection.bpc.store.BeanRow;
+import io.induct.reflection.bpc.store.MappedBeanStore;
+import io.induct.reflection.bpc.store.OffHeapBeanStore;
+import io.induct.reflection.bpc.store.RecordLayout;
+import io.induct.reflection.bpc.testbeans.AnnotatedBean;
 import io.induct.reflection.bpc.testbeans.ArrayBean;
+import io.induct.reflection.bpc.testbeans.BlockingBean;
 import io.induct.reflection.bpc.testbeans.BooleanClass;
 import io.induct.reflection.bpc.testbeans.BrokenBean;
+import io.induct.reflection.bpc.testbeans.CycleBean;
+import io.induct.reflection.bpc.testbeans.EnumBean;
+import io.induct.reflection.bpc.testbeans.FailingBean;
 import io.induct.reflection.bpc.testbeans.HiddenBean;
 import io.induct.reflection.bpc.testbeans.IntegerBean;
+import io.induct.reflection.bpc.testbeans.LedgerBean;
 import io.induct.reflection.bpc.testbeans.MultipleConstructorsBean;
+import io.induct.reflection.bpc.testbeans.NodeBean;
+import io.induct.reflection.bpc.testbeans.NumericBean;
+import io.induct.reflection.bpc.testbeans.PersonBean;
 import io.induct.reflection.bpc.testbeans.QuestimationBean;
 import io.induct.reflection.bpc.testbeans.RecursionBean;
 import io.induct.reflection.bpc.testbeans.SerializableBean;
 import io.induct.reflection.bpc.testbeans.SingleValueBean;
+import io.induct.reflection.bpc.testbeans.SnapshotBean;
 import io.induct.reflection.bpc.testbeans.SomeClass;
+import io.induct.reflection.bpc.testbeans.StaticFieldBean;
 import io.induct.reflection.bpc.testbeans.TraditionalBean;
 import io.induct.reflection.bpc.testbeans.VaryingParametersBean;
 
@@ -191,6 +234,35 @@ public class BeanPropertyControllerTestCase extends TestCase {
         assertEquals("generic hello", bpc.access("bean.value"));
     }
 
+    public void testListsPropertyNamesOfEachStepIndependently() throws Exception {
+        bpc = BeanPropertyController.of(recursionBean);
+        
+        List<String> propertyNames = Arrays.asList(bpc.getPropertyNames(1));
+        assertEquals(2, propertyNames.size());
+        assertTrue(propertyNames.containsAll(Arrays.asList("bean", "bean.value")));
+        
+        assertEquals(Arrays.asList("bean"), bpc.getPropertyNameList());
+        assertSame(bpc.getPropertyNameList(), BeanPropertyController.of(new RecursionBean(null)).getPropertyNameList());
+    }
+
+    public void testEnumeratesPropertyPathsFromDeclaredTypes() throws Exception {
+        bpc = BeanPropertyController.of(new RecursionBean(null));
+        assertEquals(Arrays.asList("bean", "bean.value"), bpc.getPropertyPaths());
+        assertEquals(Arrays.asList("bean"), bpc.getPropertyPaths(0));
+        
+        bpc = BeanPropertyController.of(new NodeBean());
+        assertEquals(Arrays.asList("name", "next", "recursion", "recursion.bean", "recursion.bean.value"), 
+                     bpc.getPropertyPaths());
+        assertSame(bpc.getPropertyPaths(), BeanPropertyController.of(new NodeBean()).getPropertyPaths());
+    }
+
+    public void testPropertyPathsDoNotReenterTypesOnTheirPath() throws Exception {
+        bpc = BeanPropertyController.of(new CycleBean());
+        assertEquals(Arrays.asList("left", "left.right", "left.right.left", 
+                                   "right", "right.left", "right.left.right"), 
+                     bpc.getPropertyPaths());
+    }
+
     private String[] removeUnitTestingLibraryProxyProperties(String[] propertyNames) {
         List<String> actualProperties = new ArrayList<String>();
         for (String property : propertyNames) {
@@ -226,6 +298,30 @@ public class BeanPropertyControllerTestCase extends TestCase {
         }
     }
     
+    public void testFollowsReplacedBeansWhenAccessingPropertiesWithinProperties() throws Exception {
+        bpc = BeanPropertyController.of(recursionBean);
+        assertEquals("testingValue", bpc.access("bean.value"));
+        
+        bpc.mutate("bean", new SingleValueBean<String>("replaced"));
+        assertEquals("replaced", bpc.access("bean.value"));
+        bpc.mutate("bean.value", "mutated");
+        assertEquals("mutated", recursionBean.getBean().getValue());
+    }
+    
+    public void testCompiledPropertyPathsCanBeNullSafe() throws Exception {
+        PropertyPath path = PropertyPath.compile("bean.value");
+        assertEquals("testingValue", path.access(recursionBean));
+        
+        recursionBean.setBean(null);
+        try {
+            path.access(recursionBean);
+            fail("Should've thrown NullPointerException");
+        } catch (NullPointerException e) {
+            assertEquals("Can't follow property path 'bean.value' through a null bean", e.getMessage());
+        }
+        assertNull(path.nullSafe().access(recursionBean));
+    }
+    
     public void testCanDeterminePropertyTypeForSaferManipulation() throws Exception {
         bpc = BeanPropertyController.of(questimationBean, ExtractionDepth.QUESTIMATE);
         assertEquals(String.class, bpc.typeOf("onlySetter"));
@@ -279,6 +375,24 @@ public class BeanPropertyControllerTestCase extends TestCase {
         assertEquals(32301295d, traditionalBean.getAccountBalance());
     }
     
+    public void testProvidesLiveMapViewOverControlledObject() throws Exception {
+        traditionalBean.setName("Mapped");
+        BeanPropertyController c = BeanPropertyController.of(TraditionalBean.class);
+        c.populate(BeanPropertyController.of(traditionalBean).asMap());
+        
+        Map<String, Object> map = c.asMap();
+        assertEquals(3, map.size());
+        assertEquals("Mapped", map.get("name"));
+        assertEquals("Mapped", map.get("NAME"));
+        
+        map.put("age", 12);
+        assertEquals(12, c.access("age"));
+        
+        c.recycle();
+        assertNull(map.get("name"));
+        assertEquals(new HashMap<String, Object>(map), BeanPropertyController.of(new TraditionalBean()).asMap());
+    }
+    
     public void testAccessesOnlyPublicMethods() throws Exception {
         bpc = BeanPropertyController.of(HiddenBean.class);
         String[] properties = bpc.getPropertyNames();
@@ -303,6 +417,11 @@ public class BeanPropertyControllerTestCase extends TestCase {
         
         bpc = BeanPropertyController.of(IntegerBean.class, InstantiationPolicy.NICE);
         assertEquals(0, bpc.access("integer"));
+        
+        bpc = BeanPropertyController.of(ArrayBean.class, InstantiationPolicy.NICE);
+        assertEquals(0, ((double[]) bpc.access("values")).length);
+        bpc.recycle();
+        assertEquals(0, ((double[]) bpc.access("values")).length);
     }
     
     public void testUsesTheConstructorWithLeastAmountOfParametersWhenInstantiating() throws Exception {
@@ -320,6 +439,142 @@ public class BeanPropertyControllerTestCase extends TestCase {
         }
     }
     
+    public void testSharesExtractedPropertiesBetweenControllersOfSameClass() throws Exception {
+        TraditionalBean other = new TraditionalBean();
+        BeanPropertyController.of(traditionalBean).mutate("name", "first");
+        BeanPropertyController.of(other).mutate("name", "second");
+        
+        assertEquals("first", traditionalBean.getName());
+        assertEquals("second", other.getName());
+        assertSame(ClassMetadata.of(TraditionalBean.class, ExtractionDepth.METHODS).getDescriptor("name"),
+                   ClassMetadata.of(TraditionalBean.class, ExtractionDepth.METHODS).getDescriptor("name"));
+    }
+    
+    public void testCanUseMethodHandlesInsteadOfReflection() throws Exception {
+        bpc = BeanPropertyController.of(traditionalBean, AccessorEngine.METHOD_HANDLES);
+        bpc.mutate("name", "Handle").mutate("age", 42).mutate("accountBalance", 3050);
+        assertEquals("Handle", bpc.access("name"));
+        assertEquals(42, bpc.access("age"));
+        assertEquals(3050d, bpc.access("accountBalance"));
+        
+        bpc = BeanPropertyController.of(questimationBean, ExtractionDepth.QUESTIMATE, BeanPropertyController.DEFAULT_STEPS, AccessorEngine.METHOD_HANDLES);
+        bpc.mutate("onlyGetter", "through a private field");
+        assertEquals("through a private field", questimationBean.getOnlyGetter());
+        
+        bpc = BeanPropertyController.of(BooleanClass.class, ExtractionDepth.METHODS, BeanPropertyController.DEFAULT_STEPS, InstantiationPolicy.NICE, AccessorEngine.METHOD_HANDLES);
+        assertEquals(false, bpc.access("boo"));
+    }
+    
+    public void testCanUseGeneratedDispatcherForAccessingProperties() throws Exception {
+        bpc = BeanPropertyController.of(traditionalBean, AccessorEngine.GENERATED);
+        bpc.mutate("name", "Generated").mutate("age", 7).mutate("accountBalance", 3050);
+        assertEquals("Generated", bpc.access("name"));
+        assertEquals(7, bpc.access("age"));
+        assertEquals(3050d, bpc.access("accountBalance"));
+        
+        ClassMetadata metadata = ClassMetadata.of(TraditionalBean.class, ExtractionDepth.METHODS, AccessorEngine.GENERATED);
+        assertNotNull(metadata.getDispatcher());
+        assertEquals(3, metadata.getPropertyCount());
+        assertEquals(traditionalBean.getAge(), metadata.getDispatcher().get(traditionalBean, metadata.indexOf("age")));
+        
+        bpc = BeanPropertyController.of(booleanClass, AccessorEngine.GENERATED);
+        bpc.mutate("boo", false);
+        assertEquals(Boolean.FALSE, bpc.access("boo"));
+        
+        bpc = BeanPropertyController.of(questimationBean, ExtractionDepth.QUESTIMATE, BeanPropertyController.DEFAULT_STEPS, AccessorEngine.GENERATED);
+        bpc.mutate("onlyGetter", "private fields aren't generated");
+        assertEquals("private fields aren't generated", bpc.access("onlyGetter"));
+    }
+    
+    public void testCanAccessAndMutatePrimitivePropertiesWithoutBoxing() throws Exception {
+        for (AccessorEngine engine : AccessorEngine.values()) {
+            bpc = BeanPropertyController.of(traditionalBean, engine);
+            bpc.mutateInt("age", 31).mutateDouble("accountBalance", 12.5);
+            assertEquals(31, bpc.accessInt("age"));
+            assertEquals(31L, bpc.accessLong("age"));
+            assertEquals(31d, bpc.accessDouble("age"), 0d);
+            assertEquals(12.5d, bpc.accessDouble("accountBalance"), 0d);
+            try {
+                bpc.accessInt("accountBalance");
+                fail(engine+" narrowed double to int");
+            } catch (PropertyAccessException e) {}
+            bpc.mutateInt("accountBalance", 3);
+            assertEquals(3d, traditionalBean.getAccountBalance(), 0d);
+            
+            bpc = BeanPropertyController.of(booleanClass, engine);
+            bpc.mutateBoolean("boo", false);
+            assertFalse(bpc.accessBoolean("boo"));
+            
+            bpc = BeanPropertyController.of(intBean, ExtractionDepth.QUESTIMATE, BeanPropertyController.DEFAULT_STEPS, engine);
+            bpc.mutateInt("integer", 40);
+            assertEquals(40L, bpc.accessLong("integer"));
+        }
+    }
+    
+    public void testCanResolvePropertyHandlesForRepeatedUse() throws Exception {
+        bpc = BeanPropertyController.of(traditionalBean);
+        PropertyHandle age = bpc.handle("age");
+        PropertyHandle name = bpc.handle("name");
+        bpc.setInt(age, 42).set(name, "Handled");
+        assertEquals(42, traditionalBean.getAge());
+        assertEquals("Handled", bpc.get(name));
+        
+        TraditionalBean other = new TraditionalBean();
+        other.setAge(7);
+        assertEquals(7, BeanPropertyController.of(other).getInt(age));
+        
+        try {
+            BeanPropertyController.of(booleanClass).get(age);
+            fail("Should've thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        
+        bpc = BeanPropertyController.of(recursionBean);
+        assertEquals("testingValue", bpc.get(bpc.handle("bean.value")));
+    }
+    
+    public void testCanCopyPropertiesBetweenBeansOfDifferentClasses() throws Exception {
+        traditionalBean.setName("Copied");
+        traditionalBean.setAge(33);
+        BeanCopier<TraditionalBean, PersonBean> copier = BeanCopier.between(TraditionalBean.class, PersonBean.class);
+        assertSame(copier, BeanCopier.between(TraditionalBean.class, PersonBean.class));
+        assertEquals(2, copier.getPropertyNames().size());
+        
+        PersonBean person = copier.copy(traditionalBean, new PersonBean());
+        assertEquals("Copied", person.getName());
+        assertEquals(33L, person.getAge());
+        assertNull(person.getNickname());
+        
+        // long can't be narrowed back into int, only name is copied
+        BeanCopier<PersonBean, TraditionalBean> reverse = BeanCopier.between(PersonBean.class, TraditionalBean.class);
+        assertEquals(Arrays.asList("name"), reverse.getPropertyNames());
+        
+        List<PersonBean> people = Arrays.asList(new PersonBean(), new PersonBean());
+        copier.copy(Arrays.asList(traditionalBean, traditionalBean), people);
+        assertEquals(33L, people.get(1).getAge());
+    }
+    
+    public void testReportsMetricsToInstalledCollector() throws Exception {
+        AggregatingMetricsCollector metrics = new AggregatingMetricsCollector();
+        Metrics.setCollector(metrics);
+        try {
+            bpc = BeanPropertyController.of(TraditionalBean.class);
+            bpc.mutate("age", 5).access("age");
+            bpc.getPropertyNames();
+            
+            assertEquals(1, metrics.getInstantiationCount());
+            assertEquals(1, metrics.getMutationCount());
+            assertEquals(1, metrics.getCacheMisses(Cache.CONTROLLER));
+            assertEquals(1, metrics.getCacheHits(Cache.CONTROLLER));
+            assertEquals(1, metrics.getPropertyNameScanCount());
+            assertEquals(Long.valueOf(1), metrics.snapshot().get("bpc.instantiation.count"));
+        } finally {
+            Metrics.setCollector(null);
+        }
+        assertSame(NoOpMetricsCollector.INSTANCE, Metrics.getCollector());
+    }
+    
     public void testChangesActiveBeansProperties() throws Exception {
         assertEquals(null, traditionalBean.getName());
         bpc = BeanPropertyController.of(traditionalBean);
@@ -402,4 +657,664 @@ public class BeanPropertyControllerTestCase extends TestCase {
             checked.add(bean);
         }
     }
+    
+    public void testCanProduceBeansFromPreInstantiatedPool() throws Exception {
+        for (boolean background : new boolean[] {false, true}) {
+            PooledInstantiator pool = new PooledInstantiator(TraditionalBean.class, InstantiationPolicy.NO_ARGS, 4, background);
+            try {
+                final List<TraditionalBean> listOfBeans = new ArrayList<TraditionalBean>();
+                BeanPropertyController.of(pool).produce(10, new Consumer<BeanPropertyController>() {
+                    public void accept(BeanPropertyController bpc) {
+                        bpc.mutateInt("age", listOfBeans.size());
+                        listOfBeans.add((TraditionalBean) bpc.getObject());
+                    }
+                });
+                assertEquals(10, new HashSet<TraditionalBean>(listOfBeans).size());
+                for (int i=0; i<listOfBeans.size(); i++) {
+                    assertEquals(i, listOfBeans.get(i).getAge());
+                }
+            } finally {
+                pool.close();
+            }
+        }
+    }
+    
+    public void testCanProcessBatchesOfBeansInParallel() throws Exception {
+        List<TraditionalBean> beans = new ArrayList<TraditionalBean>();
+        for (int i = 0; i < 100; i++) {
+            TraditionalBean bean = new TraditionalBean();
+            bean.setAge(i);
+            beans.add(bean);
+        }
+        BeanBatch<TraditionalBean> batch = BeanBatch.of(beans).withChunkSize(7).withParallelism(3);
+        
+        batch.mutate("name", "Batched");
+        List<Object> ages = batch.project("age");
+        for (int i = 0; i < beans.size(); i++) {
+            assertEquals(i, ages.get(i));
+            assertEquals("Batched", beans.get(i).getName());
+        }
+        
+        List<String> names = batch.map(new Function<TraditionalBean, String>() {
+            public String apply(TraditionalBean bean) {
+                return bean.getName() + bean.getAge();
+            }
+        });
+        assertEquals("Batched99", names.get(99));
+    }
+    
+    public void testCanProjectPropertiesIntoPrimitiveColumns() throws Exception {
+        List<TraditionalBean> beans = new ArrayList<TraditionalBean>();
+        for (int i = 0; i < 40; i++) {
+            TraditionalBean bean = new TraditionalBean();
+            bean.setAge(i);
+            bean.setAccountBalance(i / 2d);
+            beans.add(bean);
+        }
+        ColumnSet columns = ColumnProjection.of("age", "accountBalance", "name").project(beans);
+        
+        assertEquals(40, columns.getRowCount());
+        int[] ages = columns.getIntColumn("age").toArray();
+        assertEquals(40, ages.length);
+        assertEquals(39, ages[39]);
+        assertEquals(19.5d, columns.getDoubleColumn("accountBalance").getDouble(39), 0d);
+        assertNull(columns.getObjectColumn("name").get(0));
+    }
+    
+    public void testCanStoreBeanPropertiesOffHeap() throws Exception {
+        OffHeapBeanStore store = new OffHeapBeanStore(RecordLayout.of(TraditionalBean.class), 16);
+        for (int i = 0; i < 40; i++) {
+            TraditionalBean bean = new TraditionalBean();
+            bean.setName("Stored" + i);
+            bean.setAge(i);
+            bean.setAccountBalance(i * 1.5d);
+            store.add(bean);
+        }
+        
+        assertEquals(40, store.size());
+        assertEquals("Stored33", store.access(33, "name"));
+        assertEquals(33, store.accessInt(33, "age"));
+        assertEquals(49.5d, store.accessDouble(33, "accountBalance"), 0d);
+        
+        store.mutate(20, "name", "Changed").mutateInt(20, "age", 99);
+        TraditionalBean materialized = (TraditionalBean) store.materialize(20);
+        assertEquals("Changed", materialized.getName());
+        assertEquals(99, materialized.getAge());
+        assertEquals(30d, materialized.getAccountBalance(), 0d);
+        
+        BeanRow row = store.row(0);
+        int sum = 0;
+        for (int i = 0; i < store.size(); i++) {
+            sum += row.moveTo(i).accessInt("age");
+        }
+        assertEquals(99 - 20 + (39 * 40 / 2), sum);
+        
+        int empty = store.addRow();
+        assertNull(store.access(empty, "name"));
+        try {
+            store.access(41, "name");
+            fail("Rows beyond store size shouldn't be accessible");
+        } catch (IndexOutOfBoundsException e) {}
+    }
+    
+    public void testStoredSlotsRejectValuesThatDoNotFit() throws Exception {
+        OffHeapBeanStore store = new OffHeapBeanStore(RecordLayout.of(NumericBean.class), 4);
+        int row = store.add(new NumericBean());
+        
+        store.mutateLong(row, "integer", 7L).mutateDouble(row, "small", 3d).mutate(row, "large", 5);
+        store.mutate(row, "boxed", (short) 2).mutateDouble(row, "ratio", 0.5d);
+        assertEquals(7, store.accessInt(row, "integer"));
+        assertEquals(3, store.accessInt(row, "small"));
+        assertEquals(5L, store.accessLong(row, "large"));
+        assertEquals(2, store.access(row, "boxed"));
+        assertEquals(0.5d, store.accessDouble(row, "ratio"), 0d);
+        
+        try {
+            store.mutateLong(row, "integer", 5000000000L);
+            fail("Long beyond int range shouldn't fit an int slot");
+        } catch (IllegalArgumentException e) {}
+        try {
+            store.mutateInt(row, "small", 40000);
+            fail("Int beyond short range shouldn't fit a short slot");
+        } catch (IllegalArgumentException e) {}
+        try {
+            store.mutateDouble(row, "integer", 3.9d);
+            fail("Fractional double shouldn't fit an int slot");
+        } catch (IllegalArgumentException e) {}
+        try {
+            store.mutateDouble(row, "large", Double.NaN);
+            fail("NaN shouldn't fit a long slot");
+        } catch (IllegalArgumentException e) {}
+        try {
+            store.mutateDouble(row, "ratio", 1e300d);
+            fail("Double beyond float range shouldn't fit a float slot");
+        } catch (IllegalArgumentException e) {}
+        try {
+            store.mutate(row, "boxed", 7.5d);
+            fail("Double shouldn't fit an Integer slot");
+        } catch (IllegalArgumentException e) {}
+        try {
+            store.mutate(row, "integer", "7");
+            fail("String shouldn't fit an int slot");
+        } catch (IllegalArgumentException e) {}
+        assertEquals(7, store.accessInt(row, "integer"));
+        assertEquals(3, store.accessInt(row, "small"));
+        assertEquals(2, store.access(row, "boxed"));
+        assertEquals(0.5d, store.accessDouble(row, "ratio"), 0d);
+    }
+    
+    public void testCanPersistStoredBeansInMappedFile() throws Exception {
+        File file = File.createTempFile("bpc", ".store");
+        file.deleteOnExit();
+        file.delete();
+        RecordLayout layout = RecordLayout.of(TraditionalBean.class);
+        
+        MappedBeanStore store = MappedBeanStore.open(file.toPath(), layout, 8);
+        for (int i = 0; i < 20; i++) {
+            TraditionalBean bean = new TraditionalBean();
+            bean.setName("Mapped" + i);
+            bean.setAge(i);
+            store.add(bean);
+        }
+        store.close();
+        
+        store = MappedBeanStore.open(file.toPath(), layout);
+        try {
+            assertEquals(20, store.size());
+            assertEquals("Mapped19", store.access(19, "name"));
+            assertEquals(7, ((TraditionalBean) store.materialize(7)).getAge());
+        } finally {
+            store.close();
+        }
+        
+        try {
+            MappedBeanStore.open(file.toPath(), RecordLayout.of(PersonBean.class));
+            fail("Store shouldn't open with a different layout");
+        } catch (IOException e) {}
+    }
+    
+    public void testCanEncodeBeansIntoCompactBinary() throws Exception {
+        TraditionalBean bean = new TraditionalBean();
+        bean.setName("Encoded");
+        bean.setAge(-42);
+        bean.setAccountBalance(1234.5d);
+        BeanPropertyController bpc = BeanPropertyController.of(bean);
+        byte[] encoded = bpc.encode();
+        // fixed width double, single byte varint age and length prefixed name, no names or tags
+        assertEquals(8 + 1 + 1 + "Encoded".length(), encoded.length);
+        
+        bpc.decode(encoded);
+        assertNotSame(bean, bpc.getObject());
+        assertEquals(bean, bpc.getObject());
+        
+        NodeBean first = new NodeBean();
+        first.setName("first");
+        first.setNext(new NodeBean());
+        first.getNext().setName("second");
+        BeanCodec<NodeBean> codec = BeanCodec.of(NodeBean.class);
+        NodeBean decoded = codec.decode(codec.encode(first));
+        assertEquals("second", decoded.getNext().getName());
+        assertNull(decoded.getNext().getNext());
+        assertEquals(Arrays.asList("name", "next", "recursion"), codec.getPropertyNames());
+    }
+    
+    public void testCorruptEncodedBeansFailWithCodecException() throws Exception {
+        BeanCodec<NodeBean> codec = BeanCodec.of(NodeBean.class);
+        byte[][] lengths = {
+            { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F },
+            { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01 },
+            { (byte) 0xE9, 0x07, 'a', 'b' }
+        };
+        for (byte[] corrupt : lengths) {
+            try {
+                codec.decode(corrupt);
+                fail("Corrupt string length should be rejected");
+            } catch (CodecException e) {}
+            try {
+                codec.decode(new ByteArrayInputStream(corrupt));
+                fail("Corrupt string length should be rejected from streams");
+            } catch (CodecException e) {}
+        }
+        
+        BeanCodec<EnumBean> enums = BeanCodec.of(EnumBean.class);
+        EnumBean bean = new EnumBean();
+        bean.setUnit(TimeUnit.DAYS);
+        assertEquals(TimeUnit.DAYS, enums.decode(enums.encode(bean)).getUnit());
+        byte[][] ordinals = {
+            { 1, 7 },
+            { 1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08 },
+            { 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 
+                 (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01 }
+        };
+        for (byte[] corrupt : ordinals) {
+            try {
+                enums.decode(corrupt);
+                fail("Ordinal beyond the constants should be rejected");
+            } catch (CodecException e) {}
+        }
+    }
+    
+    public void testCanReadAndWriteBeansAsDelimitedText() throws Exception {
+        List<TraditionalBean> beans = new ArrayList<TraditionalBean>();
+        for (int i = 0; i < 3; i++) {
+            TraditionalBean bean = new TraditionalBean();
+            bean.setAge(i - 1);
+            bean.setAccountBalance(i * 10.25d);
+            beans.add(bean);
+        }
+        beans.get(0).setName("Smith, \"Agent\"");
+        beans.get(1).setName("");
+        StringWriter out = new StringWriter();
+        DelimitedWriter.of(TraditionalBean.class, out, ',').writeAll(beans);
+        assertTrue(out.toString().startsWith("accountBalance,age,name\n0.0,-1,\"Smith, \"\"Agent\"\"\"\n"));
+        
+        byte[] bytes = out.toString().getBytes("UTF-8");
+        DelimitedReader<TraditionalBean> reader = DelimitedReader.of(TraditionalBean.class, 
+                Channels.newChannel(new ByteArrayInputStream(bytes)));
+        List<TraditionalBean> read = new ArrayList<TraditionalBean>();
+        assertEquals(3, reader.forEach(new Consumer<TraditionalBean>() {
+            public void accept(TraditionalBean bean) {
+                read.add(bean);
+            }
+        }));
+        assertEquals(beans, read);
+        assertEquals(Arrays.asList("accountBalance", "age", "name"), reader.getColumns());
+        
+        TraditionalBean reused = new TraditionalBean();
+        reader = DelimitedReader.of(TraditionalBean.class, ByteBuffer.wrap("AGE\tignored\n42\tx\n".getBytes("UTF-8")), '\t');
+        assertTrue(reader.readInto(reused));
+        assertEquals(42, reused.getAge());
+        assertFalse(reader.readInto(reused));
+    }
+    
+    public void testCodecsAgreeOnScalarPropertyTypes() throws Exception {
+        assertTrue(PropertyTypes.isScalar(BigDecimal.class));
+        assertTrue(PropertyTypes.isScalar(TimeUnit.class));
+        assertTrue(PropertyTypes.isNumber(Short.class));
+        assertFalse(PropertyTypes.isNumber(Character.class));
+        assertFalse(PropertyTypes.isBean(BigDecimal.class));
+        assertTrue(PropertyTypes.isBean(NodeBean.class));
+        
+        LedgerBean ledger = new LedgerBean();
+        ledger.setAmount(new BigDecimal("12.50"));
+        ledger.setUnits(new BigInteger("123456789012345678901234567890"));
+        ledger.setCode('X');
+        StringWriter out = new StringWriter();
+        DelimitedWriter<LedgerBean> writer = DelimitedWriter.of(LedgerBean.class, out, ';');
+        writer.write(ledger);
+        writer.flush();
+        assertEquals("amount;code;units\n12.50;X;123456789012345678901234567890\n", out.toString());
+        
+        DelimitedReader<LedgerBean> reader = DelimitedReader.of(LedgerBean.class, 
+                ByteBuffer.wrap(out.toString().getBytes("UTF-8")), ';');
+        LedgerBean read = new LedgerBean();
+        assertTrue(reader.readInto(read));
+        assertEquals(ledger.getAmount(), read.getAmount());
+        assertEquals(ledger.getUnits(), read.getUnits());
+        assertEquals(ledger.getCode(), read.getCode());
+        
+        JsonCodec<LedgerBean> json = JsonCodec.of(LedgerBean.class);
+        read = json.decode(json.encode(ledger));
+        assertEquals(ledger.getAmount(), read.getAmount());
+        assertEquals(ledger.getUnits(), read.getUnits());
+    }
+    
+    public void testCanStreamBeansAsJson() throws Exception {
+        NodeBean node = new NodeBean();
+        node.setName("first \"node\"\n\u00e4");
+        node.setNext(new NodeBean());
+        node.getNext().setName("second");
+        JsonCodec<NodeBean> codec = JsonCodec.of(NodeBean.class);
+        String json = new String(codec.encode(node), "UTF-8");
+        assertEquals("{\"name\":\"first \\\"node\\\"\\n\u00e4\",\"next\":{\"name\":\"second\",\"next\":null,\"recursion\":null},\"recursion\":null}", json);
+        
+        NodeBean decoded = codec.decode(new ByteArrayInputStream(json.getBytes("UTF-8")));
+        assertEquals(node.getName(), decoded.getName());
+        assertEquals("second", decoded.getNext().getName());
+        
+        TraditionalBean bean = JsonCodec.of(TraditionalBean.class).decode(
+                " { \"AGE\" : 42, \"unknown\": [1, {\"a\": null}], \"accountBalance\": 1.25e2, \"name\": \"\\u0041\" } ".getBytes("UTF-8"));
+        assertEquals(42, bean.getAge());
+        assertEquals(125d, bean.getAccountBalance(), 0d);
+        assertEquals("A", bean.getName());
+        
+        ByteBuffer target = ByteBuffer.allocate(128);
+        JsonCodec.of(TraditionalBean.class).encode(bean, target);
+        assertEquals("{\"accountBalance\":125,\"age\":42,\"name\":\"A\"}", new String(target.array(), 0, target.position(), "UTF-8"));
+    }
+    
+    public void testJsonNumbersOutsideWrapperRangeAreMalformed() throws Exception {
+        JsonCodec<NumericBean> codec = JsonCodec.of(NumericBean.class);
+        assertEquals(Integer.valueOf(-7), codec.decode("{\"boxed\":-7}".getBytes("UTF-8")).getBoxed());
+        String[] malformed = { "{\"boxed\":4294967297}", "{\"small\":40000}", "{\"integer\":-2147483649}" };
+        for (String json : malformed) {
+            try {
+                codec.decode(json.getBytes("UTF-8"));
+                fail(json+" shouldn't fit");
+            } catch (CodecException e) {}
+        }
+    }
+    
+    public void testEncodesJsonStraightIntoByteBuffers() throws Exception {
+        NodeBean node = new NodeBean();
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            name.append("node ");
+        }
+        node.setName(name.toString());
+        JsonCodec<NodeBean> codec = JsonCodec.of(NodeBean.class);
+        byte[] expected = codec.encode(node);
+        
+        ByteBuffer target = ByteBuffer.allocateDirect(expected.length + 2);
+        target.put((byte) '[');
+        codec.encode(node, target);
+        assertEquals(expected.length + 1, target.position());
+        target.flip().position(1);
+        assertEquals(node.getName(), codec.decode(target).getName());
+        
+        target = ByteBuffer.allocate(expected.length - 1);
+        target.put((byte) '[');
+        try {
+            codec.encode(node, target);
+            fail("Target without enough room should overflow");
+        } catch (BufferOverflowException e) {}
+        assertEquals(1, target.position());
+    }
+    
+    public void testResolvesNamesIgnoringCaseWithoutAllocating() throws Exception {
+        NameIndex index = NameIndex.of("url", "URL", "accountBalance", "\u00e4ge");
+        assertEquals(0, index.indexOf("url"));
+        assertEquals(1, index.indexOf("URL"));
+        assertEquals(0, index.indexOf("Url"));
+        assertEquals(2, index.indexOf(new StringBuilder("ACCOUNTbalance")));
+        assertEquals(2, index.indexOf("account", "Balance"));
+        assertEquals(-1, index.indexOf("account"));
+        
+        byte[] wire = "{\"\u00c4GE\":1}".getBytes("UTF-8");
+        assertEquals(3, index.indexOf(wire, 2, 4));
+        assertEquals(-1, index.indexOf(wire, 2, 3));
+        
+        ClassMetadata metadata = ClassMetadata.of(TraditionalBean.class, ExtractionDepth.METHODS);
+        byte[] name = "AGE".getBytes("UTF-8");
+        assertEquals("age", metadata.getDescriptor(metadata.indexOf(name, 0, name.length)).getPropertyName());
+    }
+    
+    public void testCanPreloadClassMetadataFromSnapshot() throws Exception {
+        File file = File.createTempFile("bpc", ".metadata");
+        file.deleteOnExit();
+        List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(SnapshotBean.class);
+        assertEquals(1, MetadataSnapshot.save(file.toPath(), ExtractionDepth.METHODS, classes));
+        
+        // no other test touches this class, so its metadata hasn't been indexed yet
+        assertEquals(1, MetadataSnapshot.load(file.toPath(), AccessorEngine.METHOD_HANDLES));
+        assertEquals(0, MetadataSnapshot.load(file.toPath(), AccessorEngine.METHOD_HANDLES));
+        
+        ClassMetadata metadata = ClassMetadata.of(SnapshotBean.class, ExtractionDepth.METHODS, AccessorEngine.METHOD_HANDLES);
+        assertEquals(ClassMetadata.of(SnapshotBean.class, ExtractionDepth.METHODS).getPropertyCount(), metadata.getPropertyCount());
+        SnapshotBean bean = new SnapshotBean();
+        metadata.getDescriptor("age").mutateLong(bean, 42L);
+        assertEquals(42L, bean.getAge());
+    }
+    
+    public void testCanWarmUpClassesBeforeUse() throws Exception {
+        List<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add(TraditionalBean.class);
+        classes.add(NodeBean.class);
+        classes.add(MultipleConstructorsBean.class);
+        BeanPropertyController.warmUp(classes, ExtractionDepth.METHODS, -1, 3, AccessorEngine.METHOD_HANDLES);
+        
+        ClassMetadata metadata = ClassMetadata.of(TraditionalBean.class, ExtractionDepth.METHODS, AccessorEngine.METHOD_HANDLES);
+        assertEquals(3, metadata.getPropertyCount());
+        
+        BeanPropertyController bpc = BeanPropertyController.of(new NodeBean(), ExtractionDepth.METHODS, -1, AccessorEngine.METHOD_HANDLES);
+        bpc.mutate("name", "root");
+        assertEquals("root", bpc.access("name"));
+        
+        Thread.currentThread().interrupt();
+        try {
+            BeanPropertyController.warmUp(classes, ExtractionDepth.FIELDS);
+            fail("Interrupted warm up should have failed");
+        } catch (IllegalStateException e) {
+            assertTrue(Thread.interrupted());
+        }
+    }
+    
+    public void testStaticFieldsAreControlledAlikeWithAllEngines() throws Exception {
+        for (AccessorEngine engine : AccessorEngine.values()) {
+            BeanPropertyController bpc = BeanPropertyController.of(new StaticFieldBean(), ExtractionDepth.FIELDS, -1, engine);
+            assertEquals(0, bpc.access("counter"));
+            assertEquals(0, bpc.accessInt("counter"));
+            bpc.mutateInt("counter", 7);
+            assertEquals(7, StaticFieldBean.counter);
+            bpc.mutate("counter", 0);
+            assertEquals(0, StaticFieldBean.counter);
+            
+            bpc = BeanPropertyController.of(new StaticFieldBean(), ExtractionDepth.QUESTIMATE, -1, engine);
+            assertEquals("static", bpc.access("label"));
+            assertTrue(bpc.getPropertyNames().length > 0);
+        }
+    }
+    
+    public void testCollectsMetricsOfPrimitiveAndHandleBasedCalls() throws Exception {
+        AggregatingMetricsCollector metrics = new AggregatingMetricsCollector();
+        Metrics.setCollector(metrics);
+        try {
+            bpc = BeanPropertyController.of(TraditionalBean.class);
+            bpc.mutateInt("age", 5).accessInt("age");
+            PropertyHandle balance = bpc.handle("accountBalance");
+            bpc.setDouble(balance, 1.5).set(balance, 2.5);
+            bpc.getDouble(balance);
+            bpc.get(balance);
+            
+            assertEquals(3, metrics.getMutationCount());
+            assertEquals(3, metrics.getAccessCount());
+        } finally {
+            Metrics.setCollector(null);
+        }
+    }
+    
+    public void testBackgroundPoolReportsFailuresOfTheFillerToEveryConsumer() throws Exception {
+        FailingBean.successes = 3;
+        PooledInstantiator pool = new PooledInstantiator(FailingBean.class, InstantiationPolicy.NO_ARGS, 2, true);
+        try {
+            pool.instantiate();
+            // the filler fails while the pool is full, which must not lose the end of the beans
+            while (FailingBean.ATTEMPTS.get() <= FailingBean.successes) {
+                Thread.sleep(1);
+            }
+            int produced = 1;
+            try {
+                while (produced <= FailingBean.successes) {
+                    pool.instantiate();
+                    produced++;
+                }
+                fail("Failure of the filler wasn't reported");
+            } catch (BeanInstantiationException e) {
+                assertTrue(e.getCause() instanceof ExceptionInInitializerError);
+            }
+            try {
+                pool.instantiate();
+                fail("Failure of the filler wasn't reported again");
+            } catch (BeanInstantiationException e) {
+                assertTrue(e.getCause() instanceof ExceptionInInitializerError);
+            }
+        } finally {
+            pool.close();
+        }
+    }
+    
+    public void testClosingBackgroundPoolReleasesWaitingConsumers() throws Exception {
+        final PooledInstantiator pool = new PooledInstantiator(BlockingBean.class, InstantiationPolicy.NO_ARGS, 1, true);
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        Thread consumer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    pool.instantiate();
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+            }
+        });
+        consumer.start();
+        while (consumer.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        pool.close();
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+        assertTrue(thrown.get() instanceof BeanInstantiationException);
+        BlockingBean.GATE.countDown();
+    }
+    
+    public void testUsesGeneratedAccessorTableOfControlledBeans() throws Exception {
+        PropertyAccessorTable table = (PropertyAccessorTable) Class.forName(
+                AnnotatedBean.class.getName() + PropertyAccessorTable.CLASS_NAME_SUFFIX).newInstance();
+        ClassMetadata metadata = ClassMetadata.of(AnnotatedBean.class, ExtractionDepth.METHODS);
+        assertEquals(7, metadata.getPropertyCount());
+        for (PropertyDescriptor descriptor : metadata.getDescriptors()) {
+            assertTrue(descriptor.getAccessor() instanceof DispatcherAccessor);
+            assertNull(descriptor.getAccessorMember());
+        }
+        
+        AnnotatedBean bean = new AnnotatedBean(5L);
+        bpc = BeanPropertyController.of(bean);
+        bpc.mutate("name", "Table").mutate("balance", 3050).mutate("ratio", 2).mutate("small", (short) 7);
+        bpc.mutate("initial", 'x').mutate("active", true);
+        assertEquals("Table", bean.getName());
+        assertEquals(3050d, bean.getBalance());
+        assertEquals(2f, bean.getRatio());
+        assertEquals((short) 7, bean.getSmall());
+        assertEquals('x', bean.getInitial());
+        assertTrue(bean.isActive());
+        
+        bpc.mutateInt("ratio", 3).mutateLong("balance", 4L);
+        assertEquals(3f, bean.getRatio());
+        assertEquals(4d, bean.getBalance());
+        assertEquals(7, bpc.accessInt("small"));
+        assertEquals((int) 'x', bpc.accessInt("initial"));
+        
+        assertTrue(bpc.isReadOnly("id"));
+        assertEquals(5L, bpc.accessLong("id"));
+        int id = metadata.indexOf("id");
+        assertTrue(table.isReadOnly(id));
+        try {
+            table.set(bean, id, 6L);
+            fail("Read-only property shouldn't be writable through the table");
+        } catch (IllegalArgumentException e) {}
+        try {
+            table.setLong(bean, id, 6L);
+            fail("Read-only property shouldn't be writable through the table");
+        } catch (IllegalArgumentException e) {}
+        assertEquals(5L, bean.getId());
+        
+        // values are only widened, never narrowed
+        table.setInt(bean, metadata.indexOf("ratio"), 9);
+        assertEquals(9f, bean.getRatio());
+        try {
+            table.setLong(bean, metadata.indexOf("small"), 10L);
+            fail("Table narrowed long to short");
+        } catch (IllegalArgumentException e) {}
+        try {
+            table.setDouble(bean, metadata.indexOf("ratio"), 1.5d);
+            fail("Table narrowed double to float");
+        } catch (IllegalArgumentException e) {}
+        try {
+            table.set(bean, metadata.indexOf("small"), Integer.valueOf(70000));
+            fail("Table narrowed Integer to short");
+        } catch (ClassCastException e) {}
+        try {
+            table.set(bean, metadata.indexOf("balance"), Long.valueOf(5000000000L));
+            assertEquals(5000000000d, bean.getBalance());
+            table.set(bean, metadata.indexOf("ratio"), Double.valueOf(1.5d));
+            fail("Table narrowed Double to float");
+        } catch (ClassCastException e) {}
+        assertEquals((short) 7, bean.getSmall());
+        assertEquals(9f, bean.getRatio());
+    }
+    
+    public void testGeneratedAndMethodHandleEnginesRejectNarrowingValues() throws Exception {
+        for (AccessorEngine engine : new AccessorEngine[] { AccessorEngine.METHOD_HANDLES, AccessorEngine.GENERATED }) {
+            NumericBean bean = new NumericBean();
+            bpc = BeanPropertyController.of(bean, ExtractionDepth.METHODS, -1, engine);
+            bpc.mutate("integer", 7).mutate("real", 3050).mutate("ratio", 2).mutate("large", 'c').mutate("small", (byte) 3);
+            assertEquals(7, bean.getInteger());
+            assertEquals(3050d, bean.getReal());
+            assertEquals(2f, bean.getRatio());
+            assertEquals((long) 'c', bean.getLarge());
+            assertEquals((short) 3, bean.getSmall());
+            
+            Object[][] narrowing = { { "integer", 5000000000L }, { "integer", 3.7d }, { "small", 70000 }, { "ratio", 1.5d } };
+            for (Object[] value : narrowing) {
+                try {
+                    bpc.mutate((String) value[0], value[1]);
+                    fail(engine+" accepted "+value[1]+" for "+value[0]);
+                } catch (ClassCastException e) {}
+            }
+            assertEquals(7, bean.getInteger());
+            assertEquals((short) 3, bean.getSmall());
+            assertEquals(2f, bean.getRatio());
+        }
+    }
+    
+    public void testPrimitiveVariantsRejectNarrowingWithEveryEngine() throws Exception {
+        for (AccessorEngine engine : AccessorEngine.values()) {
+            NumericBean bean = new NumericBean();
+            bean.setLarge(5000000000L);
+            bean.setReal(3.9d);
+            bean.setSmall((short) 3);
+            bpc = BeanPropertyController.of(bean, ExtractionDepth.METHODS, -1, engine);
+            
+            bpc.mutateInt("ratio", 2).mutateInt("large", 4).mutateInt("boxed", 6).mutateLong("real", 7L);
+            assertEquals(2f, bean.getRatio());
+            assertEquals(4L, bean.getLarge());
+            assertEquals(Integer.valueOf(6), bean.getBoxed());
+            assertEquals(7d, bean.getReal());
+            assertEquals(6L, bpc.accessLong("boxed"));
+            assertEquals(3, bpc.accessInt("small"));
+            bean.setLarge(5000000000L);
+            bean.setReal(3.9d);
+            
+            String[] rejectedReads = { "int:large", "long:real", "int:ratio", "boolean:integer" };
+            for (String read : rejectedReads) {
+                String property = read.substring(read.indexOf(':') + 1);
+                try {
+                    if (read.startsWith("int:")) {
+                        bpc.accessInt(property);
+                    } else if (read.startsWith("long:")) {
+                        bpc.accessLong(property);
+                    } else {
+                        bpc.accessBoolean(property);
+                    }
+                    fail(engine+" allowed reading "+read);
+                } catch (PropertyAccessException e) {}
+            }
+            bean.setBoxed(null);
+            try {
+                bpc.accessInt("boxed");
+                fail(engine+" read null as int");
+            } catch (PropertyAccessException e) {}
+            
+            String[] rejectedWrites = { "int:small", "long:integer", "long:boxed", "double:ratio", "double:large", "boolean:integer" };
+            for (String write : rejectedWrites) {
+                String property = write.substring(write.indexOf(':') + 1);
+                try {
+                    if (write.startsWith("int:")) {
+                        bpc.mutateInt(property, 70000);
+                    } else if (write.startsWith("long:")) {
+                        bpc.mutateLong(property, 5000000000L);
+                    } else if (write.startsWith("double:")) {
+                        bpc.mutateDouble(property, 3.9d);
+                    } else {
+                        bpc.mutateBoolean(property, true);
+                    }
+                    fail(engine+" allowed writing "+write);
+                } catch (PropertyAccessException e) {}
+            }
+            assertEquals((short) 3, bean.getSmall());
+            assertEquals(0, bean.getInteger());
+            assertEquals(2f, bean.getRatio());
+            assertEquals(5000000000L, bean.getLarge());
+        }
+    }
 }